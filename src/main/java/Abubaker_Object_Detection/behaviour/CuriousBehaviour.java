@@ -1,6 +1,7 @@
 package Abubaker_Object_Detection.behaviour;
 
 import bot.BotController;
+import Abubaker_Object_Detection.util.AsyncImageWriter;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
@@ -17,6 +18,25 @@ import java.io.IOException;
  */
 public class CuriousBehaviour implements Behaviour {
 
+    /** Background writer for the captured picture, or {@code null} to save it inline. */
+    private final AsyncImageWriter imageWriter;
+
+    /**
+     * Constructs a new {@code CuriousBehaviour} that saves its picture inline.
+     */
+    public CuriousBehaviour() {
+        this(null);
+    }
+
+    /**
+     * Constructs a new {@code CuriousBehaviour} that hands its picture to a background writer.
+     *
+     * @param imageWriter The writer used to save the captured picture, or {@code null} to save it inline.
+     */
+    public CuriousBehaviour(AsyncImageWriter imageWriter) {
+        this.imageWriter = imageWriter;
+    }
+
     /**
      * Executes the "curious" behaviour using the provided {@link BotController}.
      * <p>
@@ -80,16 +100,22 @@ public class CuriousBehaviour implements Behaviour {
         // Capture a picture of the object using the bot's camera.
         BufferedImage picture = botController.takeGreyPicture();
 
-        // Build a filename based on the current system time.
-        String fileName = "picture_" + System.currentTimeMillis() + ".jpg";
-        File outputFile = new File(fileName);
-
-        // Attempt to save the captured image as a JPG file.
-        try {
-            ImageIO.write(picture, "jpg", outputFile);
-            System.out.println("Image saved successfully to " + outputFile.getAbsolutePath());
-        } catch (IOException e) {
-            System.err.println("Error saving the image: " + e.getMessage());
+        // Hand the picture to the background writer if available, so the bot can react
+        // immediately; otherwise save it inline as a JPG file.
+        if (imageWriter != null) {
+            imageWriter.submit(picture, "picture");
+        } else {
+            // Build a filename based on the current system time.
+            String fileName = "picture_" + System.currentTimeMillis() + ".jpg";
+            File outputFile = new File(fileName);
+
+            // Attempt to save the captured image as a JPG file.
+            try {
+                ImageIO.write(picture, "jpg", outputFile);
+                System.out.println("Image saved successfully to " + outputFile.getAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("Error saving the image: " + e.getMessage());
+            }
         }
 
         // Pause for 5 seconds to provide a delay before re-checking the distance.
@@ -2,6 +2,7 @@ package Abubaker_Object_Detection.behaviour;
 
 import bot.BotController;
 import Abubaker_Object_Detection.detection.ObjectDetector;
+import Abubaker_Object_Detection.util.AsyncImageWriter;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -18,13 +19,27 @@ public class ScaredyBehaviour implements Behaviour {
     /** Responsible for detecting objects in captured images. */
     private final ObjectDetector objectDetector;
 
+    /** Background writer for the captured picture, or {@code null} to save it inline. */
+    private final AsyncImageWriter imageWriter;
+
     /**
      * Constructs a new {@code ScaredyBehaviour} with the provided {@link ObjectDetector}.
      *
      * @param objectDetector The detector used to identify the presence of objects in images.
      */
     public ScaredyBehaviour(ObjectDetector objectDetector) {
+        this(objectDetector, null);
+    }
+
+    /**
+     * Constructs a new {@code ScaredyBehaviour} that hands its picture to a background writer.
+     *
+     * @param objectDetector The detector used to identify the presence of objects in images.
+     * @param imageWriter    The writer used to save the captured picture, or {@code null} to save it inline.
+     */
+    public ScaredyBehaviour(ObjectDetector objectDetector, AsyncImageWriter imageWriter) {
         this.objectDetector = objectDetector;
+        this.imageWriter = imageWriter;
     }
 
     /**
@@ -69,16 +84,22 @@ public class ScaredyBehaviour implements Behaviour {
         // Set the bot's underlights to red to indicate a "scared" or alert state.
         botController.setUnderlights(new int[] {255, 0, 0});
 
-        // Generate a filename based on the system time to avoid collisions.
-        String fileName = "picture_" + System.currentTimeMillis() + ".jpg";
-        File outputFile = new File(fileName);
+        // Hand the picture to the background writer if available, so the bot can react
+        // immediately; otherwise save it inline as a JPG file.
+        if (imageWriter != null) {
+            imageWriter.submit(picture, "picture");
+        } else {
+            // Generate a filename based on the system time to avoid collisions.
+            String fileName = "picture_" + System.currentTimeMillis() + ".jpg";
+            File outputFile = new File(fileName);
 
-        // Try saving the captured image as a JPG, printing a success or error message.
-        try {
-            ImageIO.write(picture, "jpg", outputFile);
-            System.out.println("Image saved successfully to " + outputFile.getAbsolutePath());
-        } catch (IOException e) {
-            System.err.println("Error saving the image: " + e.getMessage());
+            // Try saving the captured image as a JPG, printing a success or error message.
+            try {
+                ImageIO.write(picture, "jpg", outputFile);
+                System.out.println("Image saved successfully to " + outputFile.getAbsolutePath());
+            } catch (IOException e) {
+                System.err.println("Error saving the image: " + e.getMessage());
+            }
         }
 
         // Blink the red underlights 5 times (on/off cycle).
@@ -1,6 +1,8 @@
 package Abubaker_Object_Detection.behaviour;
 
 import bot.BotController;
+import bot.CapturedFrame;
+import bot.DistanceReading;
 import Abubaker_Object_Detection.detection.ObjectDetector;
 
 import java.awt.image.BufferedImage;
@@ -31,6 +33,15 @@ public class WanderBehaviour implements Behaviour{
     /** Used for detecting specific objects in captured images. */
     private final ObjectDetector objectDetector;
 
+    /**
+     * How long before a distance reading a frame may have been captured and still be used for it.
+     * At wandering speed the bot covers only a few centimetres in this time.
+     */
+    private static final long MAX_FRAME_AGE_NANOS = 250_000_000L;
+
+    /** Longest wait for a frame recent enough to match a distance reading. */
+    private static final long FRAME_TIMEOUT_MILLIS = 2000;
+
     /**
      * Creates a {@code WanderBehaviour} with a given {@link ObjectDetector}.
      *
@@ -94,13 +105,29 @@ public class WanderBehaviour implements Behaviour{
             }
 
             // Measure distance to detect if an obstacle is within 50 cm.
-            double distance = botController.measureDistance();
+            // The reading's own timestamp tells which camera frames match it.
+            DistanceReading reading = botController.readDistance();
+            long measuredAt = reading.getSampleNanos();
+            double distance = reading.getDistance();
 
             // If the bot is too close to something:
             if (distance < 40) {
 
-                // Capture an image of what's in front of the bot.
-                BufferedImage potObject = botController.takeGreyPicture();
+                // Get an image of what's in front of the bot, captured around the distance reading.
+                // With continuous capture running, the newest background frame is usually recent
+                // enough and is used straight away; otherwise a new picture is taken. No frame
+                // means the capture thread has stalled, so a second wait would not help.
+                BufferedImage potObject;
+                try {
+                    CapturedFrame frame = botController.awaitFrameNewerThan(
+                            measuredAt - MAX_FRAME_AGE_NANOS, FRAME_TIMEOUT_MILLIS);
+                    if (frame == null) {
+                        throw new RuntimeException("No frame captured within " + FRAME_TIMEOUT_MILLIS + " ms");
+                    }
+                    potObject = frame.getImage();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
                 if(Thread.currentThread().isInterrupted()){return 0;}
                 // Check if the captured image contains a recognised object of interest.
                 Boolean isObject = objectDetector.detectObject(potObject);
@@ -0,0 +1,344 @@
+package Abubaker_Object_Detection.detection;
+
+import Abubaker_Object_Detection.util.ImageHasher;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link ObjectDetector} decorator that remembers the results of frames it has already seen.
+ * <p>
+ * Every frame is reduced to a 64-bit content hash (see {@link ImageHasher}); if a frame with the
+ * same hash and dimensions has been examined before, its {@link DetectionResult} is returned
+ * without running the wrapped detector. This makes replayed sessions, re-scans of saved
+ * encounter photos and repeated debugging runs cost a hash per frame instead of a full pipeline.
+ * <p>
+ * The cache is split into {@value #SEGMENTS} independently locked segments, selected by the hash,
+ * so concurrent callers (e.g. {@link #detectBatch} workers) rarely contend. Each segment is an
+ * access-ordered map that evicts its least recently used entry once it holds more than its share
+ * of the configured capacity. Locks are only held for the lookup and the insertion; the wrapped
+ * detector always runs outside them, so two threads that miss on the same frame at the same time
+ * may both run it. This class is thread-safe as long as the wrapped detector is.
+ */
+public class CachingObjectDetector implements ObjectDetector, AutoCloseable {
+
+    /** Number of independently locked segments; a power of two. */
+    private static final int SEGMENTS = 16;
+
+    /** Default maximum number of cached results. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Rough heap cost of a cached entry without boxes: the map node, the boxed key, the entry
+     * and the result with its stage array.
+     */
+    private static final long ENTRY_BYTES = 256;
+
+    /** Rough heap cost of each cached {@link DetectionResult.Box} and its rectangle. */
+    private static final long BOX_BYTES = 80;
+
+    /** A cached result, together with what is needed to guard against hash collisions. */
+    private static final class Entry {
+        final int width;
+        final int height;
+        final int imageType;
+        final DetectionResult result;
+
+        /** {@code false} if the result only carries the verdict (it came from detectObject). */
+        final boolean detailed;
+
+        Entry(BufferedImage image, DetectionResult result, boolean detailed) {
+            this.width = image.getWidth();
+            this.height = image.getHeight();
+            this.imageType = image.getType();
+            this.result = result;
+            this.detailed = detailed;
+        }
+
+        boolean matches(BufferedImage image) {
+            return width == image.getWidth() && height == image.getHeight() && imageType == image.getType();
+        }
+
+        boolean sameFrameAs(Entry other) {
+            return width == other.width && height == other.height && imageType == other.imageType;
+        }
+
+        long estimatedBytes() {
+            return ENTRY_BYTES + BOX_BYTES * result.getBoxes().size();
+        }
+    }
+
+    /** One lock-protected slice of the cache. */
+    private final class Segment extends LinkedHashMap<Long, Entry> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            evictions.incrementAndGet();
+            estimatedBytes.addAndGet(-eldest.getValue().estimatedBytes());
+            return true;
+        }
+    }
+
+    private final ObjectDetector delegate;
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private final AtomicLong hashNanos = new AtomicLong();
+    private final AtomicLong delegateNanos = new AtomicLong();
+
+    /**
+     * Creates a cache holding up to {@value #DEFAULT_CAPACITY} results.
+     *
+     * @param delegate the detector to run on frames that are not cached
+     */
+    public CachingObjectDetector(ObjectDetector delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param delegate the detector to run on frames that are not cached
+     * @param capacity the maximum number of cached results; rounded up to a multiple of
+     *                 {@value #SEGMENTS}, since every segment holds an equal share
+     */
+    public CachingObjectDetector(ObjectDetector delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.delegate = delegate;
+        int perSegment = (capacity + SEGMENTS - 1) / SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * Returns the cached verdict for the frame, or runs the wrapped detector and caches it.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return the (possibly cached) verdict
+     */
+    @Override
+    public boolean detectObject(BufferedImage image) {
+        long hash = hash(image);
+        Entry entry = lookup(hash, image, false);
+        if (entry != null) {
+            return entry.result.isObjectFound();
+        }
+
+        long start = System.nanoTime();
+        boolean verdict = delegate.detectObject(image);
+        long nanos = System.nanoTime() - start;
+        delegateNanos.addAndGet(nanos);
+        store(hash, new Entry(image, DetectionResult.ofVerdict(verdict, image.getWidth(), image.getHeight(), nanos), false));
+        return verdict;
+    }
+
+    /**
+     * Returns the cached result for the frame, or runs the wrapped detector and caches it.
+     * Entries cached by {@link #detectObject} carry no boxes, so they are recomputed here.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return the (possibly cached) result
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        long hash = hash(image);
+        Entry entry = lookup(hash, image, true);
+        if (entry != null) {
+            return entry.result;
+        }
+
+        long start = System.nanoTime();
+        DetectionResult result = delegate.detect(image);
+        delegateNanos.addAndGet(System.nanoTime() - start);
+        store(hash, new Entry(image, result, true));
+        return result;
+    }
+
+    /**
+     * Serves the cached frames of a batch directly and passes only the remaining frames to the
+     * wrapped detector, so its own batching (e.g. parallel workers) still applies to them.
+     */
+    @Override
+    public List<DetectionResult> detectBatch(List<BufferedImage> images) {
+        int count = images.size();
+        long[] hashes = new long[count];
+        DetectionResult[] results = new DetectionResult[count];
+        List<BufferedImage> uncached = new ArrayList<>();
+        List<Integer> uncachedIndices = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = images.get(i);
+            hashes[i] = hash(image);
+            Entry entry = lookup(hashes[i], image, true);
+            if (entry != null) {
+                results[i] = entry.result;
+            } else {
+                uncached.add(image);
+                uncachedIndices.add(i);
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            long start = System.nanoTime();
+            List<DetectionResult> computed = delegate.detectBatch(uncached);
+            delegateNanos.addAndGet(System.nanoTime() - start);
+            for (int j = 0; j < computed.size(); j++) {
+                int index = uncachedIndices.get(j);
+                results[index] = computed.get(j);
+                store(hashes[index], new Entry(images.get(index), results[index], true));
+            }
+        }
+
+        List<DetectionResult> list = new ArrayList<>(count);
+        for (DetectionResult result : results) {
+            list.add(result);
+        }
+        return list;
+    }
+
+    /**
+     * Removes every cached result. Metrics are kept.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (Entry entry : segment.values()) {
+                    estimatedBytes.addAndGet(-entry.estimatedBytes());
+                }
+                segment.clear();
+            }
+        }
+    }
+
+    private long hash(BufferedImage image) {
+        long start = System.nanoTime();
+        long hash = ImageHasher.hash(image);
+        hashNanos.addAndGet(System.nanoTime() - start);
+        return hash;
+    }
+
+    private Segment segmentFor(long hash) {
+        // The hash is already well mixed, so its top bits select the segment
+        return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Looks a frame up and counts a hit or a miss.
+     *
+     * @param needDetail whether only an entry with boxes will do
+     * @return the matching entry, or {@code null} on a miss
+     */
+    private Entry lookup(long hash, BufferedImage image, boolean needDetail) {
+        Segment segment = segmentFor(hash);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(hash);
+        }
+        if (entry != null && entry.matches(image) && (entry.detailed || !needDetail)) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Inserts an entry, never downgrading a detailed entry to a verdict-only one.
+     */
+    private void store(long hash, Entry entry) {
+        Segment segment = segmentFor(hash);
+        synchronized (segment) {
+            Entry previous = segment.get(hash);
+            if (previous != null && previous.detailed && !entry.detailed && previous.sameFrameAs(entry)) {
+                return;
+            }
+            estimatedBytes.addAndGet(entry.estimatedBytes());
+            previous = segment.put(hash, entry);
+            if (previous != null) {
+                estimatedBytes.addAndGet(-previous.estimatedBytes());
+            }
+        }
+    }
+
+    /** @return the number of frames answered from the cache */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** @return the number of frames passed to the wrapped detector */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** @return the fraction of frames answered from the cache, between 0 and 1 */
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /** @return the number of results evicted to stay within the capacity */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /** @return the number of results currently cached */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Estimates the heap used by the cached results. The figure is approximate: it assumes a
+     * fixed cost per entry and per box rather than measuring the objects.
+     *
+     * @return the estimated memory use, in bytes
+     */
+    public long getEstimatedMemoryBytes() {
+        return estimatedBytes.get();
+    }
+
+    /** @return the total time spent hashing frames, in nanoseconds */
+    public long getHashNanos() {
+        return hashNanos.get();
+    }
+
+    /** @return the total time spent in the wrapped detector, in nanoseconds */
+    public long getDelegateNanos() {
+        return delegateNanos.get();
+    }
+
+    /**
+     * Closes the wrapped detector, if it holds resources.
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+}
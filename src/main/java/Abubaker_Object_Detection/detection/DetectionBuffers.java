@@ -0,0 +1,178 @@
+package Abubaker_Object_Detection.detection;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+import org.opencv.core.MatOfPoint;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the OpenCV working buffers needed by a single pass of the
+ * {@link OpenCVObjectDetector} pipeline for one frame size and image type.
+ * <p>
+ * Once a set of buffers has been used for a frame, OpenCV's {@code create} semantics mean that
+ * every later frame of the same size and type is written into the same native memory, so no
+ * further native allocation takes place for them. The exception is {@link #contours}: OpenCV's
+ * Java {@code findContours} fills the list with new Mats every time. Instances are not thread-safe and are expected to be
+ * confined to the thread that acquired them (see {@link MatPool}).
+ */
+final class DetectionBuffers {
+
+    /** Maximum number of coarse candidate regions refined individually per frame. */
+    static final int MAX_CANDIDATES = 8;
+
+    /** Width of the frames these buffers were sized for. */
+    final int width;
+
+    /** Height of the frames these buffers were sized for. */
+    final int height;
+
+    /** {@link BufferedImage} type of the frames these buffers were sized for. */
+    final int imageType;
+
+    /** The frame copied into native memory. */
+    final Mat input = new Mat();
+
+    /** Grayscale version of the input frame (unused when the input is already greyscale). */
+    final Mat gray = new Mat();
+
+    /** Result of Otsu thresholding. */
+    final Mat threshold = new Mat();
+
+    /** Result of Canny edge detection. */
+    final Mat edges = new Mat();
+
+    /** Contour hierarchy written by {@code findContours}. */
+    final Mat hierarchy = new Mat();
+
+    /** Per-channel mean written by {@code meanStdDev}. */
+    final MatOfDouble mean = new MatOfDouble();
+
+    /** Per-channel standard deviation written by {@code meanStdDev}. */
+    final MatOfDouble stdDev = new MatOfDouble();
+
+    /** Contours found in the current frame; cleared (and released) after every pass. */
+    final List<MatOfPoint> contours = new ArrayList<>();
+
+    /** Scratch array used to read single values out of {@link #mean} and {@link #stdDev}. */
+    final double[] statistic = new double[1];
+
+    /** Adaptive lower Canny threshold computed for the current frame. */
+    double cannyThreshold1;
+
+    /** Adaptive upper Canny threshold computed for the current frame. */
+    double cannyThreshold2;
+
+    /** Time spent per {@link DetectionResult.Stage} during the current pass. */
+    final long[] stageNanos = new long[DetectionResult.Stage.values().length];
+
+    /** Accepted boxes of the current pass, or {@code null} when only a verdict is needed. */
+    List<DetectionResult.Box> collectedBoxes;
+
+    /** Full-resolution candidate regions from the coarse pass, stored as x, y, width, height. */
+    final int[] candidateRects = new int[MAX_CANDIDATES * 4];
+
+    /** Downscaled images for the coarse-to-fine search; created on first use. */
+    private final Mat[] pyramid = new Mat[OpenCVObjectDetector.MAX_PYRAMID_LEVELS];
+
+    /**
+     * Full-size threshold and edge images written region by region during refinement. They are not
+     * cleared between frames; only the regions (and threshold margins) written for the current
+     * frame may be read.
+     */
+    private Mat refineThreshold;
+    private Mat refineEdges;
+
+    DetectionBuffers(int width, int height, int imageType) {
+        this.width = width;
+        this.height = height;
+        this.imageType = imageType;
+    }
+
+    /**
+     * Checks whether these buffers were sized for the given frame.
+     *
+     * @param width     frame width
+     * @param height    frame height
+     * @param imageType frame {@link BufferedImage} type
+     * @return {@code true} if the buffers can be reused for the frame
+     */
+    boolean matches(int width, int height, int imageType) {
+        return this.width == width && this.height == height && this.imageType == imageType;
+    }
+
+    /**
+     * Returns the Mat holding the given pyramid level, creating it on first use.
+     *
+     * @param level zero-based pyramid level (0 is the 2x downscale)
+     * @return the Mat for that level
+     */
+    Mat pyramidLevel(int level) {
+        if (pyramid[level] == null) {
+            pyramid[level] = new Mat();
+        }
+        return pyramid[level];
+    }
+
+    /**
+     * @return a full-size single-channel Mat for the thresholded candidate regions
+     */
+    Mat refineThreshold() {
+        if (refineThreshold == null) {
+            refineThreshold = new Mat(height, width, CvType.CV_8UC1);
+        }
+        return refineThreshold;
+    }
+
+    /**
+     * @return a full-size single-channel Mat for the edges of the candidate regions
+     */
+    Mat refineEdges() {
+        if (refineEdges == null) {
+            refineEdges = new Mat(height, width, CvType.CV_8UC1);
+        }
+        return refineEdges;
+    }
+
+    /**
+     * Releases the native memory of every contour found in the last pass and empties the list,
+     * keeping the list's backing array for the next frame.
+     */
+    void releaseContours() {
+        for (int i = 0; i < contours.size(); i++) {
+            contours.get(i).release();
+        }
+        contours.clear();
+    }
+
+    /**
+     * Releases all native memory held by these buffers.
+     */
+    void release() {
+        releaseContours();
+        input.release();
+        gray.release();
+        threshold.release();
+        edges.release();
+        hierarchy.release();
+        mean.release();
+        stdDev.release();
+        for (int i = 0; i < pyramid.length; i++) {
+            if (pyramid[i] != null) {
+                pyramid[i].release();
+                pyramid[i] = null;
+            }
+        }
+        if (refineThreshold != null) {
+            refineThreshold.release();
+            refineThreshold = null;
+        }
+        if (refineEdges != null) {
+            refineEdges.release();
+            refineEdges = null;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package Abubaker_Object_Detection.detection;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of running an {@link ObjectDetector} over a single frame.
+ * <p>
+ * Besides the yes/no verdict returned by {@link ObjectDetector#detectObject}, a result carries
+ * everything the detector worked out along the way:
+ * <ul>
+ *     <li>the bounding box, area and confidence of every accepted object, in frame pixels,</li>
+ *     <li>the adaptive Canny thresholds used (if the detector has any),</li>
+ *     <li>how long each stage of the pipeline took, and</li>
+ *     <li>the dimensions of the frame.</li>
+ * </ul>
+ * Behaviours can use the boxes to centre on or track an object without running detection twice.
+ * Instances are immutable.
+ */
+public final class DetectionResult {
+
+    /**
+     * The stages of a detection pipeline that are timed individually. Detectors that do not
+     * have a given stage report zero for it.
+     */
+    public enum Stage {
+        /** Copying the image into the detector's working format (including greyscale conversion). */
+        CONVERSION,
+        /** Building the downscaled images of the coarse-to-fine search. */
+        PYRAMID,
+        /** Computing image statistics (mean and standard deviation). */
+        STATISTICS,
+        /** Thresholding. */
+        THRESHOLD,
+        /** Edge detection. */
+        EDGES,
+        /** Finding and filtering contours, or decoding model output. */
+        CONTOURS,
+        /** Running a neural network forward pass. */
+        INFERENCE
+    }
+
+    /**
+     * A single accepted object.
+     */
+    public static final class Box {
+
+        private final Rectangle bounds;
+        private final double area;
+        private final double confidence;
+
+        /**
+         * @param bounds     the bounding box in frame pixels
+         * @param area       the object's area in pixels (e.g. the contour area)
+         * @param confidence the detector's confidence between 0 and 1 (1 for heuristic detectors)
+         */
+        public Box(Rectangle bounds, double area, double confidence) {
+            this.bounds = new Rectangle(bounds);
+            this.area = area;
+            this.confidence = confidence;
+        }
+
+        /** @return a copy of the bounding box, in frame pixels */
+        public Rectangle getBounds() {
+            return new Rectangle(bounds);
+        }
+
+        /** @return the object's area in pixels */
+        public double getArea() {
+            return area;
+        }
+
+        /** @return the detector's confidence between 0 and 1 */
+        public double getConfidence() {
+            return confidence;
+        }
+
+        /** @return the x coordinate of the box centre */
+        public double getCenterX() {
+            return bounds.getCenterX();
+        }
+
+        /** @return the y coordinate of the box centre */
+        public double getCenterY() {
+            return bounds.getCenterY();
+        }
+
+        @Override
+        public String toString() {
+            return "Box[" + bounds.x + "," + bounds.y + " " + bounds.width + "x" + bounds.height
+                    + ", area=" + area + ", confidence=" + confidence + "]";
+        }
+    }
+
+    private final boolean objectFound;
+    private final List<Box> boxes;
+    private final double cannyThreshold1;
+    private final double cannyThreshold2;
+    private final long[] stageNanos;
+    private final long totalNanos;
+    private final int frameWidth;
+    private final int frameHeight;
+
+    /**
+     * Creates a result.
+     *
+     * @param objectFound     whether the detector considers an object present
+     * @param boxes           the accepted objects (may be empty even if {@code objectFound}, for
+     *                        detectors that stop at the first match)
+     * @param cannyThreshold1 the lower Canny threshold used, or {@code NaN} if not applicable
+     * @param cannyThreshold2 the upper Canny threshold used, or {@code NaN} if not applicable
+     * @param stageNanos      time spent per {@link Stage}, indexed by {@link Stage#ordinal()};
+     *                        may be shorter than the number of stages
+     * @param totalNanos      total time spent detecting
+     * @param frameWidth      width of the analysed frame
+     * @param frameHeight     height of the analysed frame
+     */
+    public DetectionResult(boolean objectFound, List<Box> boxes, double cannyThreshold1, double cannyThreshold2,
+                           long[] stageNanos, long totalNanos, int frameWidth, int frameHeight) {
+        this.objectFound = objectFound;
+        this.boxes = Collections.unmodifiableList(new ArrayList<>(boxes));
+        this.cannyThreshold1 = cannyThreshold1;
+        this.cannyThreshold2 = cannyThreshold2;
+        this.stageNanos = Arrays.copyOf(stageNanos, Stage.values().length);
+        this.totalNanos = totalNanos;
+        this.frameWidth = frameWidth;
+        this.frameHeight = frameHeight;
+    }
+
+    /**
+     * Creates a result that carries only a verdict, for detectors that do not expose any detail.
+     *
+     * @param objectFound whether an object was detected
+     * @param frameWidth  width of the analysed frame
+     * @param frameHeight height of the analysed frame
+     * @param totalNanos  total time spent detecting
+     * @return the result
+     */
+    public static DetectionResult ofVerdict(boolean objectFound, int frameWidth, int frameHeight, long totalNanos) {
+        return new DetectionResult(objectFound, Collections.emptyList(), Double.NaN, Double.NaN,
+                new long[0], totalNanos, frameWidth, frameHeight);
+    }
+
+    /** @return {@code true} if the detector considers an object present */
+    public boolean isObjectFound() {
+        return objectFound;
+    }
+
+    /** @return the accepted objects, in the order the detector found them */
+    public List<Box> getBoxes() {
+        return boxes;
+    }
+
+    /** @return the accepted object with the largest area, or {@code null} if there is none */
+    public Box getLargestBox() {
+        Box largest = null;
+        for (Box box : boxes) {
+            if (largest == null || box.getArea() > largest.getArea()) {
+                largest = box;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Returns how far the largest object is from the centre of the frame horizontally, which
+     * a behaviour can use to turn towards it.
+     *
+     * @return a value between -1 (left edge) and 1 (right edge), 0 when centred, or {@code NaN}
+     *         if no box is available
+     */
+    public double getHorizontalOffset() {
+        Box largest = getLargestBox();
+        if (largest == null || frameWidth == 0) {
+            return Double.NaN;
+        }
+        double half = frameWidth / 2.0;
+        return (largest.getCenterX() - half) / half;
+    }
+
+    /** @return the lower Canny threshold used, or {@code NaN} if not applicable */
+    public double getCannyThreshold1() {
+        return cannyThreshold1;
+    }
+
+    /** @return the upper Canny threshold used, or {@code NaN} if not applicable */
+    public double getCannyThreshold2() {
+        return cannyThreshold2;
+    }
+
+    /**
+     * @param stage the pipeline stage
+     * @return the time spent in that stage, in nanoseconds
+     */
+    public long getStageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    /** @return the total time spent detecting, in nanoseconds */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /** @return the width of the analysed frame */
+    public int getFrameWidth() {
+        return frameWidth;
+    }
+
+    /** @return the height of the analysed frame */
+    public int getFrameHeight() {
+        return frameHeight;
+    }
+
+    @Override
+    public String toString() {
+        return "DetectionResult[objectFound=" + objectFound + ", boxes=" + boxes
+                + ", canny=" + cannyThreshold1 + "/" + cannyThreshold2
+                + ", frame=" + frameWidth + "x" + frameHeight
+                + ", total=" + totalNanos / 1_000 + "us]";
+    }
+}
@@ -0,0 +1,259 @@
+package Abubaker_Object_Detection.detection;
+
+/**
+ * The tunable settings of the {@link OpenCVObjectDetector} pipeline.
+ * <p>
+ * Instances are immutable. Start from {@link #DEFAULT}, which reproduces the detector's original
+ * hard-coded behaviour, and derive variations with the {@code with...} methods, e.g.
+ * <pre>{@code
+ * DetectorParameters fast = DetectorParameters.DEFAULT
+ *         .withPyramidLevels(2)
+ *         .withMinContourAreaFraction(0.001);
+ * }</pre>
+ * The adaptive Canny thresholds are computed from the mean and standard deviation of the
+ * greyscale frame as
+ * <pre>
+ * low  = max(cannyLowFloor,   mean * cannyLowMeanFactor  - stdDev * cannyLowStdDevFactor)
+ * high = min(cannyHighCeiling, mean * cannyHighMeanFactor + stdDev * cannyHighStdDevFactor)
+ * </pre>
+ */
+public final class DetectorParameters {
+
+    /** The detector's original settings. */
+    public static final DetectorParameters DEFAULT = new DetectorParameters(
+            0.15, 5, 0.0005, 100,
+            0.5, 1, 10,
+            1, 2, 250,
+            0, true);
+
+    private final double minAspectRatio;
+    private final double maxAspectRatio;
+    private final double minContourAreaFraction;
+    private final double minContourAreaFloor;
+    private final double cannyLowMeanFactor;
+    private final double cannyLowStdDevFactor;
+    private final double cannyLowFloor;
+    private final double cannyHighMeanFactor;
+    private final double cannyHighStdDevFactor;
+    private final double cannyHighCeiling;
+    private final int pyramidLevels;
+    private final boolean saveDebugImages;
+
+    private DetectorParameters(double minAspectRatio, double maxAspectRatio,
+                               double minContourAreaFraction, double minContourAreaFloor,
+                               double cannyLowMeanFactor, double cannyLowStdDevFactor, double cannyLowFloor,
+                               double cannyHighMeanFactor, double cannyHighStdDevFactor, double cannyHighCeiling,
+                               int pyramidLevels, boolean saveDebugImages) {
+        if (minAspectRatio <= 0 || maxAspectRatio < minAspectRatio) {
+            throw new IllegalArgumentException("aspect ratio range must be positive and non-empty");
+        }
+        if (minContourAreaFraction < 0 || minContourAreaFloor < 0) {
+            throw new IllegalArgumentException("minimum contour area must not be negative");
+        }
+        if (pyramidLevels < 0 || pyramidLevels > OpenCVObjectDetector.MAX_PYRAMID_LEVELS) {
+            throw new IllegalArgumentException("pyramidLevels must be between 0 and "
+                    + OpenCVObjectDetector.MAX_PYRAMID_LEVELS);
+        }
+        this.minAspectRatio = minAspectRatio;
+        this.maxAspectRatio = maxAspectRatio;
+        this.minContourAreaFraction = minContourAreaFraction;
+        this.minContourAreaFloor = minContourAreaFloor;
+        this.cannyLowMeanFactor = cannyLowMeanFactor;
+        this.cannyLowStdDevFactor = cannyLowStdDevFactor;
+        this.cannyLowFloor = cannyLowFloor;
+        this.cannyHighMeanFactor = cannyHighMeanFactor;
+        this.cannyHighStdDevFactor = cannyHighStdDevFactor;
+        this.cannyHighCeiling = cannyHighCeiling;
+        this.pyramidLevels = pyramidLevels;
+        this.saveDebugImages = saveDebugImages;
+    }
+
+    /**
+     * @param min the minimum width/height ratio of an accepted bounding box
+     * @param max the maximum width/height ratio of an accepted bounding box
+     * @return a copy with the given aspect ratio range
+     */
+    public DetectorParameters withAspectRatioRange(double min, double max) {
+        return new DetectorParameters(min, max, minContourAreaFraction, minContourAreaFloor,
+                cannyLowMeanFactor, cannyLowStdDevFactor, cannyLowFloor,
+                cannyHighMeanFactor, cannyHighStdDevFactor, cannyHighCeiling, pyramidLevels, saveDebugImages);
+    }
+
+    /**
+     * @param fraction the minimum contour area as a fraction of the frame area
+     * @return a copy with the given minimum area fraction
+     */
+    public DetectorParameters withMinContourAreaFraction(double fraction) {
+        return new DetectorParameters(minAspectRatio, maxAspectRatio, fraction, minContourAreaFloor,
+                cannyLowMeanFactor, cannyLowStdDevFactor, cannyLowFloor,
+                cannyHighMeanFactor, cannyHighStdDevFactor, cannyHighCeiling, pyramidLevels, saveDebugImages);
+    }
+
+    /**
+     * @param floor the lower bound of the minimum contour area, in pixels
+     * @return a copy with the given minimum area floor
+     */
+    public DetectorParameters withMinContourAreaFloor(double floor) {
+        return new DetectorParameters(minAspectRatio, maxAspectRatio, minContourAreaFraction, floor,
+                cannyLowMeanFactor, cannyLowStdDevFactor, cannyLowFloor,
+                cannyHighMeanFactor, cannyHighStdDevFactor, cannyHighCeiling, pyramidLevels, saveDebugImages);
+    }
+
+    /**
+     * @param meanFactor   the weight of the mean in the lower Canny threshold
+     * @param stdDevFactor the weight subtracted per standard deviation
+     * @param floor        the smallest allowed lower threshold
+     * @return a copy with the given lower Canny threshold coefficients
+     */
+    public DetectorParameters withCannyLow(double meanFactor, double stdDevFactor, double floor) {
+        return new DetectorParameters(minAspectRatio, maxAspectRatio, minContourAreaFraction, minContourAreaFloor,
+                meanFactor, stdDevFactor, floor,
+                cannyHighMeanFactor, cannyHighStdDevFactor, cannyHighCeiling, pyramidLevels, saveDebugImages);
+    }
+
+    /**
+     * @param meanFactor   the weight of the mean in the upper Canny threshold
+     * @param stdDevFactor the weight added per standard deviation
+     * @param ceiling      the largest allowed upper threshold
+     * @return a copy with the given upper Canny threshold coefficients
+     */
+    public DetectorParameters withCannyHigh(double meanFactor, double stdDevFactor, double ceiling) {
+        return new DetectorParameters(minAspectRatio, maxAspectRatio, minContourAreaFraction, minContourAreaFloor,
+                cannyLowMeanFactor, cannyLowStdDevFactor, cannyLowFloor,
+                meanFactor, stdDevFactor, ceiling, pyramidLevels, saveDebugImages);
+    }
+
+    /**
+     * @param levels {@code 0} for no coarse-to-fine search, {@code 1} for a 2x or {@code 2} for a
+     *               4x downscaled first pass
+     * @return a copy with the given number of pyramid levels
+     */
+    public DetectorParameters withPyramidLevels(int levels) {
+        return new DetectorParameters(minAspectRatio, maxAspectRatio, minContourAreaFraction, minContourAreaFloor,
+                cannyLowMeanFactor, cannyLowStdDevFactor, cannyLowFloor,
+                cannyHighMeanFactor, cannyHighStdDevFactor, cannyHighCeiling, levels, saveDebugImages);
+    }
+
+    /**
+     * @param save whether the detector saves a debug image of every frame with an object
+     * @return a copy with debug images switched on or off
+     */
+    public DetectorParameters withSaveDebugImages(boolean save) {
+        return new DetectorParameters(minAspectRatio, maxAspectRatio, minContourAreaFraction, minContourAreaFloor,
+                cannyLowMeanFactor, cannyLowStdDevFactor, cannyLowFloor,
+                cannyHighMeanFactor, cannyHighStdDevFactor, cannyHighCeiling, pyramidLevels, save);
+    }
+
+    /**
+     * Computes the lower Canny threshold for a frame.
+     *
+     * @param mean   the frame's mean grey level
+     * @param stdDev the frame's grey level standard deviation
+     * @return the lower threshold
+     */
+    public double cannyLow(double mean, double stdDev) {
+        return Math.max(cannyLowFloor, mean * cannyLowMeanFactor - stdDev * cannyLowStdDevFactor);
+    }
+
+    /**
+     * Computes the upper Canny threshold for a frame.
+     *
+     * @param mean   the frame's mean grey level
+     * @param stdDev the frame's grey level standard deviation
+     * @return the upper threshold
+     */
+    public double cannyHigh(double mean, double stdDev) {
+        return Math.min(cannyHighCeiling, mean * cannyHighMeanFactor + stdDev * cannyHighStdDevFactor);
+    }
+
+    /**
+     * Computes the minimum contour area for a frame.
+     *
+     * @param width  the frame width
+     * @param height the frame height
+     * @return the minimum area, in pixels
+     */
+    public double minContourArea(int width, int height) {
+        return Math.max(minContourAreaFloor, width * (double) height * minContourAreaFraction);
+    }
+
+    /**
+     * @param width  bounding box width
+     * @param height bounding box height
+     * @return {@code true} if the box's width/height ratio is within the accepted range
+     */
+    public boolean isAcceptedAspectRatio(int width, int height) {
+        double aspectRatio = (double) width / height;
+        return aspectRatio >= minAspectRatio && aspectRatio <= maxAspectRatio;
+    }
+
+    /** @return the minimum width/height ratio of an accepted bounding box */
+    public double getMinAspectRatio() {
+        return minAspectRatio;
+    }
+
+    /** @return the maximum width/height ratio of an accepted bounding box */
+    public double getMaxAspectRatio() {
+        return maxAspectRatio;
+    }
+
+    /** @return the minimum contour area as a fraction of the frame area */
+    public double getMinContourAreaFraction() {
+        return minContourAreaFraction;
+    }
+
+    /** @return the lower bound of the minimum contour area, in pixels */
+    public double getMinContourAreaFloor() {
+        return minContourAreaFloor;
+    }
+
+    /** @return the weight of the mean in the lower Canny threshold */
+    public double getCannyLowMeanFactor() {
+        return cannyLowMeanFactor;
+    }
+
+    /** @return the weight subtracted per standard deviation in the lower Canny threshold */
+    public double getCannyLowStdDevFactor() {
+        return cannyLowStdDevFactor;
+    }
+
+    /** @return the smallest allowed lower Canny threshold */
+    public double getCannyLowFloor() {
+        return cannyLowFloor;
+    }
+
+    /** @return the weight of the mean in the upper Canny threshold */
+    public double getCannyHighMeanFactor() {
+        return cannyHighMeanFactor;
+    }
+
+    /** @return the weight added per standard deviation in the upper Canny threshold */
+    public double getCannyHighStdDevFactor() {
+        return cannyHighStdDevFactor;
+    }
+
+    /** @return the largest allowed upper Canny threshold */
+    public double getCannyHighCeiling() {
+        return cannyHighCeiling;
+    }
+
+    /** @return the number of pyramid levels of the coarse-to-fine search */
+    public int getPyramidLevels() {
+        return pyramidLevels;
+    }
+
+    /** @return whether a debug image is saved for every frame with an object */
+    public boolean isSaveDebugImages() {
+        return saveDebugImages;
+    }
+
+    @Override
+    public String toString() {
+        return "DetectorParameters[aspect=" + minAspectRatio + ".." + maxAspectRatio
+                + ", minArea=max(" + minContourAreaFloor + ", " + minContourAreaFraction + " * frame)"
+                + ", cannyLow=max(" + cannyLowFloor + ", mean*" + cannyLowMeanFactor + " - sd*" + cannyLowStdDevFactor + ")"
+                + ", cannyHigh=min(" + cannyHighCeiling + ", mean*" + cannyHighMeanFactor + " + sd*" + cannyHighStdDevFactor + ")"
+                + ", pyramidLevels=" + pyramidLevels
+                + ", saveDebugImages=" + saveDebugImages + "]";
+    }
+}
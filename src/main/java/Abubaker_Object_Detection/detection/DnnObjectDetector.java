@@ -0,0 +1,379 @@
+package Abubaker_Object_Detection.detection;
+
+import Abubaker_Object_Detection.detection.DetectionResult.Stage;
+import Abubaker_Object_Detection.util.ImageMatBridge;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.opencv.imgproc.Imgproc;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link ObjectDetector} that runs a YOLO-style ONNX model through OpenCV's {@code dnn}
+ * module on the CPU.
+ * <p>
+ * The model is loaded from a local file, bound to the OpenCV backend and CPU target, and run
+ * {@code warmUpRuns} times on a blank input during construction, so that the one-off costs of
+ * the first forward pass (memory planning, kernel selection) are paid before the bot starts
+ * moving rather than on its first frame.
+ * <p>
+ * Each frame is resized to {@code inputSize x inputSize}, scaled to 0..1 and written channel by
+ * channel (RGB order) straight into a network input blob that is allocated once and reused for
+ * every frame, together with the intermediate resize and conversion buffers. Greyscale frames
+ * are expanded to three channels first. The output is decoded as either
+ * <ul>
+ *     <li>YOLOv5 layout: one row per candidate of {@code cx, cy, w, h, objectness, class scores...}, or</li>
+ *     <li>YOLOv8 layout: one row per attribute ({@code cx, cy, w, h, class scores...}) and one
+ *         column per candidate, with no objectness column;</li>
+ * </ul>
+ * the layout is recognised from the output shape (more columns than rows means YOLOv8).
+ * Candidates of any class scoring at least the confidence threshold are kept, overlapping boxes
+ * are suppressed (non-maximum suppression) and the survivors are reported as
+ * {@link DetectionResult.Box}es in frame pixels with the model's confidence.
+ * <p>
+ * A network instance cannot run two forward passes at once, so detection is synchronised; use
+ * one detector per thread for parallel work. The detector leaves OpenCV's thread count alone:
+ * {@link Core#setNumThreads(int)} is a process-wide setting and is left to the caller.
+ */
+public class DnnObjectDetector implements ObjectDetector, AutoCloseable {
+
+    /** Default square network input size, in pixels. */
+    public static final int DEFAULT_INPUT_SIZE = 320;
+
+    /** Default minimum confidence for a candidate to count as an object. */
+    public static final float DEFAULT_CONFIDENCE_THRESHOLD = 0.5f;
+
+    /** Default number of forward passes run during construction. */
+    public static final int DEFAULT_WARM_UP_RUNS = 2;
+
+    /** Boxes overlapping a stronger box by more than this intersection-over-union are dropped. */
+    private static final float NMS_THRESHOLD = 0.45f;
+
+    /** Maximum number of boxes reported per frame. */
+    private static final int MAX_DETECTIONS = 32;
+
+    private final String modelPath;
+    private final int inputSize;
+    private final float confidenceThreshold;
+    private final Net net;
+
+    /** The frame copied into native memory, its 3-channel version and the resized input. */
+    private final Mat input = new Mat();
+    private final Mat bgr = new Mat();
+    private final Mat resized = new Mat();
+    private final Mat scaled = new Mat();
+
+    /** The reused NCHW input blob, and one view per channel plane of it. */
+    private final Mat blob;
+    private final Mat blobRows;
+    private final Mat[] blobPlanes = new Mat[3];
+
+    /** Scratch space for the network output and for candidates that pass the threshold. */
+    private float[] output = new float[0];
+    private float[] candidateScores = new float[64];
+    private int[] candidateRects = new int[64 * 4];
+    private boolean[] suppressed = new boolean[64];
+
+    private final long warmUpNanos;
+    private boolean closed;
+
+    /**
+     * Creates a detector with the default input size, confidence threshold and warm-up.
+     *
+     * @param modelPath path to the ONNX model file
+     */
+    public DnnObjectDetector(String modelPath) {
+        this(modelPath, DEFAULT_INPUT_SIZE, DEFAULT_CONFIDENCE_THRESHOLD, DEFAULT_WARM_UP_RUNS);
+    }
+
+    /**
+     * Creates a detector, loads the model and warms it up.
+     *
+     * @param modelPath           path to the ONNX model file
+     * @param inputSize           the model's square input size in pixels (e.g. 320 or 640)
+     * @param confidenceThreshold the minimum confidence, between 0 and 1, for a candidate to count
+     * @param warmUpRuns          the number of forward passes to run on a blank input before the
+     *                            constructor returns
+     * @throws IllegalArgumentException if the model file does not exist or a setting is out of range
+     * @throws IllegalStateException    if OpenCV cannot load the model
+     */
+    public DnnObjectDetector(String modelPath, int inputSize, float confidenceThreshold, int warmUpRuns) {
+        if (!new File(modelPath).isFile()) {
+            throw new IllegalArgumentException("Model file not found: " + modelPath);
+        }
+        if (inputSize < 1) {
+            throw new IllegalArgumentException("inputSize must be at least 1");
+        }
+        if (confidenceThreshold < 0 || confidenceThreshold > 1) {
+            throw new IllegalArgumentException("confidenceThreshold must be between 0 and 1");
+        }
+        if (warmUpRuns < 0) {
+            throw new IllegalArgumentException("warmUpRuns must not be negative");
+        }
+        this.modelPath = modelPath;
+        this.inputSize = inputSize;
+        this.confidenceThreshold = confidenceThreshold;
+
+        net = Dnn.readNetFromONNX(modelPath);
+        if (net == null || net.empty()) {
+            throw new IllegalStateException("OpenCV could not load the model " + modelPath);
+        }
+        net.setPreferableBackend(Dnn.DNN_BACKEND_OPENCV);
+        net.setPreferableTarget(Dnn.DNN_TARGET_CPU);
+
+        // Allocate the input blob once; the plane views write straight into its memory
+        blob = new Mat(new int[]{1, 3, inputSize, inputSize}, CvType.CV_32F);
+        blobRows = blob.reshape(1, 3 * inputSize);
+        for (int c = 0; c < 3; c++) {
+            blobPlanes[c] = blobRows.rowRange(c * inputSize, (c + 1) * inputSize);
+        }
+
+        // Run the network on a blank input so the first real frame is not slow
+        long start = System.nanoTime();
+        blob.setTo(new Scalar(0));
+        for (int i = 0; i < warmUpRuns; i++) {
+            net.setInput(blob);
+            net.forward().release();
+        }
+        warmUpNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Runs the model over the image.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return {@code true} if at least one candidate reaches the confidence threshold
+     */
+    @Override
+    public boolean detectObject(BufferedImage image) {
+        return detect(image).isObjectFound();
+    }
+
+    /**
+     * Runs the model over the image and reports every box that survives the confidence
+     * threshold and non-maximum suppression.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return the detection result; Canny thresholds are reported as {@code NaN}
+     */
+    @Override
+    public synchronized DetectionResult detect(BufferedImage image) {
+        if (closed) {
+            throw new IllegalStateException("Detector has been closed");
+        }
+        long[] stageNanos = new long[Stage.values().length];
+        long start = System.nanoTime();
+
+        // Copy, expand to three channels and resize to the network input
+        Mat mat = ImageMatBridge.toMat(image, input);
+        if (mat.channels() == 1) {
+            Imgproc.cvtColor(mat, bgr, Imgproc.COLOR_GRAY2BGR);
+            mat = bgr;
+        }
+        Imgproc.resize(mat, resized, new Size(inputSize, inputSize), 0, 0, Imgproc.INTER_LINEAR);
+
+        // Scale to 0..1 and write each channel into its plane of the blob, swapping BGR to RGB
+        resized.convertTo(scaled, CvType.CV_32FC3, 1 / 255.0);
+        for (int c = 0; c < 3; c++) {
+            Core.extractChannel(scaled, blobPlanes[c], 2 - c);
+        }
+        long time = lap(stageNanos, Stage.CONVERSION, start);
+
+        net.setInput(blob);
+        Mat out = net.forward();
+        time = lap(stageNanos, Stage.INFERENCE, time);
+
+        List<DetectionResult.Box> boxes;
+        try {
+            boxes = decode(out, image.getWidth(), image.getHeight());
+        } finally {
+            out.release();
+        }
+        lap(stageNanos, Stage.CONTOURS, time);
+
+        return new DetectionResult(!boxes.isEmpty(), boxes, Double.NaN, Double.NaN, stageNanos,
+                System.nanoTime() - start, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Decodes the network output into boxes in frame pixels.
+     */
+    private List<DetectionResult.Box> decode(Mat out, int frameWidth, int frameHeight) {
+        int rows = out.dims() == 3 ? out.size(1) : out.rows();
+        int cols = out.dims() == 3 ? out.size(2) : out.cols();
+        if (output.length < rows * cols) {
+            output = new float[rows * cols];
+        }
+        Mat flat = out.reshape(1, rows);
+        try {
+            flat.get(0, 0, output);
+        } finally {
+            flat.release();
+        }
+
+        // YOLOv8 stores one attribute per row; YOLOv5 one candidate per row with an objectness column
+        boolean attributesFirst = rows < cols;
+        int candidates = attributesFirst ? cols : rows;
+        int attributes = attributesFirst ? rows : cols;
+        int firstClass = attributesFirst ? 4 : 5;
+        double scaleX = frameWidth / (double) inputSize;
+        double scaleY = frameHeight / (double) inputSize;
+
+        int count = 0;
+        for (int i = 0; i < candidates; i++) {
+            float best = 0;
+            for (int a = firstClass; a < attributes; a++) {
+                best = Math.max(best, value(attributesFirst, i, a, cols));
+            }
+            float score = attributesFirst ? best : value(false, i, 4, cols) * (attributes > firstClass ? best : 1);
+            if (score < confidenceThreshold) {
+                continue;
+            }
+
+            double cx = value(attributesFirst, i, 0, cols);
+            double cy = value(attributesFirst, i, 1, cols);
+            double w = value(attributesFirst, i, 2, cols);
+            double h = value(attributesFirst, i, 3, cols);
+            int x0 = clamp((int) Math.round((cx - w / 2) * scaleX), frameWidth);
+            int y0 = clamp((int) Math.round((cy - h / 2) * scaleY), frameHeight);
+            int x1 = clamp((int) Math.round((cx + w / 2) * scaleX), frameWidth);
+            int y1 = clamp((int) Math.round((cy + h / 2) * scaleY), frameHeight);
+            if (x1 <= x0 || y1 <= y0) {
+                continue;
+            }
+
+            ensureCandidateCapacity(count + 1);
+            candidateScores[count] = score;
+            candidateRects[count * 4] = x0;
+            candidateRects[count * 4 + 1] = y0;
+            candidateRects[count * 4 + 2] = x1 - x0;
+            candidateRects[count * 4 + 3] = y1 - y0;
+            suppressed[count] = false;
+            count++;
+        }
+
+        return suppress(count);
+    }
+
+    /**
+     * Greedy non-maximum suppression: repeatedly keeps the strongest remaining candidate and
+     * drops every candidate that overlaps it too much.
+     */
+    private List<DetectionResult.Box> suppress(int count) {
+        List<DetectionResult.Box> boxes = new ArrayList<>();
+        while (boxes.size() < MAX_DETECTIONS) {
+            int best = -1;
+            for (int i = 0; i < count; i++) {
+                if (!suppressed[i] && (best < 0 || candidateScores[i] > candidateScores[best])) {
+                    best = i;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            suppressed[best] = true;
+            Rectangle bounds = rect(best);
+            boxes.add(new DetectionResult.Box(bounds, bounds.width * (double) bounds.height, candidateScores[best]));
+
+            for (int i = 0; i < count; i++) {
+                if (!suppressed[i] && intersectionOverUnion(bounds, rect(i)) > NMS_THRESHOLD) {
+                    suppressed[i] = true;
+                }
+            }
+        }
+        return boxes;
+    }
+
+    private float value(boolean attributesFirst, int candidate, int attribute, int cols) {
+        return attributesFirst ? output[attribute * cols + candidate] : output[candidate * cols + attribute];
+    }
+
+    private Rectangle rect(int i) {
+        return new Rectangle(candidateRects[i * 4], candidateRects[i * 4 + 1],
+                candidateRects[i * 4 + 2], candidateRects[i * 4 + 3]);
+    }
+
+    private void ensureCandidateCapacity(int capacity) {
+        if (candidateScores.length < capacity) {
+            int size = Math.max(capacity, candidateScores.length * 2);
+            candidateScores = Arrays.copyOf(candidateScores, size);
+            candidateRects = Arrays.copyOf(candidateRects, size * 4);
+            suppressed = Arrays.copyOf(suppressed, size);
+        }
+    }
+
+    private static double intersectionOverUnion(Rectangle a, Rectangle b) {
+        Rectangle overlap = a.intersection(b);
+        if (overlap.isEmpty()) {
+            return 0;
+        }
+        double intersection = overlap.width * (double) overlap.height;
+        double union = a.width * (double) a.height + b.width * (double) b.height - intersection;
+        return intersection / union;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    /**
+     * Adds the time elapsed since {@code since} to the given stage.
+     *
+     * @return the current time, to be used as the start of the next stage
+     */
+    private static long lap(long[] stageNanos, Stage stage, long since) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - since;
+        return now;
+    }
+
+    /** @return the path of the loaded model */
+    public String getModelPath() {
+        return modelPath;
+    }
+
+    /** @return the square network input size, in pixels */
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    /** @return the minimum confidence for a candidate to count as an object */
+    public float getConfidenceThreshold() {
+        return confidenceThreshold;
+    }
+
+    /** @return the time the warm-up forward passes took during construction, in nanoseconds */
+    public long getWarmUpNanos() {
+        return warmUpNanos;
+    }
+
+    /**
+     * Releases the reused native buffers. The detector cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Mat plane : blobPlanes) {
+            plane.release();
+        }
+        blobRows.release();
+        blob.release();
+        input.release();
+        bgr.release();
+        resized.release();
+        scaled.release();
+    }
+}
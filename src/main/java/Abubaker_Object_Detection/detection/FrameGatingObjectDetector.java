@@ -0,0 +1,254 @@
+package Abubaker_Object_Detection.detection;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An {@link ObjectDetector} decorator that skips detection when the scene has not changed.
+ * <p>
+ * When the bot idles or turns on the spot, it often captures several near-identical frames in a
+ * row. For every frame this detector computes a cheap signature: the mean brightness of each
+ * cell of a {@value #GRID}x{@value #GRID} grid, estimated from a few sample pixels per cell. If the
+ * average absolute difference from the previous frame's signature is below the configured
+ * threshold, the previous verdict (or {@link DetectionResult}) is returned without running the
+ * wrapped detector. After {@code maxConsecutiveReuses} reuses in a row, the wrapped detector is
+ * run again regardless, so slow drifts in the scene are never missed for long.
+ * <p>
+ * Hit and miss counters, together with the average time of the wrapped detector, estimate how
+ * much CPU time the gate saves. This class is thread-safe, but is intended for a single camera
+ * feed: frames from different sources would constantly invalidate each other.
+ */
+public class FrameGatingObjectDetector implements ObjectDetector, AutoCloseable {
+
+    /** Number of signature cells along each side of the frame. */
+    private static final int GRID = 16;
+
+    /** Number of sample pixels along each side of a signature cell. */
+    private static final int SAMPLES_PER_CELL = 4;
+
+    /** Default threshold, in grey levels (0-255), for the mean signature difference. */
+    public static final double DEFAULT_CHANGE_THRESHOLD = 3.0;
+
+    /** Default maximum number of verdicts reused in a row. */
+    public static final int DEFAULT_MAX_CONSECUTIVE_REUSES = 8;
+
+    private final ObjectDetector delegate;
+    private final double changeThreshold;
+    private final int maxConsecutiveReuses;
+
+    /** Signature of the last frame the delegate examined, and a scratch array for the new one. */
+    private int[] previousSignature = new int[GRID * GRID];
+    private int[] currentSignature = new int[GRID * GRID];
+
+    /** Dimensions of the last frame the delegate examined; signatures only compare at equal size. */
+    private int previousWidth = -1;
+    private int previousHeight = -1;
+
+    /** The delegate's last verdict, and its last full result if it was produced by detect(). */
+    private boolean previousVerdict;
+    private DetectionResult previousResult;
+    private boolean hasPrevious;
+
+    private int consecutiveReuses;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong delegateNanos = new AtomicLong();
+
+    /**
+     * Creates a gate with the default threshold and reuse limit.
+     *
+     * @param delegate the detector to run when the scene has changed
+     */
+    public FrameGatingObjectDetector(ObjectDetector delegate) {
+        this(delegate, DEFAULT_CHANGE_THRESHOLD, DEFAULT_MAX_CONSECUTIVE_REUSES);
+    }
+
+    /**
+     * Creates a gate.
+     *
+     * @param delegate             the detector to run when the scene has changed
+     * @param changeThreshold      the mean per-cell brightness difference (in grey levels, 0-255)
+     *                             below which a frame counts as unchanged
+     * @param maxConsecutiveReuses how many verdicts may be reused in a row before the delegate is
+     *                             run again anyway
+     */
+    public FrameGatingObjectDetector(ObjectDetector delegate, double changeThreshold, int maxConsecutiveReuses) {
+        if (changeThreshold < 0) {
+            throw new IllegalArgumentException("changeThreshold must not be negative");
+        }
+        if (maxConsecutiveReuses < 0) {
+            throw new IllegalArgumentException("maxConsecutiveReuses must not be negative");
+        }
+        this.delegate = delegate;
+        this.changeThreshold = changeThreshold;
+        this.maxConsecutiveReuses = maxConsecutiveReuses;
+    }
+
+    /**
+     * Returns the previous verdict if the frame is unchanged, otherwise runs the wrapped detector.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return the (possibly reused) verdict
+     */
+    @Override
+    public synchronized boolean detectObject(BufferedImage image) {
+        if (isUnchanged(image)) {
+            recordHit();
+            return previousVerdict;
+        }
+
+        long start = System.nanoTime();
+        boolean verdict = delegate.detectObject(image);
+        recordMiss(image, verdict, null, System.nanoTime() - start);
+        return verdict;
+    }
+
+    /**
+     * Returns the previous result if the frame is unchanged and the previous frame was examined
+     * with {@code detect}, otherwise runs the wrapped detector.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return the (possibly reused) result
+     */
+    @Override
+    public synchronized DetectionResult detect(BufferedImage image) {
+        // The signature is computed either way, since a miss makes it the new reference
+        if (isUnchanged(image) && previousResult != null) {
+            recordHit();
+            return previousResult;
+        }
+
+        long start = System.nanoTime();
+        DetectionResult result = delegate.detect(image);
+        recordMiss(image, result.isObjectFound(), result, System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Batches are passed straight to the wrapped detector: batch images are independent, so
+     * gating would only add overhead.
+     */
+    @Override
+    public List<DetectionResult> detectBatch(List<BufferedImage> images) {
+        return delegate.detectBatch(images);
+    }
+
+    /**
+     * Computes the signature of {@code image} into {@link #currentSignature} and decides whether
+     * the previous verdict can be reused. Counts nothing: the caller records the hit or miss.
+     */
+    private boolean isUnchanged(BufferedImage image) {
+        computeSignature(image, currentSignature);
+
+        if (!hasPrevious
+                || image.getWidth() != previousWidth
+                || image.getHeight() != previousHeight
+                || consecutiveReuses >= maxConsecutiveReuses) {
+            return false;
+        }
+
+        long totalDifference = 0;
+        for (int i = 0; i < currentSignature.length; i++) {
+            totalDifference += Math.abs(currentSignature[i] - previousSignature[i]);
+        }
+        return (double) totalDifference / currentSignature.length < changeThreshold;
+    }
+
+    /**
+     * Counts a frame answered from the previous verdict.
+     */
+    private void recordHit() {
+        consecutiveReuses++;
+        hits.incrementAndGet();
+    }
+
+    /**
+     * Remembers the delegate's answer and makes the current signature the reference.
+     */
+    private void recordMiss(BufferedImage image, boolean verdict, DetectionResult result, long nanos) {
+        int[] swap = previousSignature;
+        previousSignature = currentSignature;
+        currentSignature = swap;
+
+        previousWidth = image.getWidth();
+        previousHeight = image.getHeight();
+        previousVerdict = verdict;
+        previousResult = result;
+        hasPrevious = true;
+        consecutiveReuses = 0;
+
+        misses.incrementAndGet();
+        delegateNanos.addAndGet(nanos);
+    }
+
+    /**
+     * Fills {@code signature} with the mean brightness of each grid cell, estimated from
+     * {@value #SAMPLES_PER_CELL}x{@value #SAMPLES_PER_CELL} evenly spaced pixels.
+     */
+    private static void computeSignature(BufferedImage image, int[] signature) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean grey = image.getType() == BufferedImage.TYPE_BYTE_GRAY;
+        Raster raster = grey ? image.getRaster() : null;
+        int samples = GRID * SAMPLES_PER_CELL;
+
+        for (int cellY = 0; cellY < GRID; cellY++) {
+            for (int cellX = 0; cellX < GRID; cellX++) {
+                int sum = 0;
+                for (int sy = 0; sy < SAMPLES_PER_CELL; sy++) {
+                    int y = (int) (((long) (cellY * SAMPLES_PER_CELL + sy) * 2 + 1) * height / (2L * samples));
+                    for (int sx = 0; sx < SAMPLES_PER_CELL; sx++) {
+                        int x = (int) (((long) (cellX * SAMPLES_PER_CELL + sx) * 2 + 1) * width / (2L * samples));
+                        if (grey) {
+                            sum += raster.getSample(x, y, 0);
+                        } else {
+                            int rgb = image.getRGB(x, y);
+                            sum += (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+                        }
+                    }
+                }
+                signature[cellY * GRID + cellX] = sum / (SAMPLES_PER_CELL * SAMPLES_PER_CELL);
+            }
+        }
+    }
+
+    /** @return the number of frames answered from the previous verdict */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** @return the number of frames passed to the wrapped detector */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** @return the fraction of frames answered from the previous verdict, between 0 and 1 */
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Estimates the detection time saved so far, as the number of hits multiplied by the
+     * wrapped detector's average time per frame.
+     *
+     * @return the estimated time saved, in nanoseconds
+     */
+    public long getEstimatedSavedNanos() {
+        long missCount = misses.get();
+        return missCount == 0 ? 0 : hits.get() * (delegateNanos.get() / missCount);
+    }
+
+    /**
+     * Closes the wrapped detector, if it holds resources.
+     */
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable) {
+            ((AutoCloseable) delegate).close();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package Abubaker_Object_Detection.detection;
+
+/**
+ * A small per-thread pool of {@link DetectionBuffers}, keyed by frame size and image type.
+ * <p>
+ * The bot only ever feeds a handful of distinct frame shapes to a detector (e.g. 480x480 grey
+ * wander frames and 1080x1080 colour stills), so the pool is a fixed array searched linearly;
+ * looking a set of buffers up therefore allocates nothing. When every slot is taken, the least
+ * recently used set of buffers is released and replaced.
+ * <p>
+ * A pool is not thread-safe; {@link OpenCVObjectDetector} keeps one pool per detection thread.
+ */
+final class MatPool {
+
+    /** Maximum number of distinct frame shapes kept alive at once. */
+    private static final int SLOTS = 4;
+
+    private final DetectionBuffers[] slots = new DetectionBuffers[SLOTS];
+
+    /** Last use of each slot, used to pick the eviction victim. */
+    private final long[] lastUse = new long[SLOTS];
+
+    /** Incremented on every acquisition; acts as a logical clock for LRU eviction. */
+    private long useCounter;
+
+    /** Number of buffer sets that had to be created (i.e. pool misses). */
+    private volatile long allocations;
+
+    /**
+     * Returns the buffers for the given frame shape, creating them on first use.
+     *
+     * @param width     frame width
+     * @param height    frame height
+     * @param imageType frame {@link java.awt.image.BufferedImage} type
+     * @return buffers sized for the frame
+     */
+    DetectionBuffers acquire(int width, int height, int imageType) {
+        ++useCounter;
+        int victim = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            DetectionBuffers buffers = slots[i];
+            if (buffers != null && buffers.matches(width, height, imageType)) {
+                lastUse[i] = useCounter;
+                return buffers;
+            }
+            // Prefer an empty slot, otherwise the least recently used one.
+            if (slots[victim] != null && (buffers == null || lastUse[i] < lastUse[victim])) {
+                victim = i;
+            }
+        }
+
+        if (slots[victim] != null) {
+            slots[victim].release();
+        }
+        slots[victim] = new DetectionBuffers(width, height, imageType);
+        lastUse[victim] = useCounter;
+        allocations++;
+        return slots[victim];
+    }
+
+    /**
+     * @return the number of buffer sets this pool has had to create so far
+     */
+    long getAllocations() {
+        return allocations;
+    }
+
+    /**
+     * Releases the native memory of every pooled buffer set. The pool stays usable and will
+     * lazily recreate buffers if it is acquired from again.
+     */
+    void release() {
+        for (int i = 0; i < SLOTS; i++) {
+            if (slots[i] != null) {
+                slots[i].release();
+                slots[i] = null;
+            }
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package Abubaker_Object_Detection.detection;
 
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Defines a contract for object detection on images captured by a bot or other source.
@@ -24,4 +28,54 @@ public interface ObjectDetector {
      *         implementation's criteria, or {@code false} otherwise.
      */
     boolean detectObject(BufferedImage image);
+
+    /**
+     * Examines a provided image and reports, besides the verdict, everything the detector
+     * computed along the way: the accepted bounding boxes, any adaptive thresholds used,
+     * per-stage timings and the frame dimensions (see {@link DetectionResult}).
+     * <p>
+     * The default implementation delegates to {@link #detectObject(BufferedImage)} and only
+     * reports the verdict, the frame size and the total time taken, so existing detectors keep
+     * working unchanged. Detectors that can expose more detail should override it.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return the detection result; {@link DetectionResult#isObjectFound()} matches what
+     *         {@link #detectObject(BufferedImage)} would have returned.
+     */
+    default DetectionResult detect(BufferedImage image) {
+        long start = System.nanoTime();
+        boolean objectFound = detectObject(image);
+        return DetectionResult.ofVerdict(objectFound, image.getWidth(), image.getHeight(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * Runs {@link #detect(BufferedImage)} over a batch of images, e.g. an archive of saved
+     * encounter photos.
+     * <p>
+     * The default implementation processes the images one after another on the calling thread.
+     * Implementations may process them in parallel, but must return the results in the same
+     * order as the input.
+     *
+     * @param images the images to examine
+     * @return one result per image, in input order
+     */
+    default List<DetectionResult> detectBatch(List<BufferedImage> images) {
+        List<DetectionResult> results = new ArrayList<>(images.size());
+        for (BufferedImage image : images) {
+            results.add(detect(image));
+        }
+        return results;
+    }
+
+    /**
+     * Runs {@link #detect(BufferedImage)} over a stream of images. The stream is collected
+     * and passed to {@link #detectBatch(List)}.
+     *
+     * @param images the images to examine
+     * @return one result per image, in encounter order
+     */
+    default List<DetectionResult> detectBatch(Stream<BufferedImage> images) {
+        return detectBatch(images.collect(Collectors.toList()));
+    }
 }
@@ -11,6 +11,7 @@ import nu.pattern.OpenCV;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import java.awt.image.BufferedImage;
+import java.awt.Rectangle;
 import java.awt.image.DataBufferByte;
 
 
@@ -25,8 +26,20 @@ import java.awt.image.DataBufferByte;
 import org.opencv.core.*;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
+import Abubaker_Object_Detection.util.AsyncImageWriter;
+import Abubaker_Object_Detection.util.ImageMatBridge;
+import Abubaker_Object_Detection.detection.DetectionResult.Stage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * An OpenCV-based implementation of the {@link ObjectDetector} interface. This class leverages
@@ -35,15 +48,77 @@ import java.util.List;
  * <p>
  * The detection process includes:
  * <ul>
- *   <li>Converting the input image to a consistent BGR format, if necessary.</li>
- *   <li>Optionally performing grayscale conversion and thresholding (Otsu).</li>
+ *   <li>Copying the input image into an OpenCV {@link Mat} via {@link ImageMatBridge}, keeping
+ *       greyscale frames single-channel.</li>
+ *   <li>Converting colour frames to grayscale, then thresholding (Otsu).</li>
  *   <li>Applying adaptive thresholds for Canny edge detection based on image statistics (mean and standard deviation).</li>
  *   <li>Finding and filtering contours according to minimum size and aspect ratio constraints.</li>
  * </ul>
  * If an object is detected (by satisfying area and aspect ratio checks), an output image
- * ("detected_objects.jpg") may be saved for diagnostic or testing purposes.
+ * ("detected_objects.jpg") may be saved for diagnostic or testing purposes. When the detector
+ * is given an {@link AsyncImageWriter}, the image is instead handed to the writer's background
+ * thread under a unique "detected_objects_..." name, so detection never waits on storage.
+ * <p>
+ * <strong>Pooled buffers:</strong> a detector created with {@code pooledBuffers = true} keeps its
+ * OpenCV working buffers (input, grayscale, threshold, edges, hierarchy, statistics and the contour
+ * list) in a per-thread {@link MatPool} keyed by frame size and type. Once a frame shape has been
+ * seen, later frames of that shape are processed without allocating any new working buffers, which
+ * keeps most native memory churn out of the bot's wander loop. Frames are not allocation-free,
+ * though: OpenCV's Java {@code findContours} creates a new {@code MatOfPoint} (native memory and a
+ * Java wrapper) for every contour, plus one output Mat per call, and the coarse-to-fine search
+ * creates submat headers per refined region. These are released within the frame and counted by
+ * {@link #getTransientNativeMatCount()}. Pooled buffers are freed by {@link #close()}. Without pooling, every call allocates fresh buffers and releases all of them
+ * (including the statistics and contour Mats) before returning.
+ * <p>
+ * <strong>Coarse-to-fine search:</strong> with {@code pyramidLevels} set to 1 or 2, the pipeline
+ * first runs on a 2x or 4x downscaled copy of the frame. Frames with no plausible contour at that
+ * scale (e.g. bare walls) are rejected immediately, and only the regions around coarse candidates
+ * are re-examined at full resolution. Frames too small to downscale use the full-frame pipeline.
+ * <p>
+ * <strong>Parameters:</strong> the aspect ratio range, minimum contour area, Canny threshold
+ * coefficients and pyramid depth are taken from a {@link DetectorParameters} object; the
+ * constructors without one use {@link DetectorParameters#DEFAULT}.
+ * <p>
+ * <strong>Batches:</strong> {@link #detectBatch(List, int)} spreads a list of images over several
+ * worker threads, each with its own buffers, and returns the results in input order.
  */
-public class OpenCVObjectDetector implements ObjectDetector {
+public class OpenCVObjectDetector implements ObjectDetector, AutoCloseable {
+
+    /** Fraction of the rescaled minimum area a coarse contour needs, allowing for downscaling losses. */
+    private static final double COARSE_AREA_TOLERANCE = 0.75;
+
+    /** Extra full-resolution padding, in pixels, around each region refined after the coarse pass. */
+    private static final int REFINE_PADDING = 8;
+
+    /**
+     * Pixels thresholded around each refined region: Canny's 3x3 Sobel and non-maximum suppression
+     * read up to two pixels beyond its input, from the surrounding full-size buffer.
+     */
+    private static final int REFINE_MARGIN = 2;
+
+    /** Smallest side length, in pixels, the coarsest pyramid level may have. */
+    private static final int MIN_PYRAMID_SIDE = 64;
+
+    /** Maximum supported number of pyramid levels (a 4x downscale). */
+    public static final int MAX_PYRAMID_LEVELS = 2;
+
+    /** Whether working buffers are pooled and reused across calls. */
+    private final boolean pooledBuffers;
+
+    /** Aspect ratio, contour area and Canny settings, and the coarse-to-fine search depth. */
+    private final DetectorParameters parameters;
+
+    /** Writer used for debug images, or {@code null} to write them inline. */
+    private final AsyncImageWriter debugImageWriter;
+
+    /** Every pool handed out to a thread, so that {@link #close()} can release them all. */
+    private final Queue<MatPool> pools = new ConcurrentLinkedQueue<>();
+
+    /** Mats created and released within a frame, which pooling cannot avoid. */
+    private final LongAdder transientMats = new LongAdder();
+
+    /** The pool belonging to the calling thread (only used when {@link #pooledBuffers} is set). */
+    private final ThreadLocal<MatPool> threadPool = ThreadLocal.withInitial(this::registerPool);
 
     /**
      * Creates an {@code OpenCVObjectDetector} instance. Though the constructor receives an
@@ -55,21 +130,81 @@ public class OpenCVObjectDetector implements ObjectDetector {
      */
     // Constructor
     public OpenCVObjectDetector(BufferedImage image) {
+        this(false);
+    }
+
+    /**
+     * Creates an {@code OpenCVObjectDetector} that optionally reuses its working buffers.
+     *
+     * @param pooledBuffers {@code true} to keep OpenCV working buffers in a per-thread pool
+     *                      and reuse them for every frame of the same size and type
+     */
+    public OpenCVObjectDetector(boolean pooledBuffers) {
+        this(pooledBuffers, null);
+    }
+
+    /**
+     * Creates an {@code OpenCVObjectDetector} that optionally reuses its working buffers and
+     * saves its debug images through a background writer.
+     *
+     * @param pooledBuffers    {@code true} to keep OpenCV working buffers in a per-thread pool
+     *                         and reuse them for every frame of the same size and type
+     * @param debugImageWriter the writer used to save debug images, or {@code null} to write
+     *                         "detected_objects.jpg" inline on the detecting thread
+     */
+    public OpenCVObjectDetector(boolean pooledBuffers, AsyncImageWriter debugImageWriter) {
+        this(pooledBuffers, 0, debugImageWriter);
+    }
+
+    /**
+     * Creates an {@code OpenCVObjectDetector} with an optional coarse-to-fine search.
+     *
+     * @param pooledBuffers    {@code true} to keep OpenCV working buffers in a per-thread pool
+     *                         and reuse them for every frame of the same size and type
+     * @param pyramidLevels    {@code 0} to search the full-resolution frame only, {@code 1} to
+     *                         search a 2x downscaled frame first, or {@code 2} for a 4x downscale
+     * @param debugImageWriter the writer used to save debug images, or {@code null} to write
+     *                         "detected_objects.jpg" inline on the detecting thread
+     */
+    public OpenCVObjectDetector(boolean pooledBuffers, int pyramidLevels, AsyncImageWriter debugImageWriter) {
+        this(pooledBuffers, DetectorParameters.DEFAULT.withPyramidLevels(pyramidLevels), debugImageWriter);
+    }
+
+    /**
+     * Creates an {@code OpenCVObjectDetector} with explicit pipeline parameters.
+     *
+     * @param pooledBuffers    {@code true} to keep OpenCV working buffers in a per-thread pool
+     *                         and reuse them for every frame of the same size and type
+     * @param parameters       the filter, threshold and coarse-to-fine settings
+     * @param debugImageWriter the writer used to save debug images, or {@code null} to write
+     *                         "detected_objects.jpg" inline on the detecting thread
+     */
+    public OpenCVObjectDetector(boolean pooledBuffers, DetectorParameters parameters, AsyncImageWriter debugImageWriter) {
+        this.pooledBuffers = pooledBuffers;
+        this.parameters = parameters;
+        this.debugImageWriter = debugImageWriter;
+    }
+
+    /** @return the pipeline parameters used by this detector */
+    public DetectorParameters getParameters() {
+        return parameters;
     }
 
     /**
      * Analyzes the provided {@link BufferedImage} to detect if it contains an object of interest.
      * The method applies preprocessing steps including:
      * <ol>
-     *   <li>Ensuring a 3-byte BGR format.</li>
-     *   <li>Converting to grayscale.</li>
+     *   <li>Copying the raster into a single-channel (grey) or BGR {@link Mat}.</li>
+     *   <li>Converting colour frames to grayscale.</li>
      *   <li>Thresholding using Otsu’s method.</li>
      *   <li>Adaptive Canny edge detection (thresholds determined by the image’s mean and standard deviation).</li>
      *   <li>Contour detection.</li>
      *   <li>Filtering contours based on area, aspect ratio, and basic geometry.</li>
      * </ol>
      * <p>If a contour satisfies the criteria indicating a plausible object, this method returns
-     * {@code true}. It also saves a debug image ("detected_objects.jpg") to the local filesystem.
+     * {@code true}. It also saves a debug image ("detected_objects.jpg", or a uniquely named copy
+     * via the {@link AsyncImageWriter}) to the local filesystem, unless debug images are switched
+     * off in the {@link DetectorParameters}.
      * Otherwise, {@code false} is returned.
      *
      * @param bufferedImage The image in which to detect an object.
@@ -78,104 +213,539 @@ public class OpenCVObjectDetector implements ObjectDetector {
      */
     @Override
     public boolean detectObject(BufferedImage bufferedImage) {
+        DetectionBuffers buffers = acquireBuffers(bufferedImage, pooledBuffers);
+        try {
+            return runPipeline(bufferedImage, buffers);
+        } finally {
+            releaseBuffers(buffers, pooledBuffers);
+        }
+    }
 
-        // Local constants and adaptively determined thresholds for image processing
-        final double GAUSSIAN_KERNEL_SIZE = 7;       // Used for Gaussian blur kernel size
-        double CANNY_THRESHOLD1 = 30;               // Lower threshold for the Canny algorithm
-        double CANNY_THRESHOLD2 = 120;              // Upper threshold for the Canny algorithm
-        double MIN_CONTOUR_AREA = 300;              // Minimum area for a contour to be considered valid
-        final double MIN_ASPECT_RATIO = 0.15;        // Minimum allowed aspect ratio of a bounding rectangle
-        final double MAX_ASPECT_RATIO = 5;          // Maximum allowed aspect ratio of a bounding rectangle
+    /**
+     * Runs the same pipeline as {@link #detectObject(BufferedImage)}, but instead of stopping at
+     * the first plausible contour it collects every contour that passes the area and aspect-ratio
+     * filters. The result also reports the adaptive Canny thresholds and the time spent in each
+     * stage, so callers can locate the object without running detection a second time.
+     *
+     * @param bufferedImage The image in which to detect an object.
+     * @return the detection result, with one {@link DetectionResult.Box} per accepted contour
+     */
+    @Override
+    public DetectionResult detect(BufferedImage bufferedImage) {
+        return detect(bufferedImage, pooledBuffers);
+    }
+
+    /**
+     * Implementation of {@link #detect(BufferedImage)} with an explicit buffer policy, so batch
+     * workers can always use pooled buffers.
+     */
+    private DetectionResult detect(BufferedImage bufferedImage, boolean pooled) {
+        long start = System.nanoTime();
+        DetectionBuffers buffers = acquireBuffers(bufferedImage, pooled);
+        try {
+            buffers.collectedBoxes = new ArrayList<>();
+            boolean objectFound = runPipeline(bufferedImage, buffers);
+            return new DetectionResult(objectFound, buffers.collectedBoxes,
+                    buffers.cannyThreshold1, buffers.cannyThreshold2, buffers.stageNanos,
+                    System.nanoTime() - start, buffers.width, buffers.height);
+        } finally {
+            buffers.collectedBoxes = null;
+            releaseBuffers(buffers, pooled);
+        }
+    }
+
+    /**
+     * Runs {@link #detect(BufferedImage)} over the images using one worker per available core.
+     *
+     * @param images the images to examine
+     * @return one result per image, in input order
+     * @see #detectBatch(List, int)
+     */
+    @Override
+    public List<DetectionResult> detectBatch(List<BufferedImage> images) {
+        return detectBatch(images, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Runs {@link #detect(BufferedImage)} over the images on {@code parallelism} worker threads.
+     * <p>
+     * Each worker claims the next unprocessed image, so uneven image sizes balance out, and uses
+     * its own pooled OpenCV buffers (regardless of whether this detector pools buffers for
+     * single-frame calls); these are released when the batch completes. OpenCV parallelises some
+     * functions internally as well. Its thread count is a process-wide setting and is left to the
+     * caller: to avoid oversubscribing the CPU with large batches, lower it to about
+     * {@code cores / parallelism} with {@link Core#setNumThreads(int)} around the call.
+     *
+     * @param images      the images to examine
+     * @param parallelism the maximum number of worker threads
+     * @return one result per image, in input order
+     */
+    public List<DetectionResult> detectBatch(List<BufferedImage> images, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        int workers = Math.min(parallelism, images.size());
+        if (workers <= 1) {
+            List<DetectionResult> results = new ArrayList<>(images.size());
+            for (BufferedImage image : images) {
+                results.add(detect(image, true));
+            }
+            return results;
+        }
+
+        DetectionResult[] results = new DetectionResult[images.size()];
+        AtomicInteger nextIndex = new AtomicInteger();
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "detector-batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        int index;
+                        while ((index = nextIndex.getAndIncrement()) < results.length) {
+                            results[index] = detect(images.get(index), true);
+                        }
+                    } finally {
+                        discardThreadPool();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Batch detection interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Batch detection failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return Arrays.asList(results);
+    }
 
+    /**
+     * Either borrows this thread's pooled buffers for the image, or allocates a throwaway set.
+     */
+    private DetectionBuffers acquireBuffers(BufferedImage bufferedImage, boolean pooled) {
         int width = bufferedImage.getWidth();
         int height = bufferedImage.getHeight();
+        int type = bufferedImage.getType();
 
-        // Ensure the BufferedImage is in 3-byte BGR format
-        BufferedImage convertedImg;
-        if (bufferedImage.getType() == BufferedImage.TYPE_3BYTE_BGR) {
-            convertedImg = bufferedImage;
+        return pooled
+                ? threadPool.get().acquire(width, height, type)
+                : new DetectionBuffers(width, height, type);
+    }
+
+    /**
+     * Hands buffers back after a pass. Contours are always released; the remaining buffers
+     * only when they are not pooled.
+     */
+    private void releaseBuffers(DetectionBuffers buffers, boolean pooled) {
+        if (pooled) {
+            buffers.releaseContours();
         } else {
-            convertedImg = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-            convertedImg.getGraphics().drawImage(bufferedImage, 0, 0, null);
+            buffers.release();
         }
+    }
 
-        // Retrieve the raw pixel data
-        byte[] pixels = ((java.awt.image.DataBufferByte) convertedImg.getRaster().getDataBuffer()).getData();
+    /**
+     * Runs the detection pipeline on the given image using the supplied working buffers.
+     *
+     * @param bufferedImage The image in which to detect an object.
+     * @param buffers       Working buffers sized for {@code bufferedImage}.
+     * @return {@code true} if an object is detected.
+     */
+    private boolean runPipeline(BufferedImage bufferedImage, DetectionBuffers buffers) {
 
-        // Create an OpenCV Mat with the pixel data
-        Mat mat = new Mat(height, width, org.opencv.core.CvType.CV_8UC3);
-        mat.put(0, 0, pixels);
+        Arrays.fill(buffers.stageNanos, 0);
+        long time = System.nanoTime();
 
-        // Convert to grayscale
-        Mat grayImg = new Mat();
-        org.opencv.imgproc.Imgproc.cvtColor(mat, grayImg, org.opencv.imgproc.Imgproc.COLOR_BGR2GRAY);
+        // Copy the pixels straight from the raster into the (possibly reused) OpenCV Mat.
+        // Greyscale frames stay single-channel, so no colour conversion round trip is needed.
+        Mat mat = ImageMatBridge.toMat(bufferedImage, buffers.input);
 
-        // Calculate mean and standard deviation for dynamic thresholding
-        MatOfDouble mean = new MatOfDouble();
-        MatOfDouble stdDev = new MatOfDouble();
-        org.opencv.core.Core.meanStdDev(grayImg, mean, stdDev);
+        // Convert to grayscale (only colour frames need converting)
+        Mat grayImg = mat;
+        if (mat.channels() != 1) {
+            grayImg = buffers.gray;
+            Imgproc.cvtColor(mat, grayImg, Imgproc.COLOR_BGR2GRAY);
+        }
+        lap(buffers, Stage.CONVERSION, time);
 
-        double meanValue = mean.get(0, 0)[0];
-        double stdDevValue = stdDev.get(0, 0)[0];
+        // Use the coarse-to-fine search when enabled and the frame is large enough to downscale
+        int minSide = Math.min(buffers.width, buffers.height);
+        int pyramidLevels = parameters.getPyramidLevels();
+        boolean objectFound = pyramidLevels > 0 && (minSide >> pyramidLevels) >= MIN_PYRAMID_SIDE
+                ? detectCoarseToFine(grayImg, buffers)
+                : detectFullFrame(grayImg, buffers);
 
-        // Adapt Canny thresholds based on image statistics
-        CANNY_THRESHOLD1 = Math.max(10, meanValue * 0.5 - stdDevValue);
-        CANNY_THRESHOLD2 = Math.min(250, meanValue + stdDevValue * 2);
+        // Optionally save the original image if an object is detected
+        if (objectFound && parameters.isSaveDebugImages()) {
+            if (debugImageWriter != null) {
+                debugImageWriter.submit(mat, "detected_objects");
+            } else {
+                Imgcodecs.imwrite("detected_objects.jpg", mat);
+            }
+        }
 
-        // Adapt contour minimum area threshold based on a fraction of total image area
-        double imageArea = width * (double) height;
-        MIN_CONTOUR_AREA = Math.max(100, imageArea * 0.0005);  // 0.05% of image area
+        return objectFound;
+    }
+
+    /**
+     * Runs Otsu thresholding, Canny edge detection and contour filtering over the whole
+     * full-resolution frame.
+     *
+     * @param grayImg The greyscale frame.
+     * @param buffers Working buffers sized for the frame.
+     * @return {@code true} if an object is detected.
+     */
+    private boolean detectFullFrame(Mat grayImg, DetectionBuffers buffers) {
+
+        // Adapt Canny thresholds and the minimum contour area to the frame
+        long time = System.nanoTime();
+        updateCannyThresholds(grayImg, buffers);
+        double minContourArea = parameters.minContourArea(buffers.width, buffers.height);
+        time = lap(buffers, Stage.STATISTICS, time);
 
         // Threshold the grayscale image using Otsu's method
-        Mat thresholdImg = new Mat();
-        org.opencv.imgproc.Imgproc.threshold(grayImg, thresholdImg, 0, 255,
-                org.opencv.imgproc.Imgproc.THRESH_BINARY + org.opencv.imgproc.Imgproc.THRESH_OTSU);
+        Imgproc.threshold(grayImg, buffers.threshold, 0, 255,
+                Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
+        time = lap(buffers, Stage.THRESHOLD, time);
 
         // Apply Canny edge detection
-        Mat edgesImg = new Mat();
-        org.opencv.imgproc.Imgproc.Canny(thresholdImg, edgesImg, CANNY_THRESHOLD1, CANNY_THRESHOLD2);
+        Imgproc.Canny(buffers.threshold, buffers.edges, buffers.cannyThreshold1, buffers.cannyThreshold2);
+        lap(buffers, Stage.EDGES, time);
+
+        // Find external contours and check them against the size and shape filters
+        return findObjectContour(buffers.edges, buffers, minContourArea, 0, 0);
+    }
+
+    /**
+     * Coarse-to-fine variant of {@link #detectFullFrame(Mat, DetectionBuffers)}.
+     * <p>
+     * The frame is first downscaled {@link DetectorParameters#getPyramidLevels()} times by a factor of two and the
+     * full pipeline is run on the small image, with the minimum contour area rescaled
+     * accordingly. If no contour passes the filters there, the frame is rejected straight away,
+     * which is the common case for the bare walls seen while wandering. Otherwise, only the
+     * (padded) regions around the coarse candidates are thresholded, edge-detected and searched
+     * for contours at full resolution, using the Otsu threshold and Canny thresholds computed on
+     * the coarse image.
+     *
+     * @param grayImg The full-resolution greyscale frame.
+     * @param buffers Working buffers sized for the frame.
+     * @return {@code true} if an object is detected.
+     */
+    private boolean detectCoarseToFine(Mat grayImg, DetectionBuffers buffers) {
+
+        // Build the image pyramid (each level halves the width and height)
+        long time = System.nanoTime();
+        int pyramidLevels = parameters.getPyramidLevels();
+        Mat coarse = grayImg;
+        for (int level = 0; level < pyramidLevels; level++) {
+            Mat next = buffers.pyramidLevel(level);
+            Imgproc.pyrDown(coarse, next);
+            coarse = next;
+        }
+        int scale = 1 << pyramidLevels;
+        time = lap(buffers, Stage.PYRAMID, time);
+
+        // Statistics of the downscaled image are a close, much cheaper estimate of the full frame's
+        updateCannyThresholds(coarse, buffers);
+        double minContourArea = parameters.minContourArea(buffers.width, buffers.height);
+        time = lap(buffers, Stage.STATISTICS, time);
+
+        // Coarse pass: Otsu, Canny and contours on the small image
+        double otsuThreshold = Imgproc.threshold(coarse, buffers.threshold, 0, 255,
+                Imgproc.THRESH_BINARY + Imgproc.THRESH_OTSU);
+        time = lap(buffers, Stage.THRESHOLD, time);
+        Imgproc.Canny(buffers.threshold, buffers.edges, buffers.cannyThreshold1, buffers.cannyThreshold2);
+        time = lap(buffers, Stage.EDGES, time);
+        findContours(buffers.edges, buffers);
+
+        int candidates = collectCandidates(buffers, minContourArea * COARSE_AREA_TOLERANCE / (scale * scale), scale);
+        buffers.releaseContours();
+        lap(buffers, Stage.CONTOURS, time);
+
+        // Early exit: nothing at the coarse level looks like an object
+        if (candidates == 0) {
+            return false;
+        }
+
+        // Too many candidates to be worth refining individually; fall back to the full frame
+        if (candidates > DetectionBuffers.MAX_CANDIDATES) {
+            return detectFullFrame(grayImg, buffers);
+        }
+
+        // Fine pass: refine each candidate region at full resolution
+        Mat refineThreshold = buffers.refineThreshold();
+        Mat refineEdges = buffers.refineEdges();
+        int[] rects = buffers.candidateRects;
+        boolean objectFound = false;
+        for (int i = 0; i < candidates; i++) {
+            int x = rects[i * 4];
+            int y = rects[i * 4 + 1];
+            int w = rects[i * 4 + 2];
+            int h = rects[i * 4 + 3];
 
-        // Find external contours
-        java.util.List<MatOfPoint> contours = new java.util.ArrayList<>();
-        Mat hierarchy = new Mat();
-        org.opencv.imgproc.Imgproc.findContours(edgesImg, contours, hierarchy,
-                org.opencv.imgproc.Imgproc.RETR_EXTERNAL, org.opencv.imgproc.Imgproc.CHAIN_APPROX_SIMPLE);
+            // Views into the full-size buffers, so OpenCV writes in place without reallocating.
+            // Canny reads the pixels around its region from the parent buffer, so the threshold
+            // covers a margin as well; otherwise it would see data left over from earlier frames.
+            int top = Math.max(0, y - REFINE_MARGIN);
+            int bottom = Math.min(buffers.height, y + h + REFINE_MARGIN);
+            int left = Math.max(0, x - REFINE_MARGIN);
+            int right = Math.min(buffers.width, x + w + REFINE_MARGIN);
+            Mat roi = grayImg.submat(top, bottom, left, right);
+            Mat marginThreshold = refineThreshold.submat(top, bottom, left, right);
+            Mat roiThreshold = refineThreshold.submat(y, y + h, x, x + w);
+            Mat roiEdges = refineEdges.submat(y, y + h, x, x + w);
+            transientMats.add(4);
+            try {
+                time = System.nanoTime();
+                Imgproc.threshold(roi, marginThreshold, otsuThreshold, 255, Imgproc.THRESH_BINARY);
+                time = lap(buffers, Stage.THRESHOLD, time);
+                Imgproc.Canny(roiThreshold, roiEdges, buffers.cannyThreshold1, buffers.cannyThreshold2);
+                lap(buffers, Stage.EDGES, time);
+                if (findObjectContour(roiEdges, buffers, minContourArea, x, y)) {
+                    objectFound = true;
+                    // Keep refining the remaining candidates only when every box is wanted
+                    if (buffers.collectedBoxes == null) {
+                        return true;
+                    }
+                }
+            } finally {
+                roi.release();
+                marginThreshold.release();
+                roiThreshold.release();
+                roiEdges.release();
+            }
+        }
+        return objectFound;
+    }
+
+    /**
+     * Computes the adaptive Canny thresholds from the mean and standard deviation of the given
+     * greyscale image and stores them in {@code buffers}.
+     */
+    private void updateCannyThresholds(Mat grayImg, DetectionBuffers buffers) {
+
+        // Calculate mean and standard deviation for dynamic thresholding
+        Core.meanStdDev(grayImg, buffers.mean, buffers.stdDev);
+
+        buffers.mean.get(0, 0, buffers.statistic);
+        double meanValue = buffers.statistic[0];
+        buffers.stdDev.get(0, 0, buffers.statistic);
+        double stdDevValue = buffers.statistic[0];
+
+        // Adapt Canny thresholds based on image statistics
+        buffers.cannyThreshold1 = parameters.cannyLow(meanValue, stdDevValue);
+        buffers.cannyThreshold2 = parameters.cannyHigh(meanValue, stdDevValue);
+    }
+
+    /**
+     * Finds the external contours of an edge image and checks whether any of them passes the
+     * area and aspect-ratio filters. The contours are released before returning.
+     * <p>
+     * Normally the search stops at the first accepted contour. When {@code buffers} is collecting
+     * boxes (see {@link #detect(BufferedImage)}), every accepted contour is recorded instead.
+     *
+     * @param edgesImg       The edge image to search.
+     * @param buffers        Working buffers providing the contour list and hierarchy.
+     * @param minContourArea The minimum area for a contour to be considered valid.
+     * @param offsetX        Horizontal position of {@code edgesImg} within the frame.
+     * @param offsetY        Vertical position of {@code edgesImg} within the frame.
+     * @return {@code true} if a plausible object contour was found.
+     */
+    private boolean findObjectContour(Mat edgesImg, DetectionBuffers buffers, double minContourArea,
+                                      int offsetX, int offsetY) {
+        long time = System.nanoTime();
+        List<MatOfPoint> contours = buffers.contours;
+        findContours(edgesImg, buffers);
 
         boolean objectFound = false;
+        try {
+            // Analyze each contour's size and shape (indexed loop avoids an Iterator per frame)
+            for (int i = 0; i < contours.size(); i++) {
+                MatOfPoint contour = contours.get(i);
+                double area = Imgproc.contourArea(contour);
+
+                // Skip contours that are too small
+                if (area < minContourArea) {
+                    continue;
+                }
+
+                // Extract bounding rectangle of the contour
+                Rect boundingRect = Imgproc.boundingRect(contour);
+
+                // Check if aspect ratio is within a reasonable range
+                if (parameters.isAcceptedAspectRatio(boundingRect.width, boundingRect.height)) {
+                    objectFound = true;
+                    if (buffers.collectedBoxes == null) {
+                        break;
+                    }
+                    addBox(buffers.collectedBoxes, new Rectangle(boundingRect.x + offsetX,
+                            boundingRect.y + offsetY, boundingRect.width, boundingRect.height), area);
+                }
+            }
+            return objectFound;
+        } finally {
+            buffers.releaseContours();
+            lap(buffers, Stage.CONTOURS, time);
+        }
+    }
+
+    /**
+     * Records an accepted contour, skipping it if it mostly overlaps a box that is already
+     * recorded (overlapping refinement regions can find the same contour twice).
+     */
+    private static void addBox(List<DetectionResult.Box> boxes, Rectangle bounds, double area) {
+        for (DetectionResult.Box box : boxes) {
+            Rectangle overlap = bounds.intersection(box.getBounds());
+            if (!overlap.isEmpty()) {
+                double smaller = Math.min(bounds.width * (double) bounds.height,
+                        box.getBounds().width * (double) box.getBounds().height);
+                if (overlap.width * (double) overlap.height > smaller / 2) {
+                    return;
+                }
+            }
+        }
+        boxes.add(new DetectionResult.Box(bounds, area, 1.0));
+    }
+
+    /**
+     * Adds the time elapsed since {@code since} to the given stage.
+     *
+     * @return the current time, to be used as the start of the next stage
+     */
+    private static long lap(DetectionBuffers buffers, Stage stage, long since) {
+        long now = System.nanoTime();
+        buffers.stageNanos[stage.ordinal()] += now - since;
+        return now;
+    }
 
-        // Analyze each contour's size and shape
-        for (MatOfPoint contour : contours) {
-            double area = org.opencv.imgproc.Imgproc.contourArea(contour);
+    /**
+     * Filters the coarse contours held in {@code buffers} and records the padded, full-resolution
+     * bounding box of each one that passes the (rescaled) filters in
+     * {@link DetectionBuffers#candidateRects}.
+     *
+     * @param buffers        Working buffers holding the coarse contours.
+     * @param minCoarseArea  The minimum contour area at the coarse scale.
+     * @param scale          The factor between the coarse and full-resolution images.
+     * @return the number of candidates found; may exceed {@link DetectionBuffers#MAX_CANDIDATES},
+     *         in which case only the first {@code MAX_CANDIDATES} were recorded
+     */
+    private int collectCandidates(DetectionBuffers buffers, double minCoarseArea, int scale) {
+        List<MatOfPoint> contours = buffers.contours;
+        int[] rects = buffers.candidateRects;
+        int padding = scale * 2 + REFINE_PADDING;
+        int count = 0;
 
-            // Skip contours that are too small
-            if (area < MIN_CONTOUR_AREA) {
+        for (int i = 0; i < contours.size(); i++) {
+            MatOfPoint contour = contours.get(i);
+            if (Imgproc.contourArea(contour) < minCoarseArea) {
                 continue;
             }
 
-            // Extract bounding rectangle of the contour
-            org.opencv.core.Rect boundingRect = org.opencv.imgproc.Imgproc.boundingRect(contour);
-            double aspectRatio = (double) boundingRect.width / boundingRect.height;
+            Rect boundingRect = Imgproc.boundingRect(contour);
+            if (!parameters.isAcceptedAspectRatio(boundingRect.width, boundingRect.height)) {
+                continue;
+            }
 
-            // Check if aspect ratio is within a reasonable range
-            if (aspectRatio >= MIN_ASPECT_RATIO && aspectRatio <= MAX_ASPECT_RATIO) {
-                objectFound = true;
-                break;
+            if (count < DetectionBuffers.MAX_CANDIDATES) {
+                // Scale back up to full resolution, pad, and clamp to the frame
+                int x0 = Math.max(0, boundingRect.x * scale - padding);
+                int y0 = Math.max(0, boundingRect.y * scale - padding);
+                int x1 = Math.min(buffers.width, (boundingRect.x + boundingRect.width) * scale + padding);
+                int y1 = Math.min(buffers.height, (boundingRect.y + boundingRect.height) * scale + padding);
+                rects[count * 4] = x0;
+                rects[count * 4 + 1] = y0;
+                rects[count * 4 + 2] = x1 - x0;
+                rects[count * 4 + 3] = y1 - y0;
             }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the external contours of an edge image into {@code buffers.contours}, counting the Mats
+     * OpenCV creates for them.
+     */
+    private void findContours(Mat edgesImg, DetectionBuffers buffers) {
+        Imgproc.findContours(edgesImg, buffers.contours, buffers.hierarchy,
+                Imgproc.RETR_EXTERNAL, Imgproc.CHAIN_APPROX_SIMPLE);
+        // One MatOfPoint per contour, plus the Mat the Java binding decodes them from
+        transientMats.add(buffers.contours.size() + 1);
+    }
+
+    /**
+     * Returns the number of OpenCV Mats this detector has created and released again within single
+     * frames: one per contour found and one per {@code findContours} call, which the Java binding
+     * allocates afresh every time, and four submat headers per region refined by the coarse-to-fine
+     * search. Pooling cannot avoid these, so unlike {@link #getPooledBufferAllocations()} this count
+     * keeps growing in steady state; divided by the number of frames, it is the remaining native
+     * allocation per frame.
+     *
+     * @return the number of transient Mats created so far
+     */
+    public long getTransientNativeMatCount() {
+        return transientMats.sum();
+    }
+
+    /**
+     * Returns the total number of working-buffer sets created by the pools of this detector.
+     * In steady state (a fixed set of frame shapes and threads) this value stops increasing,
+     * which shows that no further working buffers are being allocated per frame. Contours are
+     * still allocated per frame; see {@link #getTransientNativeMatCount()}.
+     *
+     * @return the number of pooled buffer sets allocated so far, or {@code 0} if pooling is disabled
+     */
+    public long getPooledBufferAllocations() {
+        long total = 0;
+        for (MatPool pool : pools) {
+            total += pool.getAllocations();
         }
+        return total;
+    }
 
-        // Optionally save the original (color) image if an object is detected
-        if (objectFound) {
-            org.opencv.imgcodecs.Imgcodecs.imwrite("detected_objects.jpg", mat);
+    /**
+     * Releases every pooled OpenCV buffer held by this detector. Must not be called while another
+     * thread is inside {@link #detectObject(BufferedImage)}. The detector remains usable afterwards
+     * and will lazily re-create its buffers.
+     */
+    @Override
+    public void close() {
+        for (MatPool pool : pools) {
+            pool.release();
         }
+    }
 
-        // Release resources to avoid memory leaks
-        grayImg.release();
-        thresholdImg.release();
-        edgesImg.release();
-        hierarchy.release();
-        mat.release();
+    /**
+     * Releases and unregisters the calling thread's pool. Used by short-lived batch workers so
+     * their buffers do not outlive them.
+     */
+    private void discardThreadPool() {
+        MatPool pool = threadPool.get();
+        pool.release();
+        pools.remove(pool);
+        threadPool.remove();
+    }
 
-        return objectFound;
+    /**
+     * Creates a pool for the calling thread and registers it for {@link #close()}.
+     *
+     * @return the new pool
+     */
+    private MatPool registerPool() {
+        MatPool pool = new MatPool();
+        pools.add(pool);
+        return pool;
     }
 
 }
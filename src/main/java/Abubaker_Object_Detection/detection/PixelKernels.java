@@ -0,0 +1,57 @@
+package Abubaker_Object_Detection.detection;
+
+/**
+ * The data-parallel loops of the {@link PureJavaObjectDetector} pipeline, implemented once with
+ * plain loops ({@link ScalarPixelKernels}) and once with the incubating Vector API
+ * ({@link VectorPixelKernels}).
+ * <p>
+ * All images are {@code int[]} arrays with a one-pixel border around the frame, laid out row by
+ * row with a row length of {@code stride = width + 2}; the frame pixel {@code (x, y)} is at index
+ * {@code (y + 1) * stride + x + 1}.
+ */
+interface PixelKernels {
+
+    /**
+     * Binarises an image: every value above {@code threshold} becomes 255, every other value 0.
+     *
+     * @param src       the source image
+     * @param dst       the destination image; may be the same array as {@code src}
+     * @param length    the number of array entries to process, starting at index 0
+     * @param threshold the threshold
+     */
+    void threshold(int[] src, int[] dst, int length, int threshold);
+
+    /**
+     * Computes the 3x3 Sobel derivatives of the frame pixels and their L1 magnitude
+     * ({@code |dx| + |dy|}). The border entries of the outputs are not written.
+     *
+     * @param src    the padded source image, with the border already filled in
+     * @param dx     receives the horizontal derivative
+     * @param dy     receives the vertical derivative
+     * @param mag    receives the gradient magnitude
+     * @param width  the frame width (without the border)
+     * @param height the frame height (without the border)
+     */
+    void sobel(int[] src, int[] dx, int[] dy, int[] mag, int width, int height);
+
+    /**
+     * Returns the Vector API kernels if they were compiled (the {@code vector} Maven profile), the
+     * {@code jdk.incubator.vector} module is available (the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}) and {@code preferVector} is set, otherwise the
+     * scalar kernels.
+     *
+     * @param preferVector whether to use the Vector API when it is available
+     * @return the kernels to use
+     */
+    static PixelKernels select(boolean preferVector) {
+        if (preferVector && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (PixelKernels) Class.forName("Abubaker_Object_Detection.detection.VectorPixelKernels")
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar kernels
+            }
+        }
+        return new ScalarPixelKernels();
+    }
+}
@@ -0,0 +1,590 @@
+package Abubaker_Object_Detection.detection;
+
+import Abubaker_Object_Detection.detection.DetectionResult.Stage;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link ObjectDetector} written in plain Java, without the OpenCV native library.
+ * <p>
+ * It follows the full-frame pipeline of {@link OpenCVObjectDetector} step by step:
+ * <ol>
+ *   <li>Converting the frame to greyscale (with OpenCV's BGR-to-grey weights).</li>
+ *   <li>Thresholding with Otsu's method.</li>
+ *   <li>Canny edge detection on the thresholded image (3x3 Sobel, L1 gradient magnitude,
+ *       non-maximum suppression and hysteresis), with the thresholds derived from the frame's
+ *       mean and standard deviation.</li>
+ *   <li>Tracing the external contours of the edges (Suzuki-Abe border following, as used by
+ *       OpenCV's {@code findContours} with {@code RETR_EXTERNAL}).</li>
+ *   <li>Filtering the contours by area and aspect ratio.</li>
+ * </ol>
+ * The same {@link DetectorParameters} are honoured, except the pyramid depth (this detector
+ * always searches the full frame) and debug images (none are written). Because it needs no
+ * native library, it starts instantly and runs in headless tools and on platforms without an
+ * OpenCV build.
+ * <p>
+ * All working images are {@code int[]} arrays kept per thread and reused for every frame of the
+ * same size, so steady-state detection allocates almost nothing. The thresholding and Sobel
+ * loops run on the incubating Vector API when the build includes the Vector API kernels (the
+ * {@code vector} Maven profile) and the JVM is started with
+ * {@code --add-modules jdk.incubator.vector}, and on plain loops otherwise (see
+ * {@link #isVectorized()}). This class is thread-safe.
+ */
+public class PureJavaObjectDetector implements ObjectDetector {
+
+    /** Offsets of the 8 neighbours, clockwise (with y pointing down) starting east. */
+    private static final int[] NEIGHBOUR_X = {1, 1, 0, -1, -1, -1, 0, 1};
+    private static final int[] NEIGHBOUR_Y = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    /** tan(22.5 degrees) and tan(67.5 degrees), scaled by 100000, for non-maximum suppression. */
+    private static final long TAN_22_5 = 41421;
+    private static final long TAN_67_5 = 241421;
+
+    /**
+     * Working images for one frame size, confined to one thread. Every image has a one-pixel
+     * border (see {@link PixelKernels}).
+     */
+    private static final class Workspace {
+        final int width;
+        final int height;
+        final int stride;
+        final int[] gray;
+        final int[] binary;
+        final int[] dx;
+        final int[] dy;
+        final int[] magnitude;
+
+        /** Edge map, then contour labels: 0 background, 1 unlabelled edge, other values border numbers. */
+        final int[] labels;
+
+        final int[] histogram = new int[256];
+        final int[] row;
+        int[] stack = new int[1024];
+
+        /** Per border number: whether it is an outer border, and its parent border. */
+        boolean[] outer = new boolean[256];
+        int[] parent = new int[256];
+
+        Workspace(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.stride = width + 2;
+            int length = stride * (height + 2);
+            gray = new int[length];
+            binary = new int[length];
+            dx = new int[length];
+            dy = new int[length];
+            magnitude = new int[length];
+            labels = new int[length];
+            row = new int[width];
+        }
+
+        boolean matches(int width, int height) {
+            return this.width == width && this.height == height;
+        }
+
+        void push(int index, int size) {
+            if (size == stack.length) {
+                stack = Arrays.copyOf(stack, size * 2);
+            }
+            stack[size] = index;
+        }
+
+        void ensureBorders(int count) {
+            if (count >= outer.length) {
+                outer = Arrays.copyOf(outer, count * 2);
+                parent = Arrays.copyOf(parent, count * 2);
+            }
+        }
+    }
+
+    private final DetectorParameters parameters;
+    private final PixelKernels kernels;
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<>();
+
+    /**
+     * Creates a detector with the default parameters, using the Vector API when available.
+     */
+    public PureJavaObjectDetector() {
+        this(DetectorParameters.DEFAULT, true);
+    }
+
+    /**
+     * Creates a detector.
+     *
+     * @param parameters   the filter and threshold settings
+     * @param useVectorApi {@code true} to use the Vector API when it is available, {@code false}
+     *                     to always use plain loops
+     */
+    public PureJavaObjectDetector(DetectorParameters parameters, boolean useVectorApi) {
+        this.parameters = parameters;
+        this.kernels = PixelKernels.select(useVectorApi);
+    }
+
+    /** @return {@code true} if the Vector API kernels are in use */
+    public boolean isVectorized() {
+        return !(kernels instanceof ScalarPixelKernels);
+    }
+
+    /** @return the pipeline parameters used by this detector */
+    public DetectorParameters getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Analyses the image and stops at the first contour that passes the filters.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return {@code true} if an object is detected
+     */
+    @Override
+    public boolean detectObject(BufferedImage image) {
+        return run(image, null, new long[Stage.values().length], new double[2]);
+    }
+
+    /**
+     * Analyses the image and reports every contour that passes the filters.
+     *
+     * @param image A {@link BufferedImage} on which detection is performed.
+     * @return the detection result
+     */
+    @Override
+    public DetectionResult detect(BufferedImage image) {
+        long start = System.nanoTime();
+        List<DetectionResult.Box> boxes = new ArrayList<>();
+        long[] stageNanos = new long[Stage.values().length];
+        double[] canny = new double[2];
+        boolean objectFound = run(image, boxes, stageNanos, canny);
+        return new DetectionResult(objectFound, boxes, canny[0], canny[1], stageNanos,
+                System.nanoTime() - start, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Runs the pipeline.
+     *
+     * @param boxes      receives every accepted contour, or {@code null} to stop at the first one
+     * @param stageNanos receives the time spent per stage
+     * @param canny      receives the lower and upper Canny thresholds
+     */
+    private boolean run(BufferedImage image, List<DetectionResult.Box> boxes, long[] stageNanos, double[] canny) {
+        Workspace ws = workspace(image.getWidth(), image.getHeight());
+        int length = ws.gray.length;
+
+        long time = System.nanoTime();
+        loadGray(image, ws);
+        time = lap(stageNanos, Stage.CONVERSION, time);
+
+        // Histogram of the frame gives the mean, standard deviation and Otsu threshold in one pass
+        Arrays.fill(ws.histogram, 0);
+        for (int y = 1; y <= ws.height; y++) {
+            int rowStart = y * ws.stride + 1;
+            for (int i = rowStart; i < rowStart + ws.width; i++) {
+                ws.histogram[ws.gray[i]]++;
+            }
+        }
+        long pixels = (long) ws.width * ws.height;
+        double sum = 0;
+        double sumSquares = 0;
+        for (int v = 0; v < 256; v++) {
+            sum += (double) v * ws.histogram[v];
+            sumSquares += (double) v * v * ws.histogram[v];
+        }
+        double mean = sum / pixels;
+        double stdDev = Math.sqrt(Math.max(0, sumSquares / pixels - mean * mean));
+        canny[0] = parameters.cannyLow(mean, stdDev);
+        canny[1] = parameters.cannyHigh(mean, stdDev);
+        double minContourArea = parameters.minContourArea(ws.width, ws.height);
+        int otsu = otsuThreshold(ws.histogram, pixels);
+        time = lap(stageNanos, Stage.STATISTICS, time);
+
+        kernels.threshold(ws.gray, ws.binary, length, otsu);
+        time = lap(stageNanos, Stage.THRESHOLD, time);
+
+        kernels.sobel(ws.binary, ws.dx, ws.dy, ws.magnitude, ws.width, ws.height);
+        suppressAndLink(ws, canny[0], canny[1]);
+        time = lap(stageNanos, Stage.EDGES, time);
+
+        boolean objectFound = traceExternalContours(ws, minContourArea, boxes);
+        lap(stageNanos, Stage.CONTOURS, time);
+        return objectFound;
+    }
+
+    /**
+     * Returns this thread's workspace, replacing it if the frame size changed.
+     */
+    private Workspace workspace(int width, int height) {
+        Workspace ws = workspaces.get();
+        if (ws == null || !ws.matches(width, height)) {
+            ws = new Workspace(width, height);
+            workspaces.set(ws);
+        }
+        return ws;
+    }
+
+    /**
+     * Copies the frame into the padded grey image and replicates its edge pixels into the border,
+     * like OpenCV's default Sobel border handling in Canny.
+     */
+    private static void loadGray(BufferedImage image, Workspace ws) {
+        int width = ws.width;
+        int height = ws.height;
+        int stride = ws.stride;
+        int[] gray = ws.gray;
+        Raster raster = image.getRaster();
+
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] data = packedGrayBytes(raster, width, height);
+            for (int y = 0; y < height; y++) {
+                int out = (y + 1) * stride + 1;
+                if (data != null) {
+                    int in = y * width;
+                    for (int x = 0; x < width; x++) {
+                        gray[out + x] = data[in + x] & 0xFF;
+                    }
+                } else {
+                    raster.getSamples(0, y, width, 1, 0, ws.row);
+                    System.arraycopy(ws.row, 0, gray, out, width);
+                }
+            }
+        } else {
+            int[] row = ws.row;
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                int out = (y + 1) * stride + 1;
+                for (int x = 0; x < width; x++) {
+                    int rgb = row[x];
+                    // OpenCV's fixed-point BGR2GRAY weights (0.299, 0.587, 0.114)
+                    gray[out + x] = (((rgb >> 16) & 0xFF) * 4899 + ((rgb >> 8) & 0xFF) * 9617
+                            + (rgb & 0xFF) * 1868 + 8192) >> 14;
+                }
+            }
+        }
+
+        // Replicate the outermost rows and columns into the border
+        System.arraycopy(gray, stride, gray, 0, stride);
+        System.arraycopy(gray, height * stride, gray, (height + 1) * stride, stride);
+        for (int y = 0; y < height + 2; y++) {
+            gray[y * stride] = gray[y * stride + 1];
+            gray[y * stride + width + 1] = gray[y * stride + width];
+        }
+    }
+
+    /**
+     * @return the raster's bytes if they are tightly packed, one byte per pixel, otherwise {@code null}
+     */
+    private static byte[] packedGrayBytes(Raster raster, int width, int height) {
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)
+                || !(raster.getSampleModel() instanceof ComponentSampleModel)) {
+            return null;
+        }
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+        boolean packed = buffer.getNumBanks() == 1
+                && buffer.getOffset() == 0
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && model.getPixelStride() == 1
+                && model.getScanlineStride() == width
+                && buffer.getData().length == width * height;
+        return packed ? buffer.getData() : null;
+    }
+
+    /**
+     * Otsu's method: the threshold that maximises the between-class variance of the histogram.
+     * Pixels above the returned value belong to the bright class.
+     */
+    private static int otsuThreshold(int[] histogram, long pixels) {
+        double total = 0;
+        for (int v = 0; v < 256; v++) {
+            total += (double) v * histogram[v];
+        }
+
+        double backgroundSum = 0;
+        long backgroundCount = 0;
+        double bestVariance = -1;
+        int best = 0;
+        for (int t = 0; t < 256; t++) {
+            backgroundCount += histogram[t];
+            if (backgroundCount == 0) {
+                continue;
+            }
+            long foregroundCount = pixels - backgroundCount;
+            if (foregroundCount == 0) {
+                break;
+            }
+            backgroundSum += (double) t * histogram[t];
+            double backgroundMean = backgroundSum / backgroundCount;
+            double foregroundMean = (total - backgroundSum) / foregroundCount;
+            double difference = backgroundMean - foregroundMean;
+            double variance = (double) backgroundCount * foregroundCount * difference * difference;
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = t;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The second half of Canny: keeps pixels whose gradient magnitude is a local maximum across
+     * the edge and exceeds the lower threshold, then keeps only those connected to a pixel above
+     * the upper threshold. Writes 1 for edge pixels and 0 elsewhere into {@code ws.labels}.
+     */
+    private static void suppressAndLink(Workspace ws, double threshold1, double threshold2) {
+        int low = (int) Math.floor(Math.min(threshold1, threshold2));
+        int high = (int) Math.floor(Math.max(threshold1, threshold2));
+        int stride = ws.stride;
+        int[] magnitude = ws.magnitude;
+        int[] dx = ws.dx;
+        int[] dy = ws.dy;
+        int[] edges = ws.labels;
+        Arrays.fill(edges, 0);
+
+        // Non-maximum suppression: 1 marks a strong edge, 2 a weak candidate
+        int stackSize = 0;
+        for (int y = 1; y <= ws.height; y++) {
+            int rowStart = y * stride + 1;
+            for (int i = rowStart; i < rowStart + ws.width; i++) {
+                int m = magnitude[i];
+                if (m <= low) {
+                    continue;
+                }
+                long ax = Math.abs(dx[i]);
+                long ay = Math.abs(dy[i]);
+                boolean isMaximum;
+                if (ay * 100000 < ax * TAN_22_5) {
+                    isMaximum = m > magnitude[i - 1] && m >= magnitude[i + 1];
+                } else if (ay * 100000 > ax * TAN_67_5) {
+                    isMaximum = m > magnitude[i - stride] && m >= magnitude[i + stride];
+                } else {
+                    int s = (dx[i] ^ dy[i]) < 0 ? -1 : 1;
+                    isMaximum = m > magnitude[i - stride - s] && m > magnitude[i + stride + s];
+                }
+                if (!isMaximum) {
+                    continue;
+                }
+                if (m > high) {
+                    edges[i] = 1;
+                    ws.push(i, stackSize++);
+                } else {
+                    edges[i] = 2;
+                }
+            }
+        }
+
+        // Hysteresis: grow strong edges into connected weak candidates
+        while (stackSize > 0) {
+            int i = ws.stack[--stackSize];
+            for (int d = 0; d < 8; d++) {
+                int neighbour = i + NEIGHBOUR_Y[d] * stride + NEIGHBOUR_X[d];
+                if (edges[neighbour] == 2) {
+                    edges[neighbour] = 1;
+                    ws.push(neighbour, stackSize++);
+                }
+            }
+        }
+
+        // Drop the weak candidates that were never reached
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i] == 2) {
+                edges[i] = 0;
+            }
+        }
+    }
+
+    /**
+     * Follows every border of the edge map with the Suzuki-Abe algorithm and checks each
+     * external contour (an outer border not enclosed by another border) against the area and
+     * aspect-ratio filters. The edge map is relabelled in place.
+     *
+     * @param boxes receives every accepted contour, or {@code null} to stop at the first one
+     * @return {@code true} if a contour passes the filters
+     */
+    private boolean traceExternalContours(Workspace ws, double minContourArea, List<DetectionResult.Box> boxes) {
+        int stride = ws.stride;
+        int[] f = ws.labels;
+        int[] offsets = new int[8];
+        for (int d = 0; d < 8; d++) {
+            offsets[d] = NEIGHBOUR_Y[d] * stride + NEIGHBOUR_X[d];
+        }
+
+        // Border 1 is the frame, which counts as a hole
+        int nbd = 1;
+        ws.outer[1] = false;
+        ws.parent[1] = 0;
+        boolean objectFound = false;
+
+        for (int y = 1; y <= ws.height; y++) {
+            int lnbd = 1;
+            int rowStart = y * stride + 1;
+            for (int i = rowStart; i < rowStart + ws.width; i++) {
+                int value = f[i];
+                if (value == 0) {
+                    continue;
+                }
+
+                boolean isOuter;
+                int from;
+                if (value == 1 && f[i - 1] == 0) {
+                    isOuter = true;
+                    from = 4;
+                } else if (value >= 1 && f[i + 1] == 0) {
+                    isOuter = false;
+                    from = 0;
+                    if (value > 1) {
+                        lnbd = value;
+                    }
+                } else {
+                    if (value != 1) {
+                        lnbd = Math.abs(value);
+                    }
+                    continue;
+                }
+
+                nbd++;
+                ws.ensureBorders(nbd);
+                ws.outer[nbd] = isOuter;
+                ws.parent[nbd] = isOuter == ws.outer[lnbd] ? ws.parent[lnbd] : lnbd;
+
+                boolean external = isOuter && ws.parent[nbd] == 1;
+                if (followBorder(ws, i, from, nbd, offsets, external, minContourArea, boxes)) {
+                    objectFound = true;
+                    if (boxes == null) {
+                        return true;
+                    }
+                }
+
+                if (f[i] != 1) {
+                    lnbd = Math.abs(f[i]);
+                }
+            }
+        }
+        return objectFound;
+    }
+
+    /**
+     * Follows one border starting at {@code start}, labelling its pixels with {@code nbd}.
+     * For external borders, also computes the contour's area (shoelace formula over the border
+     * pixel centres, as OpenCV's {@code contourArea}) and bounding box and applies the filters.
+     *
+     * @param from the direction from {@code start} to the background pixel that revealed the border
+     * @return {@code true} if the border is external and passes the filters
+     */
+    private boolean followBorder(Workspace ws, int start, int from, int nbd, int[] offsets, boolean external,
+                                 double minContourArea, List<DetectionResult.Box> boxes) {
+        int[] f = ws.labels;
+        int stride = ws.stride;
+
+        // Step 3.1: look clockwise around the start for a non-zero pixel
+        int first = -1;
+        int firstDirection = -1;
+        for (int k = 0; k < 8; k++) {
+            int d = (from + k) & 7;
+            if (f[start + offsets[d]] != 0) {
+                first = start + offsets[d];
+                firstDirection = d;
+                break;
+            }
+        }
+        if (first < 0) {
+            // An isolated pixel: a contour with zero area
+            f[start] = -nbd;
+            return false;
+        }
+
+        int startX = start % stride;
+        int startY = start / stride;
+        int minX = startX;
+        int maxX = startX;
+        int minY = startY;
+        int maxY = startY;
+        long twiceArea = 0;
+
+        int previousDirection = firstDirection;
+        int current = start;
+        int currentX = startX;
+        int currentY = startY;
+        while (true) {
+            // Step 3.3: look counter-clockwise around the current pixel, starting after the previous one
+            int backDirection = previousDirection;
+            boolean eastExaminedAndZero = false;
+            int next = -1;
+            int nextDirection = -1;
+            for (int k = 1; k <= 8; k++) {
+                int d = (backDirection - k) & 7;
+                int candidate = current + offsets[d];
+                if (f[candidate] != 0) {
+                    next = candidate;
+                    nextDirection = d;
+                    break;
+                }
+                if (d == 0) {
+                    eastExaminedAndZero = true;
+                }
+            }
+
+            // Step 3.4: label the current pixel
+            if (eastExaminedAndZero) {
+                f[current] = -nbd;
+            } else if (f[current] == 1) {
+                f[current] = nbd;
+            }
+
+            // Step 3.5: stop once the border closes
+            if (next == start && current == first) {
+                break;
+            }
+
+            int nextX = currentX + NEIGHBOUR_X[nextDirection];
+            int nextY = currentY + NEIGHBOUR_Y[nextDirection];
+            if (external) {
+                twiceArea += (long) currentX * nextY - (long) nextX * currentY;
+                minX = Math.min(minX, nextX);
+                maxX = Math.max(maxX, nextX);
+                minY = Math.min(minY, nextY);
+                maxY = Math.max(maxY, nextY);
+            }
+            // The direction from the next pixel back to the current one
+            previousDirection = (nextDirection + 4) & 7;
+            current = next;
+            currentX = nextX;
+            currentY = nextY;
+        }
+
+        if (!external) {
+            return false;
+        }
+        // Close the polygon back to the start
+        twiceArea += (long) currentX * startY - (long) startX * currentY;
+
+        double area = Math.abs(twiceArea) / 2.0;
+        int width = maxX - minX + 1;
+        int height = maxY - minY + 1;
+        if (area < minContourArea || !parameters.isAcceptedAspectRatio(width, height)) {
+            return false;
+        }
+        if (boxes != null) {
+            // Workspace coordinates include the one-pixel border
+            boxes.add(new DetectionResult.Box(new Rectangle(minX - 1, minY - 1, width, height), area, 1.0));
+        }
+        return true;
+    }
+
+    /**
+     * Adds the time elapsed since {@code since} to the given stage.
+     *
+     * @return the current time, to be used as the start of the next stage
+     */
+    private static long lap(long[] stageNanos, Stage stage, long since) {
+        long now = System.nanoTime();
+        stageNanos[stage.ordinal()] += now - since;
+        return now;
+    }
+}
@@ -0,0 +1,34 @@
+package Abubaker_Object_Detection.detection;
+
+/**
+ * Plain-loop implementation of {@link PixelKernels}, used when the Vector API is unavailable.
+ * The loops are simple enough for the JIT to auto-vectorise some of them.
+ */
+final class ScalarPixelKernels implements PixelKernels {
+
+    @Override
+    public void threshold(int[] src, int[] dst, int length, int threshold) {
+        for (int i = 0; i < length; i++) {
+            dst[i] = src[i] > threshold ? 255 : 0;
+        }
+    }
+
+    @Override
+    public void sobel(int[] src, int[] dx, int[] dy, int[] mag, int width, int height) {
+        int stride = width + 2;
+        for (int y = 1; y <= height; y++) {
+            int row = y * stride;
+            for (int i = row + 1; i <= row + width; i++) {
+                int above = i - stride;
+                int below = i + stride;
+                int gx = (src[above + 1] + 2 * src[i + 1] + src[below + 1])
+                        - (src[above - 1] + 2 * src[i - 1] + src[below - 1]);
+                int gy = (src[below - 1] + 2 * src[below] + src[below + 1])
+                        - (src[above - 1] + 2 * src[above] + src[above + 1]);
+                dx[i] = gx;
+                dy[i] = gy;
+                mag[i] = Math.abs(gx) + Math.abs(gy);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package Abubaker_Object_Detection.detection;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link PixelKernels} implemented with the incubating Vector API, processing as many pixels per
+ * instruction as the CPU's preferred vector width allows (e.g. 8 ints with AVX2, 4 with NEON).
+ * <p>
+ * This class is only loaded through {@link PixelKernels#select(boolean)} once the
+ * {@code jdk.incubator.vector} module is known to be present, so JVMs started without
+ * {@code --add-modules jdk.incubator.vector} never touch it.
+ */
+final class VectorPixelKernels implements PixelKernels {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    @Override
+    public void threshold(int[] src, int[] dst, int length, int threshold) {
+        IntVector white = IntVector.broadcast(SPECIES, 255);
+        IntVector black = IntVector.zero(SPECIES);
+        int i = 0;
+        int bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Integer> above = IntVector.fromArray(SPECIES, src, i).compare(VectorOperators.GT, threshold);
+            black.blend(white, above).intoArray(dst, i);
+        }
+        for (; i < length; i++) {
+            dst[i] = src[i] > threshold ? 255 : 0;
+        }
+    }
+
+    @Override
+    public void sobel(int[] src, int[] dx, int[] dy, int[] mag, int width, int height) {
+        int stride = width + 2;
+        int lanes = SPECIES.length();
+        for (int y = 1; y <= height; y++) {
+            int start = y * stride + 1;
+            int end = start + width;
+            int i = start;
+            for (; i + lanes <= end; i += lanes) {
+                int above = i - stride;
+                int below = i + stride;
+                IntVector aboveLeft = IntVector.fromArray(SPECIES, src, above - 1);
+                IntVector aboveMid = IntVector.fromArray(SPECIES, src, above);
+                IntVector aboveRight = IntVector.fromArray(SPECIES, src, above + 1);
+                IntVector left = IntVector.fromArray(SPECIES, src, i - 1);
+                IntVector right = IntVector.fromArray(SPECIES, src, i + 1);
+                IntVector belowLeft = IntVector.fromArray(SPECIES, src, below - 1);
+                IntVector belowMid = IntVector.fromArray(SPECIES, src, below);
+                IntVector belowRight = IntVector.fromArray(SPECIES, src, below + 1);
+
+                IntVector gx = aboveRight.add(right.lanewise(VectorOperators.LSHL, 1)).add(belowRight)
+                        .sub(aboveLeft.add(left.lanewise(VectorOperators.LSHL, 1)).add(belowLeft));
+                IntVector gy = belowLeft.add(belowMid.lanewise(VectorOperators.LSHL, 1)).add(belowRight)
+                        .sub(aboveLeft.add(aboveMid.lanewise(VectorOperators.LSHL, 1)).add(aboveRight));
+                gx.intoArray(dx, i);
+                gy.intoArray(dy, i);
+                gx.abs().add(gy.abs()).intoArray(mag, i);
+            }
+
+            // Remaining pixels of the row
+            for (; i < end; i++) {
+                int above = i - stride;
+                int below = i + stride;
+                int gx = (src[above + 1] + 2 * src[i + 1] + src[below + 1])
+                        - (src[above - 1] + 2 * src[i - 1] + src[below - 1]);
+                int gy = (src[below - 1] + 2 * src[below] + src[below + 1])
+                        - (src[above - 1] + 2 * src[above] + src[above + 1]);
+                dx[i] = gx;
+                dy[i] = gy;
+                mag[i] = Math.abs(gx) + Math.abs(gy);
+            }
+        }
+    }
+}
@@ -1,15 +1,21 @@
 package Abubaker_Object_Detection.main;
 
 import bot.*;
-import nu.pattern.OpenCV;
 import Abubaker_Object_Detection.orchestrator.*;
 import Abubaker_Object_Detection.detection.*;
+import Abubaker_Object_Detection.selection.NativeQRCodeScanner;
 import Abubaker_Object_Detection.selection.OpenCVQRCodeScanner;
 import Abubaker_Object_Detection.selection.QRCodeScanner;
+import Abubaker_Object_Detection.selection.RacingQRCodeScanner;
+import Abubaker_Object_Detection.selection.ZxingQRCodeScanner;
+import Abubaker_Object_Detection.util.AsyncImageWriter;
+import Abubaker_Object_Detection.util.OpenCVLoader;
 import swiftbot.Button;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -38,23 +44,58 @@ public class DetectObject implements Runnable{
     public void run() {
 
         // Load the local OpenCV native library. This allows OpenCV-based functionality
-        // (e.g., image processing and detection) to work properly.
-        OpenCV.loadLocally();
-
-        // Create a QR code scanner using OpenCV. This allows for identifying
-        // and decoding QR codes in captured images.
-        QRCodeScanner qrCodeScanner = new OpenCVQRCodeScanner();
+        // (e.g., image processing and detection) to work properly. The library is loaded
+        // once per process; later calls from the scanner and detectors return immediately.
+        OpenCVLoader.ensureLoaded();
+
+        // Create a QR code scanner that races several decoders on every captured image and
+        // takes the first result. OpenCV only decodes frames once a code is detected, and
+        // searches for a code held in place around where it was last seen; the SwiftBot's
+        // native decoder and ZXing run alongside it.
+        Map<String, QRCodeScanner> decoders = new LinkedHashMap<>();
+        OpenCVQRCodeScanner openCVScanner = new OpenCVQRCodeScanner(true);
+        decoders.put("opencv", openCVScanner);
+        decoders.put("native", new NativeQRCodeScanner(botController));
+        decoders.put("zxing", new ZxingQRCodeScanner());
+        RacingQRCodeScanner racingScanner = new RacingQRCodeScanner(decoders);
+        QRCodeScanner qrCodeScanner = racingScanner;
+
+        // Save encounter photos and debug images on a background thread so that
+        // neither detection nor the behaviours wait for the SD card.
+        AsyncImageWriter imageWriter = new AsyncImageWriter();
 
         // Create an ObjectDetector instance for detecting objects around the SwiftBot.
-        // The dummy image is initially passed in as a placeholder, as some
-        // implementations require an image upon construction.
-        ObjectDetector objectDetector = new OpenCVObjectDetector(new BufferedImage(1,1,1));
+        // Pooled buffers are used so the wander loop does not allocate new OpenCV
+        // working memory for every captured frame.
+        // The detector is wrapped in a frame-difference gate, so near-identical frames captured
+        // while idling or turning on the spot reuse the previous verdict.
+        OpenCVObjectDetector openCVDetector = new OpenCVObjectDetector(true, imageWriter);
+        FrameGatingObjectDetector gatedDetector = new FrameGatingObjectDetector(openCVDetector);
+        ObjectDetector objectDetector = gatedDetector;
+
+        // Warm up the detector and the QR scanner before the first real frame, so the JIT,
+        // OpenCV's internal initialisation and the pooled buffers are ready when mode
+        // selection starts. The detector is warmed up directly rather than through the gate,
+        // which would otherwise reuse verdicts and report warm-up frames in its statistics,
+        // and on empty frames only, so no debug images of synthetic objects are saved.
+        VisionWarmUp.Report warmUp = new VisionWarmUp(
+                openCVDetector, qrCodeScanner, VisionWarmUp.DEFAULT_ITERATIONS, false).run();
+        System.out.println(warmUp);
+
+        // All hardware calls, from this thread, the behaviours and button handlers alike, run on a
+        // single dispatcher thread, with stops overtaking queued camera and sensor work.
+        DispatchingBotController hardware = new DispatchingBotController(botController);
+
+        // Motor and underlight commands from the behaviours go through a coalescing layer, so
+        // commands repeated on every loop iteration (e.g. moveForward() while approaching) and
+        // bursts of LED changes do not each become a hardware write.
+        CoalescingBotController actuators = new CoalescingBotController(hardware);
 
         // Instantiate an orchestrator that coordinates the bot controller,
         // QR code scanner, and object detector to define higher-level behaviours
         // and logic flows.
         BotOrchestrator orchestrator = new BotOrchestrator(
-                botController, qrCodeScanner, objectDetector
+                actuators, qrCodeScanner, objectDetector, imageWriter
         );
 
         // The 'behaviour' integer is used as a mode selector within the application.
@@ -114,14 +155,17 @@ public class DetectObject implements Runnable{
         String mode = "Default";
         // (HINDSIGHT: Mode should really be an enum, but refactor skipped due to time constraints)
 
-        // Allow a 3-second window for scanning. If a matching QR code is found,
-        // an appropriate mode is selected, and the loop ends.
-        long endTime = System.currentTimeMillis() + 3000;
+        // Allow a 9-second window for scanning. Every attempt races all decoders on the
+        // same still, so the OpenCV and native decoders no longer take turns. Each attempt
+        // starts with a 480x480 preview; a 1080x1080 still is only captured when OpenCV
+        // spots a code in the preview that cannot be read at that size.
+        // If a matching QR code is found, an appropriate mode is selected, and the loop ends.
+        long endTime = System.currentTimeMillis() + 9000;
         while (System.currentTimeMillis() < endTime) {
 
             // Continuously attempt to scan for a QR code until
             // a non-empty result is returned or timeout occurs.
-            String scanned = orchestrator.scanQRCode();
+            String scanned = orchestrator.scanQRCodeProgressively(openCVScanner);
 
             // If a "Curious SwiftBot" QR code is scanned, set behaviour to 0.
             if ("Curious SwiftBot".equals(scanned)) {
@@ -152,35 +196,15 @@ public class DetectObject implements Runnable{
 
         }
 
-        // If still in Default mode after the first attempt, allow another
-        // 6-second window, but this time decode images directly using SwiftBotAPI.
-        endTime = System.currentTimeMillis() + 6000;
-        while (System.currentTimeMillis() < endTime && mode.equals("Default")) {
-
-            // Manually capture and decode a still image of size 1080x1080.
-            String scanned = botController.decodeQRImageNatively(botController.takeHighQualityPicture());
-
-            if ("Curious SwiftBot".equals(scanned)) {
-                //behaviour = 0;
-                mode = "Curious";
-                break;
-            } else if ("Scaredy SwiftBot".equals(scanned)) {
-                behaviour = 1;
-                mode = "Scaredy";
-                break;
-            } else if ("Dubious SwiftBot".equals(scanned)) {
-                behaviour = new Random().nextInt(2);
-                mode = "Dubious";
-                break;
-            }
-            try {
-                Thread.sleep(1500);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
+        // Report how often the preview was enough, which decoders read the code, and how quickly.
+        System.out.println("QR previews without a code: " + orchestrator.getPreviewRejectionCount()
+                + ", decoded from preview: " + orchestrator.getPreviewDecodeCount()
+                + ", full-resolution captures: " + orchestrator.getFullResolutionCaptureCount());
+        for (RacingQRCodeScanner.DecoderStatistics statistics : racingScanner.getStatistics()) {
+            System.out.println("QR decoder " + statistics);
         }
 
-        // If the mode is still "Default" after both scans, set the mode
+        // If the mode is still "Default" after scanning, set the mode
         // to "Dubious SwiftBot" to avoid indefinite stalling.
         if (mode.equals("Default")) {
             behaviour = new Random().nextInt(2);
@@ -206,7 +230,7 @@ public class DetectObject implements Runnable{
 
         // Enable a button on the SwiftBot (Button.X) to allow terminating the
         // program. Once pressed, the loop condition is set to -1 to break out.
-        botController.enableButton(Button.X, () -> {
+        hardware.enableButton(Button.X, () -> {
         	//System.out.println("Profession!");
             i.set(-1);
             Thread.currentThread().interrupt();
@@ -215,6 +239,16 @@ public class DetectObject implements Runnable{
 
         });
 
+        // Capture greyscale frames and sample the ultrasound sensor in the background while
+        // wandering, so an encounter can be checked with a frame that is already available and
+        // distance checks do not wait for a sensor round trip. The capture and sampling threads
+        // belong to the wrapped controller, but their camera and sensor calls still run on the
+        // hardware dispatcher.
+        if (botController instanceof SwiftBotController) {
+            ((SwiftBotController) botController).startContinuousCapture();
+            ((SwiftBotController) botController).startUltrasoundSampling(50, 100);
+        }
+
         int wanderState;
         // Main loop that runs until i is decremented to 0 or set to -1 by user input.
         while(i.get() > 0) {
@@ -259,7 +293,23 @@ public class DetectObject implements Runnable{
         long duration = (endTime - startTime) / 1000;
 
         // Disable all buttons to prevent unintended inputs once main loop finishes.
-        botController.disableAllButtons();
+        hardware.disableAllButtons();
+
+        // Stop the background capture and sampling started for the wander loop.
+        if (botController instanceof SwiftBotController) {
+            ((SwiftBotController) botController).stopContinuousCapture();
+            ((SwiftBotController) botController).stopUltrasoundSampling();
+        }
+
+        // Report how much detection work the frame gate saved during the session.
+        System.out.println("Detection frames reused: " + gatedDetector.getHitCount() + " of "
+                + (gatedDetector.getHitCount() + gatedDetector.getMissCount())
+                + " (~" + gatedDetector.getEstimatedSavedNanos() / 1_000_000 + " ms saved)");
+
+        // Report how many motor and underlight writes the coalescing layer saved.
+        actuators.close();
+        System.out.println("Actuator writes: " + actuators.getBusWriteCount() + " of "
+                + actuators.getRequestedWriteCount() + " sent (" + actuators.getSavedWriteCount() + " saved)");
 
         // Signal the orchestrator that the program is terminating, allowing it
         // to clean up resources or stop any running threads.
@@ -269,7 +319,7 @@ public class DetectObject implements Runnable{
         System.out.println("Would you like to view the execution log? Press 'Y' on the SwiftBot for yes and 'X' on the SwiftBot for no.");
 
         // Enabling Button.X to skip log display and simply print the default message.
-        botController.enableButton(Button.X, () -> {
+        hardware.enableButton(Button.X, () -> {
             System.out.println("Log File Path: /data/home/pi");
             buttonTrigger.set(true);
         });
@@ -278,7 +328,7 @@ public class DetectObject implements Runnable{
         // number of encounters, and file paths.
         int finalNumEncounters = numEncounters;
         String finalMode = mode;
-        botController.enableButton(Button.Y, () -> {
+        hardware.enableButton(Button.Y, () -> {
             System.out.println();
             System.out.println("+----------------------------------+------------------------------------------------+");
             System.out.println("| SwiftBot Mode                    | "+ finalMode + "                                       |");
@@ -326,7 +376,11 @@ public class DetectObject implements Runnable{
 
         // Disable all buttons before final exit to avoid leftover handlers
         // and release resources on the SwiftBot.
-        botController.disableAllButtons();
+        hardware.disableAllButtons();
+
+        // Report how long hardware calls waited for the dispatcher, then stop it.
+        System.out.println("Hardware dispatch latency: " + hardware.getStopLatency() + ", " + hardware.getWorkLatency());
+        hardware.close();
 
         // Exit the application with a status code of 0 (successful termination).
         //System.exit(0);
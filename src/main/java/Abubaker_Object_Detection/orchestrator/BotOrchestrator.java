@@ -2,15 +2,21 @@ package Abubaker_Object_Detection.orchestrator;
 
 import bot.BotController;
 import Abubaker_Object_Detection.detection.ObjectDetector;
+import Abubaker_Object_Detection.selection.QRCodeLocator;
 import Abubaker_Object_Detection.selection.QRCodeScanner;
 import Abubaker_Object_Detection.behaviour.Behaviour;
 import Abubaker_Object_Detection.behaviour.CuriousBehaviour;
 import Abubaker_Object_Detection.behaviour.ScaredyBehaviour;
 import Abubaker_Object_Detection.behaviour.WanderBehaviour;
+import Abubaker_Object_Detection.util.AsyncImageWriter;
 import Abubaker_Object_Detection.util.Logger;
 //import org.bytedeco.openblas.*;
 
+import swiftbot.ImageSize;
+
 import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The {@code BotOrchestrator} class is responsible for coordinating high-level operations
@@ -28,6 +34,11 @@ import java.awt.image.BufferedImage;
  */
 public class BotOrchestrator {
 
+    /**
+     * The preview size used by {@link #scanQRCodeProgressively(QRCodeLocator)}.
+     */
+    public static final ImageSize DEFAULT_QR_PREVIEW_SIZE = ImageSize.SQUARE_480x480;
+
     /**
      * The controller interface to the bot's hardware or low-level control layer.
      */
@@ -43,11 +54,38 @@ public class BotOrchestrator {
      */
     private final ObjectDetector objectDetector;
 
+    /**
+     * The background writer used by behaviours to save encounter photos, or {@code null}
+     * if behaviours should save them inline.
+     */
+    private final AsyncImageWriter imageWriter;
+
     /**
      * The currently active behaviour of the bot.
      */
     private Behaviour currentBehaviour;
 
+    /**
+     * Progressive scans that ended after the preview because no candidate code was in view.
+     */
+    private final AtomicLong previewRejections = new AtomicLong();
+
+    /**
+     * Progressive scans decoded from the preview alone.
+     */
+    private final AtomicLong previewDecodes = new AtomicLong();
+
+    /**
+     * Progressive scans that went on to capture a full-resolution still.
+     */
+    private final AtomicLong fullResolutionCaptures = new AtomicLong();
+
+    /**
+     * A preview image to capture into, kept from a scan that found no candidate code. Previews that reach
+     * the scanner are not reused, since racing decoders may still read them after the scan returns.
+     */
+    private final AtomicReference<BufferedImage> previewBuffer = new AtomicReference<>();
+
     /**
      * Constructs a new {@code BotOrchestrator} instance with the required dependencies.
      *
@@ -59,10 +97,29 @@ public class BotOrchestrator {
             BotController botController,
             QRCodeScanner qrCodeScanner,
             ObjectDetector objectDetector
+    ) {
+        this(botController, qrCodeScanner, objectDetector, null);
+    }
+
+    /**
+     * Constructs a new {@code BotOrchestrator} whose behaviours save their photos through a
+     * background {@link AsyncImageWriter}. The writer is flushed and closed by {@link #terminate()}.
+     *
+     * @param botController   the controller used to interact with the bot's movement and vision systems
+     * @param qrCodeScanner   the scanner used to detect and read QR codes
+     * @param objectDetector  the detector used to identify objects in the bot's surroundings
+     * @param imageWriter     the writer used to save encounter photos, or {@code null} to save them inline
+     */
+    public BotOrchestrator(
+            BotController botController,
+            QRCodeScanner qrCodeScanner,
+            ObjectDetector objectDetector,
+            AsyncImageWriter imageWriter
     ) {
         this.botController = botController;
         this.qrCodeScanner = qrCodeScanner;
         this.objectDetector = objectDetector;
+        this.imageWriter = imageWriter;
     }
 
     /**
@@ -75,6 +132,76 @@ public class BotOrchestrator {
         return qrCodeScanner.scanQRCode(imageData);
     }
 
+    /**
+     * Scans for a QR code, capturing a full-resolution still only when a code appears to be in view.
+     * Uses the {@link #DEFAULT_QR_PREVIEW_SIZE}.
+     *
+     * @param locator the check used to find candidate codes in the preview
+     * @return the content of the QR code as a {@code String}, or an empty {@code String} if none was decoded
+     * @see #scanQRCodeProgressively(QRCodeLocator, ImageSize)
+     */
+    public String scanQRCodeProgressively(QRCodeLocator locator) {
+        return scanQRCodeProgressively(locator, DEFAULT_QR_PREVIEW_SIZE);
+    }
+
+    /**
+     * Scans for a QR code, capturing a full-resolution still only when a code appears to be in view.
+     * <p>
+     * A small preview is captured first and checked by the {@code locator}, which only looks for finder
+     * patterns. Without a candidate, the attempt ends there, so frames with no code in view cost a small
+     * capture and one detect step instead of a 1080x1080 capture, transfer and decode. With a candidate,
+     * the preview is decoded; a code close to the camera is usually readable at this size. Only if that
+     * fails, e.g. because the code is far away and too few pixels wide, is a 1080x1080 still captured and
+     * scanned, so long-range decoding keeps working.
+     * <p>
+     * A rejected preview is kept and captured into by the next scan, so with a controller that can draw
+     * into it (see {@link BotController#takeCustomPicture(ImageSize, BufferedImage)}), scans with no code
+     * in view allocate no new image.
+     *
+     * @param locator     the check used to find candidate codes in the preview
+     * @param previewSize the size of the preview capture
+     * @return the content of the QR code as a {@code String}, or an empty {@code String} if none was decoded
+     */
+    public String scanQRCodeProgressively(QRCodeLocator locator, ImageSize previewSize) {
+        BufferedImage preview = botController.takeCustomPicture(previewSize, previewBuffer.getAndSet(null));
+        if (!locator.containsQRCode(preview)) {
+            previewRejections.incrementAndGet();
+            previewBuffer.set(preview);
+            return "";
+        }
+
+        String result = qrCodeScanner.scanQRCode(preview);
+        if (result != null && !result.isEmpty()) {
+            previewDecodes.incrementAndGet();
+            return result;
+        }
+
+        fullResolutionCaptures.incrementAndGet();
+        result = qrCodeScanner.scanQRCode(botController.takeHighQualityPicture());
+        return result == null ? "" : result;
+    }
+
+    /**
+     * @return the number of progressive scans that stopped after the preview because no code was in view
+     */
+    public long getPreviewRejectionCount() {
+        return previewRejections.get();
+    }
+
+    /**
+     * @return the number of progressive scans decoded from the preview alone
+     */
+    public long getPreviewDecodeCount() {
+        return previewDecodes.get();
+    }
+
+    /**
+     * @return the number of progressive scans that captured a full-resolution still
+     */
+    public long getFullResolutionCaptureCount() {
+        return fullResolutionCaptures.get();
+    }
+
     /**
      * Initiates the logging process for bot activities using the {@link Logger} utility.
      * This should be called at the beginning of any bot session to ensure actions are recorded.
@@ -99,7 +226,7 @@ public class BotOrchestrator {
      * Switches the bot's behaviour to a 'curious' strategy and executes it.
      */
     public void curiousBehaviour() {
-        setBehaviour(new CuriousBehaviour());
+        setBehaviour(new CuriousBehaviour(imageWriter));
         currentBehaviour.execute(botController);
     }
 
@@ -107,20 +234,38 @@ public class BotOrchestrator {
      * Switches the bot's behaviour to a 'scaredy' strategy and executes it.
      */
     public void scaredyBehaviour() {
-        setBehaviour(new ScaredyBehaviour(objectDetector));
+        setBehaviour(new ScaredyBehaviour(objectDetector, imageWriter));
         currentBehaviour.execute(botController);
     }
 
     /**
      * Terminates the bot's session and performs any necessary shutdown procedures.
      * <p>
-     * This method currently logs a termination message but can be extended to release
-     * resources, stop motors, or perform final diagnostics.
+     * This method logs a termination message, flushes any images still queued on the
+     * {@link AsyncImageWriter} and releases any native resources held by the object detector
+     * and the QR code scanner (e.g. pooled OpenCV buffers). It can be extended to stop motors or perform final diagnostics.
      * </p>
      */
     public void terminate() {
         Logger.logInfo("Terminating...");
         // Release resources if any
+        if (imageWriter != null) {
+            imageWriter.close();
+        }
+        if (objectDetector instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) objectDetector).close();
+            } catch (Exception e) {
+                Logger.logError("Failed to release object detector resources", e);
+            }
+        }
+        if (qrCodeScanner instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) qrCodeScanner).close();
+            } catch (Exception e) {
+                Logger.logError("Failed to release QR code scanner resources", e);
+            }
+        }
     }
 
     /**
@@ -0,0 +1,192 @@
+package Abubaker_Object_Detection.orchestrator;
+
+import Abubaker_Object_Detection.detection.ObjectDetector;
+import Abubaker_Object_Detection.selection.QRCodeScanner;
+import Abubaker_Object_Detection.util.Logger;
+import Abubaker_Object_Detection.util.OpenCVLoader;
+import Abubaker_Object_Detection.util.SyntheticFrames;
+
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
+
+/**
+ * Prepares the vision pipeline before the bot starts moving.
+ * <p>
+ * The first call to a detector or QR scanner is much slower than later ones: the OpenCV native
+ * library has to be loaded, the JIT has not compiled the Java side yet, OpenCV initialises its
+ * thread pool and internal tables, and pooled buffers are allocated and touched for the first
+ * time. {@link #run()} pays these costs up front by loading OpenCV (once per process, through
+ * {@link OpenCVLoader}) and running the detector and scanner a configurable number of times on
+ * synthetic frames of the sizes the camera produces: 480x480 greyscale for detection and
+ * 1080x1080 colour, showing a QR code, for scanning. It then reports the latency of the first
+ * (cold) call and the average of the last calls (warm), so the benefit can be checked.
+ * <p>
+ * Run it on the thread that will do the detecting, since pooled detector buffers are kept per
+ * thread.
+ */
+public class VisionWarmUp {
+
+    /** Default number of calls made to each component. */
+    public static final int DEFAULT_ITERATIONS = 5;
+
+    /** Side of the frames returned by {@code takeGreyPicture()}. */
+    private static final int DETECTOR_FRAME_SIZE = 480;
+
+    /** Side of the frames returned by {@code takeHighQualityPicture()}. */
+    private static final int SCANNER_FRAME_SIZE = 1080;
+
+    /**
+     * Cold and warm latencies measured by {@link #run()}. Latencies of components that were not
+     * warmed up are zero.
+     */
+    public static final class Report {
+
+        private final long nativeLoadNanos;
+        private final long detectorColdNanos;
+        private final long detectorWarmNanos;
+        private final long scannerColdNanos;
+        private final long scannerWarmNanos;
+        private final long totalNanos;
+
+        Report(long nativeLoadNanos, long detectorColdNanos, long detectorWarmNanos,
+               long scannerColdNanos, long scannerWarmNanos, long totalNanos) {
+            this.nativeLoadNanos = nativeLoadNanos;
+            this.detectorColdNanos = detectorColdNanos;
+            this.detectorWarmNanos = detectorWarmNanos;
+            this.scannerColdNanos = scannerColdNanos;
+            this.scannerWarmNanos = scannerWarmNanos;
+            this.totalNanos = totalNanos;
+        }
+
+        /** @return the time taken to load the OpenCV native library, in nanoseconds */
+        public long getNativeLoadNanos() {
+            return nativeLoadNanos;
+        }
+
+        /** @return the latency of the first detector call, in nanoseconds */
+        public long getDetectorColdNanos() {
+            return detectorColdNanos;
+        }
+
+        /** @return the average latency of the last detector calls, in nanoseconds */
+        public long getDetectorWarmNanos() {
+            return detectorWarmNanos;
+        }
+
+        /** @return the latency of the first scanner call, in nanoseconds */
+        public long getScannerColdNanos() {
+            return scannerColdNanos;
+        }
+
+        /** @return the average latency of the last scanner calls, in nanoseconds */
+        public long getScannerWarmNanos() {
+            return scannerWarmNanos;
+        }
+
+        /** @return the total time the warm-up took, in nanoseconds */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Warm-up took %d ms (OpenCV load %d ms): detector cold %.1f ms / warm %.1f ms,"
+                            + " QR scanner cold %.1f ms / warm %.1f ms",
+                    totalNanos / 1_000_000, nativeLoadNanos / 1_000_000,
+                    detectorColdNanos / 1e6, detectorWarmNanos / 1e6,
+                    scannerColdNanos / 1e6, scannerWarmNanos / 1e6);
+        }
+    }
+
+    private final ObjectDetector objectDetector;
+    private final QRCodeScanner qrCodeScanner;
+    private final int iterations;
+    private final boolean objectFrames;
+
+    /**
+     * Creates a warm-up with the default number of iterations, using both empty and object frames.
+     *
+     * @param objectDetector the detector to warm up, or {@code null} to skip it
+     * @param qrCodeScanner  the scanner to warm up, or {@code null} to skip it
+     */
+    public VisionWarmUp(ObjectDetector objectDetector, QRCodeScanner qrCodeScanner) {
+        this(objectDetector, qrCodeScanner, DEFAULT_ITERATIONS, true);
+    }
+
+    /**
+     * Creates a warm-up.
+     *
+     * @param objectDetector the detector to warm up, or {@code null} to skip it
+     * @param qrCodeScanner  the scanner to warm up, or {@code null} to skip it
+     * @param iterations     the number of calls made to each component (at least 1)
+     * @param objectFrames   {@code true} to alternate empty frames with frames showing an object,
+     *                       {@code false} to use empty frames only (e.g. so a detector that saves
+     *                       debug images of detected objects does not save warm-up frames)
+     */
+    public VisionWarmUp(ObjectDetector objectDetector, QRCodeScanner qrCodeScanner, int iterations,
+                        boolean objectFrames) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be at least 1");
+        }
+        this.objectDetector = objectDetector;
+        this.qrCodeScanner = qrCodeScanner;
+        this.iterations = iterations;
+        this.objectFrames = objectFrames;
+    }
+
+    /**
+     * Loads OpenCV if necessary, runs the warm-up and logs the resulting report.
+     *
+     * @return the cold and warm latencies
+     */
+    public Report run() {
+        long start = System.nanoTime();
+        OpenCVLoader.ensureLoaded();
+
+        long[] detector = new long[2];
+        if (objectDetector != null) {
+            BufferedImage[] frames = objectFrames
+                    ? new BufferedImage[]{
+                            SyntheticFrames.emptyFrame(DETECTOR_FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY),
+                            SyntheticFrames.objectFrame(DETECTOR_FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY)}
+                    : new BufferedImage[]{
+                            SyntheticFrames.emptyFrame(DETECTOR_FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY)};
+            detector = measure(frames, frame -> objectDetector.detectObject(frame));
+        }
+
+        long[] scanner = new long[2];
+        if (qrCodeScanner != null) {
+            BufferedImage[] frames = {
+                    SyntheticFrames.qrCodeFrame(SCANNER_FRAME_SIZE, BufferedImage.TYPE_3BYTE_BGR, "warm-up")};
+            scanner = measure(frames, qrCodeScanner::scanQRCode);
+        }
+
+        Report report = new Report(OpenCVLoader.getLoadNanos(), detector[0], detector[1],
+                scanner[0], scanner[1], System.nanoTime() - start);
+        Logger.logInfo(report.toString());
+        return report;
+    }
+
+    /**
+     * Calls {@code call} {@link #iterations} times, cycling through the frames.
+     *
+     * @return the latency of the first call and the average latency of the last half of the calls
+     */
+    private long[] measure(BufferedImage[] frames, Consumer<BufferedImage> call) {
+        long cold = 0;
+        long warmTotal = 0;
+        int warmCalls = Math.max(1, iterations / 2);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            call.accept(frames[i % frames.length]);
+            long elapsed = System.nanoTime() - start;
+            if (i == 0) {
+                cold = elapsed;
+            }
+            if (i >= iterations - warmCalls) {
+                warmTotal += elapsed;
+            }
+        }
+        return new long[]{cold, warmTotal / warmCalls};
+    }
+}
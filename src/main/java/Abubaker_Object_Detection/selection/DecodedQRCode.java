@@ -0,0 +1,83 @@
+package Abubaker_Object_Detection.selection;
+
+import java.awt.Rectangle;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * One QR code read from an image: its decoded payload and, when the decoder reports them, the
+ * positions of its four corners in image pixels.
+ */
+public final class DecodedQRCode {
+
+    private final String payload;
+    private final Point2D.Float[] corners;
+
+    /**
+     * @param payload the decoded content
+     * @param corners the four corners in image pixels, or {@code null} if the decoder does not report them
+     */
+    public DecodedQRCode(String payload, Point2D.Float[] corners) {
+        if (payload == null) {
+            throw new IllegalArgumentException("payload must not be null");
+        }
+        if (corners != null && corners.length != 4) {
+            throw new IllegalArgumentException("A QR code has 4 corners, got " + corners.length);
+        }
+        this.payload = payload;
+        this.corners = corners == null ? null : corners.clone();
+    }
+
+    /**
+     * @return the decoded content
+     */
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * @return {@code true} if the corner positions are known
+     */
+    public boolean hasCorners() {
+        return corners != null;
+    }
+
+    /**
+     * @return a copy of the four corners in image pixels, or {@code null} if they are unknown
+     */
+    public Point2D.Float[] getCorners() {
+        if (corners == null) {
+            return null;
+        }
+        Point2D.Float[] copy = new Point2D.Float[corners.length];
+        for (int i = 0; i < corners.length; i++) {
+            copy[i] = (Point2D.Float) corners[i].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * @return the smallest rectangle containing all four corners, or {@code null} if they are unknown
+     */
+    public Rectangle getBounds() {
+        if (corners == null) {
+            return null;
+        }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (Point2D.Float corner : corners) {
+            minX = Math.min(minX, corner.x);
+            maxX = Math.max(maxX, corner.x);
+            minY = Math.min(minY, corner.y);
+            maxY = Math.max(maxY, corner.y);
+        }
+        int x = (int) Math.floor(minX);
+        int y = (int) Math.floor(minY);
+        return new Rectangle(x, y, (int) Math.ceil(maxX) - x, (int) Math.ceil(maxY) - y);
+    }
+
+    @Override
+    public String toString() {
+        return "DecodedQRCode{payload='" + payload + "', corners=" + Arrays.toString(corners) + '}';
+    }
+}
@@ -0,0 +1,37 @@
+package Abubaker_Object_Detection.selection;
+
+import bot.BotController;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A {@link QRCodeScanner} that decodes with the SwiftBot API's own decoder, through
+ * {@link BotController#decodeQRImageNatively(BufferedImage)}. This lets the native decoder take part
+ * wherever a scanner is expected, e.g. alongside OpenCV in a {@link RacingQRCodeScanner}.
+ */
+public class NativeQRCodeScanner implements QRCodeScanner {
+
+    private final BotController botController;
+
+    /**
+     * @param botController the controller whose native decoder is used
+     */
+    public NativeQRCodeScanner(BotController botController) {
+        if (botController == null) {
+            throw new IllegalArgumentException("botController must not be null");
+        }
+        this.botController = botController;
+    }
+
+    /**
+     * Decodes the image with the SwiftBot API.
+     *
+     * @param imageData the source image to scan for a QR code
+     * @return the decoded QR code content, or an empty {@code String} if no code is detected
+     */
+    @Override
+    public String scanQRCode(BufferedImage imageData) {
+        String result = botController.decodeQRImageNatively(imageData);
+        return result == null ? "" : result;
+    }
+}
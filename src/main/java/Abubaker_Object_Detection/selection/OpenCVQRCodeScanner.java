@@ -1,14 +1,23 @@
 package Abubaker_Object_Detection.selection;
 
-import nu.pattern.OpenCV;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
 import org.opencv.core.Scalar;
 import org.opencv.imgproc.Imgproc;
 import org.opencv.objdetect.QRCodeDetector;
+import Abubaker_Object_Detection.util.ImageMatBridge;
+import Abubaker_Object_Detection.util.Logger;
+import Abubaker_Object_Detection.util.OpenCVLoader;
+import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The {@code OpenCVQRCodeScanner} class implements the {@link QRCodeScanner} interface using the OpenCV library
@@ -17,86 +26,432 @@ import java.awt.image.DataBufferByte;
  * This class demonstrates the following workflow:
  * <ol>
  *     <li>Initialising and loading the local OpenCV library</li>
- *     <li>Converting the incoming {@link BufferedImage} into an OpenCV-compatible {@link Mat}</li>
+ *     <li>Converting the incoming {@link BufferedImage} into an OpenCV-compatible {@link Mat} via
+ *         {@link ImageMatBridge}</li>
  *     <li>Applying a {@link QRCodeDetector} to detect and decode any QR code in the image</li>
  *     <li>Optionally providing a snippet of code (commented out) that visualises the detected QR code boundary</li>
- *     <li>Releasing OpenCV resources after the detection process completes</li>
  * </ol>
  * If the detection is successful, the decoded QR code content is returned as a {@code String}; otherwise, an
  * empty string is returned.
+ * <p>
+ * <strong>Reuse:</strong> each thread that scans gets its own {@link QRCodeDetector} together with an input
+ * and a corner-points {@link Mat}, created on its first scan and reused for every later one. Mode selection
+ * scans 1080x1080 stills in a tight loop, so after the first scan no detector is constructed and, as long as
+ * the frame size stays the same, no native image memory is allocated. Because every thread works on its own
+ * objects, the scanner can be called from several threads at once. {@link #close()} releases the Mats of
+ * every thread; scanning afterwards throws an {@link IllegalStateException}.
+ * <p>
+ * <strong>Region tracking:</strong> a scanner created with {@code trackRegion = true} splits each scan into the
+ * cheap {@code detect} step, which looks for the finder patterns, and the {@code decode} step, which only runs
+ * when a code was found; frames without a code therefore never pay for decoding. The corners of the last
+ * detected code are remembered per thread, and the next frame is first searched only in a padded region
+ * around them. While the code stays roughly in place (e.g. held up to the camera during mode selection),
+ * both steps work on a small crop instead of the whole 1080x1080 frame. When the code is not found in the
+ * region, the full frame is searched as before.
+ * <p>
+ * {@link #scanQRCodes(BufferedImage)} reads every code in a frame in one {@code detectAndDecodeMulti} pass,
+ * with the same per-thread buffers as single-code scans.
+ * <p>
+ * The scanner is also a {@link QRCodeLocator}: {@link #containsQRCode(BufferedImage)} runs only the detect
+ * step, using the same per-thread detector and buffers.
  */
-public class OpenCVQRCodeScanner implements QRCodeScanner {
+public class OpenCVQRCodeScanner implements QRCodeScanner, QRCodeLocator, AutoCloseable {
+
+    /**
+     * The detector and buffers owned by one scanning thread. Scans and {@link #release()} lock the
+     * context, so {@link OpenCVQRCodeScanner#close()} never frees Mats that are still being read; since
+     * only the owning thread scans with it, the lock is uncontended in normal use.
+     */
+    private static final class ScanContext {
+
+        /** The thread's QR code detector. */
+        final QRCodeDetector detector = new QRCodeDetector();
+
+        /** The image copied into native memory; resized only when the frame shape changes. */
+        final Mat input = new Mat();
+
+        /** Corners of the detected QR code. */
+        final Mat points = new Mat();
+
+        /** Scratch array for reading the four corners (x, y pairs) out of {@link #points}. */
+        final float[] corners = new float[8];
+
+        /** Payloads written by {@code detectAndDecodeMulti}; cleared before every multi-code scan. */
+        final List<String> payloads = new ArrayList<>();
+
+        /** Scratch array for the corners of every code of a multi-code scan; grown as needed. */
+        float[] multiCorners = new float[8];
+
+        /** Whether {@link #regionLeft} to {@link #regionBottom} hold the region of the last detected code. */
+        boolean hasRegion;
+
+        /** Padded bounds of the last detected code (exclusive right and bottom), in frame pixels. */
+        int regionLeft, regionTop, regionRight, regionBottom;
+
+        /** Size of the frame the region was found in. */
+        int frameWidth, frameHeight;
+
+        /** Set once the Mats have been released. */
+        boolean released;
+
+        void release() {
+            input.release();
+            points.release();
+            released = true;
+        }
+    }
+
+    /** Padding added around the last code's bounding box, as a fraction of its larger side. */
+    private static final double REGION_PADDING = 0.5;
+
+    /** Minimum padding in pixels, so that small codes can still move a little between frames. */
+    private static final int MIN_REGION_PADDING = 32;
+
+    /** Whether scans use detect-then-decode with region tracking. */
+    private final boolean trackRegion;
+
+    /** Scans decoded within the tracked region. */
+    private final AtomicLong regionHits = new AtomicLong();
+
+    /** Scans that searched the full frame. */
+    private final AtomicLong fullFrameScans = new AtomicLong();
+
+    /** Full-frame scans that found no code and so skipped decoding. */
+    private final AtomicLong detectRejections = new AtomicLong();
+
+    /** Every context handed out to a thread, so that {@link #close()} can release them all. */
+    private final Queue<ScanContext> contexts = new ConcurrentLinkedQueue<>();
+
+    /** The context belonging to the calling thread. */
+    private final ThreadLocal<ScanContext> threadContext = ThreadLocal.withInitial(this::registerContext);
+
+    /** Set by {@link #close()}. */
+    private volatile boolean closed;
+
+    /**
+     * Creates a scanner that runs the full {@code detectAndDecode} over every frame.
+     */
+    public OpenCVQRCodeScanner() {
+        this(false);
+    }
+
+    /**
+     * Creates a scanner, optionally using detect-then-decode with region tracking.
+     *
+     * @param trackRegion {@code true} to detect before decoding and to search around the last code first
+     */
+    public OpenCVQRCodeScanner(boolean trackRegion) {
+        this.trackRegion = trackRegion;
+    }
 
     /**
      * Scans the provided {@link BufferedImage} for a QR code using the OpenCV {@link QRCodeDetector}.
      * <p>
      * Steps involved:
      * <ul>
-     *     <li>Loads the OpenCV library locally.</li>
-     *     <li>Determines the dimensions and ensures the image is in {@code TYPE_3BYTE_BGR} format.</li>
-     *     <li>Copies the pixel data into an OpenCV-compatible {@link Mat}.</li>
-     *     <li>Detects and decodes any QR code using the {@link QRCodeDetector}.</li>
-     *     <li>Releases allocated OpenCV resources.</li>
+     *     <li>Makes sure the OpenCV library is loaded (only the first call loads it).</li>
+     *     <li>Copies the pixel data directly from the image's raster into this thread's reusable
+     *         {@link Mat} (greyscale or BGR, matching the source image).</li>
+     *     <li>Detects and decodes any QR code using this thread's {@link QRCodeDetector}.</li>
      * </ul>
      * If no QR code is detected, this method returns an empty {@code String}.
      *
      * @param bufferedImage the source image to be scanned for a QR code
      * @return the decoded QR code content, or an empty {@code String} if no code is detected
+     * @throws IllegalStateException if the scanner has been closed
      */
     @Override
     public String scanQRCode(BufferedImage bufferedImage) {
 
-        OpenCV.loadLocally();
+        OpenCVLoader.ensureLoaded();
+
+        ScanContext context = acquireContext();
+        String result = "";
+
+        synchronized (context) {
+            if (context.released) {
+                throw new IllegalStateException("OpenCVQRCodeScanner has been closed");
+            }
+            try {
+                // Copy the pixel data straight into the reusable Mat. Greyscale stills stay
+                // single-channel, which the QRCodeDetector accepts directly.
+                Mat mat = ImageMatBridge.toMat(bufferedImage, context.input);
+
+                // Detect and decode QR code
+                result = trackRegion
+                        ? detectThenDecode(context, mat)
+                        : context.detector.detectAndDecode(mat, context.points);
 
-        // Get image dimensions
-        int width = bufferedImage.getWidth();
-        int height = bufferedImage.getHeight();
+                /*
+                // Optional: Draw detection points on the image (for visualisation)
+                Mat points = context.points;
+                if (!result.isEmpty() && !points.empty() && points.rows() >= 4) {
+                    for (int i = 0; i < 4; i++) {
+                        int nextPointIndex = (i + 1) % 4;
+                        Point p1 = new Point(points.get(0, i)[0], points.get(0, i)[1]);
+                        Point p2 = new Point(points.get(0, nextPointIndex)[0], points.get(0, nextPointIndex)[1]);
+                        Imgproc.line(mat, p1, p2, new Scalar(0, 255, 0), 2);
+                    }
+                }
+                */
 
-        // Convert to appropriate format if needed
-        BufferedImage convertedImg;
-        if (bufferedImage.getType() == BufferedImage.TYPE_3BYTE_BGR) {
-            convertedImg = bufferedImage;
-        } else {
-            convertedImg = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
-            convertedImg.getGraphics().drawImage(bufferedImage, 0, 0, null);
+            } catch (Exception e) {
+                // The Mats stay owned by the context, so a failed scan leaks nothing
+                Logger.logError("QR code scan failed", e);
+                result = "";
+            }
         }
 
-        // Get the pixel data
-        byte[] pixels = ((DataBufferByte) convertedImg.getRaster().getDataBuffer()).getData();
+        return result == null ? "" : result;
+    }
 
-        // Create a Mat with the image data
-        Mat mat = new Mat(height, width, CvType.CV_8UC3);
-        mat.put(0, 0, pixels);
-        String result = "";
+    /**
+     * Scans the provided {@link BufferedImage} for every QR code it contains using
+     * {@code QRCodeDetector.detectAndDecodeMulti}, reusing this thread's detector and buffers.
+     * Codes that are detected but cannot be decoded are left out.
+     *
+     * @param bufferedImage the source image to scan for QR codes
+     * @return the decoded codes with their corners, or an empty list if none were decoded
+     * @throws IllegalStateException if the scanner has been closed
+     */
+    @Override
+    public List<DecodedQRCode> scanQRCodes(BufferedImage bufferedImage) {
+
+        OpenCVLoader.ensureLoaded();
 
-        try {
-            // Create QR code detector
-            QRCodeDetector qrCodeDetector = new QRCodeDetector();
-
-            // Detect and decode QR code
-            Mat points = new Mat();
-            result = qrCodeDetector.detectAndDecode(mat, points);
-
-            /*
-            // Optional: Draw detection points on the image (for visualisation)
-            if (!result.isEmpty() && !points.empty() && points.rows() >= 4) {
-                for (int i = 0; i < 4; i++) {
-                    int nextPointIndex = (i + 1) % 4;
-                    Point p1 = new Point(points.get(0, i)[0], points.get(0, i)[1]);
-                    Point p2 = new Point(points.get(0, nextPointIndex)[0], points.get(0, nextPointIndex)[1]);
-                    Imgproc.line(mat, p1, p2, new Scalar(0, 255, 0), 2);
+        ScanContext context = acquireContext();
+        synchronized (context) {
+            if (context.released) {
+                throw new IllegalStateException("OpenCVQRCodeScanner has been closed");
+            }
+            try {
+                Mat mat = ImageMatBridge.toMat(bufferedImage, context.input);
+                context.payloads.clear();
+                if (!context.detector.detectAndDecodeMulti(mat, context.payloads, context.points)) {
+                    return Collections.emptyList();
                 }
+                return collectCodes(context);
+            } catch (Exception e) {
+                Logger.logError("Multi-code QR scan failed", e);
+                return Collections.emptyList();
             }
-            */
+        }
+    }
 
-            // Release all OpenCV resources
-            points.release();
-            mat.release();
+    /**
+     * Pairs the payloads of a multi-code scan with their corners. The points Mat holds one row of four
+     * (x, y) corners per code, in the same order as the payloads.
+     */
+    private static List<DecodedQRCode> collectCodes(ScanContext context) {
+        List<String> payloads = context.payloads;
+        int count = payloads.size();
+        boolean haveCorners = context.points.total() >= count * 4L;
+        if (haveCorners) {
+            if (context.multiCorners.length < count * 8) {
+                context.multiCorners = new float[count * 8];
+            }
+            context.points.get(0, 0, context.multiCorners);
+        }
+
+        List<DecodedQRCode> codes = new ArrayList<>(count);
+        float[] values = context.multiCorners;
+        for (int i = 0; i < count; i++) {
+            String payload = payloads.get(i);
+            if (payload == null || payload.isEmpty()) {
+                continue;
+            }
+            Point2D.Float[] corners = null;
+            if (haveCorners) {
+                corners = new Point2D.Float[4];
+                for (int c = 0; c < 4; c++) {
+                    corners[c] = new Point2D.Float(values[i * 8 + c * 2], values[i * 8 + c * 2 + 1]);
+                }
+            }
+            codes.add(new DecodedQRCode(payload, corners));
+        }
+        return codes;
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Runs only OpenCV's {@code detect} step, which looks for the three finder patterns of a QR code.
+     *
+     * @param imageData the image to check
+     * @return {@code true} if a candidate QR code region was found
+     * @throws IllegalStateException if the scanner has been closed
+     */
+    @Override
+    public boolean containsQRCode(BufferedImage imageData) {
+
+        OpenCVLoader.ensureLoaded();
+
+        ScanContext context = acquireContext();
+        synchronized (context) {
+            if (context.released) {
+                throw new IllegalStateException("OpenCVQRCodeScanner has been closed");
+            }
+            try {
+                Mat mat = ImageMatBridge.toMat(imageData, context.input);
+                return context.detector.detect(mat, context.points);
+            } catch (Exception e) {
+                Logger.logError("QR code detection failed", e);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Searches the tracked region first, then the full frame, decoding only once a code is detected.
+     *
+     * @param context the calling thread's context
+     * @param mat     the frame, already copied into {@code context.input}
+     * @return the decoded content, or an empty {@code String}
+     */
+    private String detectThenDecode(ScanContext context, Mat mat) {
+        int width = mat.cols();
+        int height = mat.rows();
+        if (context.hasRegion && (context.frameWidth != width || context.frameHeight != height)) {
+            context.hasRegion = false;
         }
 
-        return result;
+        if (context.hasRegion) {
+            int left = context.regionLeft;
+            int top = context.regionTop;
+            Mat region = mat.submat(top, context.regionBottom, left, context.regionRight);
+            try {
+                if (context.detector.detect(region, context.points)) {
+                    String decoded = context.detector.decode(region, context.points);
+                    if (decoded != null && !decoded.isEmpty()) {
+                        updateRegion(context, left, top, width, height);
+                        regionHits.incrementAndGet();
+                        return decoded;
+                    }
+                }
+            } finally {
+                // Only the view's header is freed; the pixels belong to context.input
+                region.release();
+            }
+            // The code moved out of the region or became unreadable
+            context.hasRegion = false;
+        }
+
+        fullFrameScans.incrementAndGet();
+        if (!context.detector.detect(mat, context.points)) {
+            detectRejections.incrementAndGet();
+            return "";
+        }
+        // Track the code even if this frame does not decode, since the next one may be sharper
+        updateRegion(context, 0, 0, width, height);
+        String decoded = context.detector.decode(mat, context.points);
+        return decoded == null ? "" : decoded;
+    }
+
+    /**
+     * Stores the padded bounding box of the corners in {@code context.points} as the region to search
+     * first in the next frame.
+     *
+     * @param offsetX x of the searched image's origin within the frame
+     * @param offsetY y of the searched image's origin within the frame
+     * @param width   frame width
+     * @param height  frame height
+     */
+    private void updateRegion(ScanContext context, int offsetX, int offsetY, int width, int height) {
+        Mat points = context.points;
+        if (points.total() < 4) {
+            context.hasRegion = false;
+            return;
+        }
+        float[] corners = context.corners;
+        points.get(0, 0, corners);
+
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < corners.length; i += 2) {
+            minX = Math.min(minX, corners[i]);
+            maxX = Math.max(maxX, corners[i]);
+            minY = Math.min(minY, corners[i + 1]);
+            maxY = Math.max(maxY, corners[i + 1]);
+        }
+        int padding = Math.max(MIN_REGION_PADDING,
+                (int) (Math.max(maxX - minX, maxY - minY) * REGION_PADDING));
+
+        context.regionLeft = Math.max(0, offsetX + (int) minX - padding);
+        context.regionTop = Math.max(0, offsetY + (int) minY - padding);
+        context.regionRight = Math.min(width, offsetX + (int) Math.ceil(maxX) + padding);
+        context.regionBottom = Math.min(height, offsetY + (int) Math.ceil(maxY) + padding);
+        context.frameWidth = width;
+        context.frameHeight = height;
+        context.hasRegion = context.regionRight > context.regionLeft && context.regionBottom > context.regionTop;
+    }
+
+    /**
+     * @return the number of scans decoded within the tracked region, without a full-frame search
+     */
+    public long getRegionHitCount() {
+        return regionHits.get();
+    }
+
+    /**
+     * @return the number of scans that searched the full frame
+     */
+    public long getFullFrameScanCount() {
+        return fullFrameScans.get();
+    }
+
+    /**
+     * @return the number of full-frame scans in which no code was detected, so decoding was skipped
+     */
+    public long getDetectRejectionCount() {
+        return detectRejections.get();
+    }
+
+    /**
+     * @return the number of threads that currently hold a detector and buffers of this scanner
+     */
+    public int getThreadContextCount() {
+        return contexts.size();
+    }
+
+    /**
+     * Releases the native buffers of every thread's context. Scans already in progress finish first;
+     * later scans throw an {@link IllegalStateException}. The {@link QRCodeDetector} objects themselves
+     * have no explicit release in the OpenCV Java API and are freed once they become unreachable.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ScanContext context;
+        while ((context = contexts.poll()) != null) {
+            synchronized (context) {
+                context.release();
+            }
+        }
+    }
+
+    /**
+     * Returns the calling thread's context, checking that the scanner is still open.
+     */
+    private ScanContext acquireContext() {
+        if (closed) {
+            throw new IllegalStateException("OpenCVQRCodeScanner has been closed");
+        }
+        return threadContext.get();
+    }
+
+    /**
+     * Creates a context for the calling thread and registers it for {@link #close()}.
+     *
+     * @return the new context
+     */
+    private ScanContext registerContext() {
+        ScanContext context = new ScanContext();
+        contexts.add(context);
+        // A context registered while close() was draining the queue would otherwise never be released
+        if (closed) {
+            contexts.remove(context);
+            synchronized (context) {
+                context.release();
+            }
+        }
+        return context;
     }
 }
@@ -0,0 +1,21 @@
+package Abubaker_Object_Detection.selection;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The {@code QRCodeLocator} interface defines a cheap check for whether an image contains something that
+ * looks like a QR code, without decoding it.
+ * <p>
+ * A locator lets a caller decide whether a more expensive step is worthwhile, e.g. capturing a
+ * high-resolution still to decode a code that was only spotted in a small preview image.
+ */
+public interface QRCodeLocator {
+
+    /**
+     * Checks whether the given image appears to contain a QR code (its finder patterns are visible).
+     *
+     * @param imageData the image to check
+     * @return {@code true} if a candidate QR code region was found
+     */
+    boolean containsQRCode(BufferedImage imageData);
+}
@@ -1,6 +1,8 @@
 package Abubaker_Object_Detection.selection;
 
 import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The {@code QRCodeScanner} interface defines the contract for any class capable of scanning and decoding
@@ -27,4 +29,22 @@ public interface QRCodeScanner {
      * @return the decoded QR code content, or an empty {@code String} if no code is detected
      */
     String scanQRCode(BufferedImage imageData);
+
+    /**
+     * Scans the given {@link BufferedImage} for every QR code it contains and returns each decoded
+     * payload with its corner points.
+     * <p>
+     * The default implementation makes a single {@link #scanQRCode(BufferedImage)} call, so it returns
+     * at most one code and no corner points. Implementations that can read several codes in one pass,
+     * such as {@link OpenCVQRCodeScanner}, override it.
+     *
+     * @param imageData the source image to scan for QR codes
+     * @return the decoded codes, or an empty list if none were decoded
+     */
+    default List<DecodedQRCode> scanQRCodes(BufferedImage imageData) {
+        String payload = scanQRCode(imageData);
+        return payload == null || payload.isEmpty()
+                ? Collections.emptyList()
+                : Collections.singletonList(new DecodedQRCode(payload, null));
+    }
 }
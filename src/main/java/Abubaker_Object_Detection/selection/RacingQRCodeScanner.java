@@ -0,0 +1,313 @@
+package Abubaker_Object_Detection.selection;
+
+import Abubaker_Object_Detection.util.Logger;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link QRCodeScanner} that runs several decoders in parallel on the same frame and returns the first
+ * non-empty result.
+ * <p>
+ * Different decoders succeed on different frames (OpenCV copes well with small or tilted codes, the
+ * SwiftBot's native decoder and ZXing with blurred or unevenly lit ones), and trying them one after the
+ * other means waiting for every failure in turn. Racing them instead makes each scan about as slow as
+ * the fastest decoder that can read the frame. As soon as one decoder returns a result, the others are
+ * cancelled: tasks that have not started are dropped and running ones are interrupted. Native decoders
+ * do not react to interrupts and run to completion in the background, so a decoder that is still busy
+ * with an earlier frame is skipped for the next one rather than queued, which keeps a slow decoder from
+ * building up a backlog.
+ * <p>
+ * For each decoder the scanner records how often it ran, won, was skipped or failed, and its mean
+ * latency, so that decoders that never win can be dropped (see {@link #getStatistics()}). Each decoder
+ * runs on a thread of its own, always the same one, so decoders that keep state per thread, like the
+ * detector and tracked region of {@link OpenCVQRCodeScanner}, keep it from one frame to the next.
+ * {@link #close()} stops the decoder threads and closes every decoder that is {@link AutoCloseable}.
+ */
+public class RacingQRCodeScanner implements QRCodeScanner, AutoCloseable {
+
+    /** Default time a scan waits for a winner. */
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * Statistics of one decoder. Counters are updated as scans complete; the getters read the current
+     * values.
+     */
+    public static final class DecoderStatistics {
+
+        private final String name;
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong wins = new AtomicLong();
+        private final AtomicLong skips = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong latencyNanos = new AtomicLong();
+
+        DecoderStatistics(String name) {
+            this.name = name;
+        }
+
+        /** @return the decoder's name */
+        public String getName() {
+            return name;
+        }
+
+        /** @return the number of frames the decoder was started on */
+        public long getRunCount() {
+            return runs.get();
+        }
+
+        /** @return the number of scans whose result came from this decoder */
+        public long getWinCount() {
+            return wins.get();
+        }
+
+        /** @return the number of frames skipped because the decoder was still busy */
+        public long getSkipCount() {
+            return skips.get();
+        }
+
+        /** @return the number of runs that ended with an exception */
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        /** @return the fraction of runs that won, or 0 if the decoder has not run */
+        public double getWinRate() {
+            long r = runs.get();
+            return r == 0 ? 0 : (double) wins.get() / r;
+        }
+
+        /** @return the mean latency of the runs that completed, in nanoseconds */
+        public long getMeanLatencyNanos() {
+            long c = completed.get();
+            return c == 0 ? 0 : latencyNanos.get() / c;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d wins / %d runs (%.0f%%), %d skipped, %d failed, mean %.1f ms",
+                    name, getWinCount(), getRunCount(), getWinRate() * 100, getSkipCount(),
+                    getFailureCount(), getMeanLatencyNanos() / 1e6);
+        }
+    }
+
+    /** A decoder with its statistics, busy flag and thread. */
+    private static final class Contender {
+        final QRCodeScanner scanner;
+        final DecoderStatistics statistics;
+        final AtomicBoolean busy = new AtomicBoolean();
+        final ExecutorService executor;
+
+        Contender(String name, QRCodeScanner scanner) {
+            this.scanner = scanner;
+            this.statistics = new DecoderStatistics(name);
+            // One thread is enough, since a busy decoder is never given a second frame
+            this.executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "qr-race-" + name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** One decoder's run on one frame. */
+    private static final class Attempt {
+        final Contender contender;
+
+        /** Set by whichever comes first: the task starting, or the scan abandoning it. */
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        Future<String> future;
+
+        Attempt(Contender contender) {
+            this.contender = contender;
+        }
+    }
+
+    private final List<Contender> contenders;
+    private final long timeoutMillis;
+
+    /**
+     * Creates a racing scanner with the default timeout.
+     *
+     * @param decoders the decoders to race, by name, in the order their statistics are reported
+     */
+    public RacingQRCodeScanner(Map<String, ? extends QRCodeScanner> decoders) {
+        this(decoders, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a racing scanner.
+     *
+     * @param decoders      the decoders to race, by name, in the order their statistics are reported
+     * @param timeoutMillis the longest a scan waits for a winner before returning an empty result
+     */
+    public RacingQRCodeScanner(Map<String, ? extends QRCodeScanner> decoders, long timeoutMillis) {
+        if (decoders == null || decoders.isEmpty()) {
+            throw new IllegalArgumentException("At least one decoder is required");
+        }
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("timeoutMillis must be positive");
+        }
+        List<Contender> list = new ArrayList<>(decoders.size());
+        for (Map.Entry<String, ? extends QRCodeScanner> entry : decoders.entrySet()) {
+            if (entry.getValue() == null) {
+                throw new IllegalArgumentException("Decoder " + entry.getKey() + " is null");
+            }
+            list.add(new Contender(entry.getKey(), entry.getValue()));
+        }
+        this.contenders = Collections.unmodifiableList(list);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Runs every idle decoder on the image and returns the first non-empty result.
+     *
+     * @param imageData the source image to scan for a QR code
+     * @return the decoded QR code content, or an empty {@code String} if no decoder read a code in time
+     */
+    @Override
+    public String scanQRCode(BufferedImage imageData) {
+        // Every decoder's thread reports to the same queue, in the order the decoders finish
+        BlockingQueue<Future<String>> finished = new LinkedBlockingQueue<>();
+        List<Attempt> attempts = new ArrayList<>(contenders.size());
+
+        for (Contender contender : contenders) {
+            if (!contender.busy.compareAndSet(false, true)) {
+                contender.statistics.skips.incrementAndGet();
+                continue;
+            }
+            contender.statistics.runs.incrementAndGet();
+            Attempt attempt = new Attempt(contender);
+            attempt.future = new ExecutorCompletionService<String>(contender.executor, finished)
+                    .submit(() -> decode(attempt, imageData));
+            attempts.add(attempt);
+        }
+
+        String result = "";
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (int remaining = attempts.size(); remaining > 0; remaining--) {
+                long wait = deadline - System.nanoTime();
+                Future<String> done = wait > 0 ? finished.poll(wait, TimeUnit.NANOSECONDS) : null;
+                if (done == null) {
+                    break;
+                }
+                String decoded = resultOf(done);
+                if (decoded != null && !decoded.isEmpty()) {
+                    ownerOf(attempts, done).statistics.wins.incrementAndGet();
+                    result = decoded;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Attempt attempt : attempts) {
+                attempt.future.cancel(true);
+                // A task that never started will not clear its decoder's busy flag itself
+                if (attempt.claimed.compareAndSet(false, true)) {
+                    attempt.contender.busy.set(false);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs one decoder, recording its latency and clearing its busy flag when it finishes. Returns
+     * {@code null} without decoding if the scan has already abandoned the attempt.
+     */
+    private static String decode(Attempt attempt, BufferedImage imageData) {
+        if (!attempt.claimed.compareAndSet(false, true)) {
+            return null;
+        }
+        Contender contender = attempt.contender;
+        long start = System.nanoTime();
+        try {
+            return contender.scanner.scanQRCode(imageData);
+        } catch (RuntimeException e) {
+            contender.statistics.failures.incrementAndGet();
+            Logger.logError("QR decoder " + contender.statistics.getName() + " failed", e);
+            return "";
+        } finally {
+            contender.statistics.latencyNanos.addAndGet(System.nanoTime() - start);
+            contender.statistics.completed.incrementAndGet();
+            contender.busy.set(false);
+        }
+    }
+
+    /**
+     * @return the future's result, or {@code null} if it was cancelled or failed
+     */
+    private static String resultOf(Future<String> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException | CancellationException e) {
+            return null;
+        }
+    }
+
+    private static Contender ownerOf(List<Attempt> attempts, Future<String> future) {
+        for (Attempt attempt : attempts) {
+            if (attempt.future == future) {
+                return attempt.contender;
+            }
+        }
+        throw new IllegalStateException("Unknown decoder task");
+    }
+
+    /**
+     * @return the statistics of every decoder, in the order the decoders were given
+     */
+    public List<DecoderStatistics> getStatistics() {
+        List<DecoderStatistics> statistics = new ArrayList<>(contenders.size());
+        for (Contender contender : contenders) {
+            statistics.add(contender.statistics);
+        }
+        return statistics;
+    }
+
+    /**
+     * Stops the decoder threads and closes every decoder that is {@link AutoCloseable}.
+     */
+    @Override
+    public void close() {
+        for (Contender contender : contenders) {
+            contender.executor.shutdownNow();
+        }
+        // Let decoders that ignore interrupts finish before their resources are released
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (Contender contender : contenders) {
+                contender.executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Contender contender : contenders) {
+            if (contender.scanner instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) contender.scanner).close();
+                } catch (Exception e) {
+                    Logger.logError("Failed to close QR decoder " + contender.statistics.getName(), e);
+                }
+            }
+        }
+    }
+}
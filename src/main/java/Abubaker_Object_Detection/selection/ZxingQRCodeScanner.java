@@ -0,0 +1,39 @@
+package Abubaker_Object_Detection.selection;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.ReaderException;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A {@link QRCodeScanner} backed by the ZXing library.
+ * <p>
+ * Each scan decodes the image with an {@code RGBLuminanceSource}, a {@code HybridBinarizer} and a new
+ * {@code QRCodeReader}. Readers keep state between calls, so one is not shared across threads.
+ */
+public final class ZxingQRCodeScanner implements QRCodeScanner {
+
+    /**
+     * Decodes the image with ZXing's QR code reader.
+     *
+     * @param imageData the source image to scan for a QR code
+     * @return the decoded QR code content, or an empty {@code String} if no code is detected
+     */
+    @Override
+    public String scanQRCode(BufferedImage imageData) {
+        int width = imageData.getWidth();
+        int height = imageData.getHeight();
+        int[] pixels = imageData.getRGB(0, 0, width, height, null, 0, width);
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(width, height, pixels)));
+        try {
+            String text = new QRCodeReader().decode(bitmap).getText();
+            return text == null ? "" : text;
+        } catch (ReaderException e) {
+            // Not found, checksum and format errors all mean there is nothing to read
+            return "";
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package Abubaker_Object_Detection.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A flat, rectangular 2-D world for the {@link SimulatedBotController}: a floor enclosed by walls,
+ * with further walls and objects standing on it.
+ * <p>
+ * Every obstacle is an axis-aligned rectangle seen from above. Coordinates are in centimetres, with
+ * the origin in one corner of the floor and the floor extending to {@code (width, height)}. Walls
+ * are what the bot should steer around; objects are what the detector should report, and they are
+ * drawn into camera frames as dark blocks.
+ */
+public class SimulatedArena {
+
+    /** What an obstacle is, which decides how it appears in camera frames. */
+    public enum ObstacleType {
+        WALL, OBJECT
+    }
+
+    /** An axis-aligned rectangular obstacle. */
+    public static final class Obstacle {
+        private final double x;
+        private final double y;
+        private final double width;
+        private final double height;
+        private final ObstacleType type;
+        private final int shade;
+
+        Obstacle(double x, double y, double width, double height, ObstacleType type, int shade) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Obstacles must have a positive width and height");
+            }
+            if (shade < 0 || shade > 255) {
+                throw new IllegalArgumentException("shade must be between 0 and 255");
+            }
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.type = type;
+            this.shade = shade;
+        }
+
+        /** @return the smallest x coordinate covered, in centimetres */
+        public double getX() {
+            return x;
+        }
+
+        /** @return the smallest y coordinate covered, in centimetres */
+        public double getY() {
+            return y;
+        }
+
+        /** @return the extent along x, in centimetres */
+        public double getWidth() {
+            return width;
+        }
+
+        /** @return the extent along y, in centimetres */
+        public double getHeight() {
+            return height;
+        }
+
+        /** @return whether this is a wall or an object */
+        public ObstacleType getType() {
+            return type;
+        }
+
+        /** @return the grey level (0 black to 255 white) of the obstacle; frames draw it for objects only */
+        public int getShade() {
+            return shade;
+        }
+
+        /**
+         * @return {@code true} if a circle of the given radius around the point overlaps the obstacle
+         */
+        boolean overlaps(double px, double py, double radius) {
+            double nearestX = Math.max(x, Math.min(px, x + width));
+            double nearestY = Math.max(y, Math.min(py, y + height));
+            double dx = px - nearestX;
+            double dy = py - nearestY;
+            return dx * dx + dy * dy < radius * radius;
+        }
+
+        /**
+         * Intersects a ray with the obstacle (slab method).
+         *
+         * @return the distance along the ray to the first intersection, or {@code Double.POSITIVE_INFINITY}
+         */
+        double intersect(double ox, double oy, double dx, double dy) {
+            double near = 0;
+            double far = Double.POSITIVE_INFINITY;
+            if (dx == 0) {
+                if (ox < x || ox > x + width) {
+                    return Double.POSITIVE_INFINITY;
+                }
+            } else {
+                double t1 = (x - ox) / dx;
+                double t2 = (x + width - ox) / dx;
+                near = Math.max(near, Math.min(t1, t2));
+                far = Math.min(far, Math.max(t1, t2));
+            }
+            if (dy == 0) {
+                if (oy < y || oy > y + height) {
+                    return Double.POSITIVE_INFINITY;
+                }
+            } else {
+                double t1 = (y - oy) / dy;
+                double t2 = (y + height - oy) / dy;
+                near = Math.max(near, Math.min(t1, t2));
+                far = Math.min(far, Math.max(t1, t2));
+            }
+            return near <= far ? near : Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        public String toString() {
+            return type + "[" + x + ", " + y + ", " + width + "x" + height + "]";
+        }
+    }
+
+    /** Where a ray met an obstacle. */
+    public static final class Hit {
+        private final double distance;
+        private final Obstacle obstacle;
+
+        Hit(double distance, Obstacle obstacle) {
+            this.distance = distance;
+            this.obstacle = obstacle;
+        }
+
+        /** @return the distance from the ray origin, in centimetres */
+        public double getDistance() {
+            return distance;
+        }
+
+        /** @return the obstacle that was hit */
+        public Obstacle getObstacle() {
+            return obstacle;
+        }
+    }
+
+    /** Thickness of the enclosing walls, which lie just outside the floor. */
+    private static final double BOUNDARY_THICKNESS = 10;
+
+    private final double width;
+    private final double height;
+    private final List<Obstacle> obstacles = new ArrayList<>();
+
+    /**
+     * Creates an empty arena enclosed by four walls.
+     *
+     * @param width  the floor extent along x, in centimetres
+     * @param height the floor extent along y, in centimetres
+     */
+    public SimulatedArena(double width, double height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The arena must have a positive width and height");
+        }
+        this.width = width;
+        this.height = height;
+        addWall(-BOUNDARY_THICKNESS, -BOUNDARY_THICKNESS, width + 2 * BOUNDARY_THICKNESS, BOUNDARY_THICKNESS);
+        addWall(-BOUNDARY_THICKNESS, height, width + 2 * BOUNDARY_THICKNESS, BOUNDARY_THICKNESS);
+        addWall(-BOUNDARY_THICKNESS, 0, BOUNDARY_THICKNESS, height);
+        addWall(width, 0, BOUNDARY_THICKNESS, height);
+    }
+
+    /**
+     * Creates a 3 m x 3 m arena with a partition wall and three objects, a setting in which the
+     * bot regularly meets both walls and objects while wandering.
+     *
+     * @return the arena
+     */
+    public static SimulatedArena createDefault() {
+        SimulatedArena arena = new SimulatedArena(300, 300);
+        arena.addWall(150, 0, 5, 120);
+        arena.addObject(60, 220, 15, 15, 30);
+        arena.addObject(230, 80, 12, 20, 40);
+        arena.addObject(220, 230, 20, 15, 20);
+        return arena;
+    }
+
+    /**
+     * Adds a wall.
+     *
+     * @param x      the smallest x coordinate covered, in centimetres
+     * @param y      the smallest y coordinate covered, in centimetres
+     * @param width  the extent along x, in centimetres
+     * @param height the extent along y, in centimetres
+     */
+    public synchronized void addWall(double x, double y, double width, double height) {
+        obstacles.add(new Obstacle(x, y, width, height, ObstacleType.WALL, 185));
+    }
+
+    /**
+     * Adds an object for the bot to find.
+     *
+     * @param x      the smallest x coordinate covered, in centimetres
+     * @param y      the smallest y coordinate covered, in centimetres
+     * @param width  the extent along x, in centimetres
+     * @param height the extent along y, in centimetres
+     * @param shade  the grey level the object is drawn with; dark objects stand out best
+     */
+    public synchronized void addObject(double x, double y, double width, double height, int shade) {
+        obstacles.add(new Obstacle(x, y, width, height, ObstacleType.OBJECT, shade));
+    }
+
+    /** @return the floor extent along x, in centimetres */
+    public double getWidth() {
+        return width;
+    }
+
+    /** @return the floor extent along y, in centimetres */
+    public double getHeight() {
+        return height;
+    }
+
+    /** @return the obstacles, enclosing walls first */
+    public synchronized List<Obstacle> getObstacles() {
+        return Collections.unmodifiableList(new ArrayList<>(obstacles));
+    }
+
+    /**
+     * Finds the first obstacle along a ray.
+     *
+     * @param x        the ray origin, in centimetres
+     * @param y        the ray origin, in centimetres
+     * @param heading  the ray direction in radians, counter-clockwise from the x axis
+     * @param maxRange the longest distance to look, in centimetres
+     * @return the nearest hit, or {@code null} if nothing lies within range
+     */
+    public synchronized Hit castRay(double x, double y, double heading, double maxRange) {
+        double dx = Math.cos(heading);
+        double dy = Math.sin(heading);
+        Obstacle nearest = null;
+        double nearestDistance = maxRange;
+        for (int i = 0; i < obstacles.size(); i++) {
+            Obstacle obstacle = obstacles.get(i);
+            double distance = obstacle.intersect(x, y, dx, dy);
+            if (distance <= nearestDistance) {
+                nearest = obstacle;
+                nearestDistance = distance;
+            }
+        }
+        return nearest == null ? null : new Hit(nearestDistance, nearest);
+    }
+
+    /**
+     * @param x      the centre, in centimetres
+     * @param y      the centre, in centimetres
+     * @param radius the radius, in centimetres
+     * @return {@code true} if a circle of that radius around the point overlaps any obstacle
+     */
+    public synchronized boolean collides(double x, double y, double radius) {
+        for (int i = 0; i < obstacles.size(); i++) {
+            if (obstacles.get(i).overlaps(x, y, radius)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
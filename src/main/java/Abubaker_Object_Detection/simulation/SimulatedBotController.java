@@ -0,0 +1,726 @@
+package Abubaker_Object_Detection.simulation;
+
+import Abubaker_Object_Detection.util.SyntheticFrames;
+import bot.BotController;
+import bot.DistanceFilter;
+import swiftbot.Button;
+import swiftbot.ButtonFunction;
+import swiftbot.ImageSize;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link BotController} that drives a virtual SwiftBot around a {@link SimulatedArena}, so the
+ * orchestrator, behaviours, detectors and QR scanners can run on a machine without the robot.
+ * <p>
+ * The simulation models:
+ * <ul>
+ *     <li><strong>Motion:</strong> differential drive, with wheel speeds in the same motor power units
+ *         as the SwiftBot API, calibrated so the timed primitives cover roughly the same distances
+ *         and angles as on the robot. The bot stops against obstacles instead of passing through
+ *         them, and each new contact is counted.</li>
+ *     <li><strong>Ultrasound:</strong> a ray cast from the front of the bot along its heading, with
+ *         Gaussian noise and, optionally, occasional echoes that read much further than the truth.</li>
+ *     <li><strong>Camera:</strong> frames of a plain wall, with an object straight ahead within camera
+ *         range drawn as a dark block scaled by its distance, much like the frames of
+ *         {@link SyntheticFrames} that the contour detector is tuned on. Greyscale stills are 480x480,
+ *         {@link #takeHighQualityPicture()} is a 1080x1080 colour still.
+ *         {@link #takeCustomPicture(ImageSize, BufferedImage)} draws into the caller's image when it
+ *         has the requested size and type.</li>
+ *     <li><strong>QR codes:</strong> while a card is {@link #holdUpQRCode(String) held up}, every frame
+ *         shows it as a QR code rendered with OpenCV, readable by the OpenCV scanner. There is no
+ *         native decoder, so {@link #decodeQRImageNatively(BufferedImage)} never finds a code.</li>
+ *     <li><strong>Buttons and underlights:</strong> handlers are stored and run by
+ *         {@link #pressButton(Button)}; the last underlight colour is kept, and motor and light
+ *         writes are counted.</li>
+ * </ul>
+ * <p>
+ * Simulated time runs {@code timeScale} times faster than real time: a 225 ms turn returns after
+ * 4.5 ms at a scale of 50, and the bot covers fifty times the distance per real second. Only the
+ * simulation is accelerated; callers that pace themselves with {@link Thread#sleep(long)} or
+ * {@link System#currentTimeMillis()} still do so in real time.
+ * <p>
+ * Instances are thread-safe.
+ */
+public class SimulatedBotController implements BotController {
+
+    /** Default speed-up of simulated time over real time. */
+    public static final double DEFAULT_TIME_SCALE = 50;
+
+    /** Default standard deviation of ultrasound readings, in centimetres. */
+    public static final double DEFAULT_NOISE_CM = 1.0;
+
+    private static final double CALIBRATION_FACTOR_50 = 0.33; // Same factors as the SwiftBot controller
+    private static final double CALIBRATION_FACTOR_30 = 0.26;
+    private static final double BOT_RADIUS_CM = 8;
+    private static final double SENSOR_RANGE_CM = 400;
+    private static final double CAMERA_RANGE_CM = 150;
+    private static final double CAMERA_FOCAL_LENGTH = 0.83; // Frame widths per (object width / distance); ~62 degrees
+    private static final long MAX_STEP_NANOS = 10_000_000L; // Longest simulated integration step
+    private static final double MOVE_30CM_FACTOR = 190.0; // As on the robot: milliseconds per unit of speed for ~30 cm
+    private static final long TURN_LEFT_60_MILLIS = 125;
+    private static final long TURN_RIGHT_60_MILLIS = 225;
+    // Wheel speed per unit of motor power, and wheel separation, such that the timed primitives
+    // cover 30 cm and turn 60 degrees (turnRight60; turnLeft60 is shorter on the robot too)
+    private static final double CM_PER_SECOND_PER_SPEED = 30 / MOVE_30CM_FACTOR;
+    private static final double TRACK_WIDTH_CM =
+            2 * 100 * CM_PER_SECOND_PER_SPEED * TURN_RIGHT_60_MILLIS / 1e3 / (Math.PI / 3);
+    private static final int GREY_PICTURE_SIZE = 480;
+    private static final int HIGH_QUALITY_PICTURE_SIZE = 1080;
+    private static final Pattern IMAGE_SIZE_NAME = Pattern.compile("(\\d+)x(\\d+)");
+
+    private final SimulatedArena arena;
+    private final double timeScale;
+    private final double noiseCm;
+    private final double echoProbability;
+    private final Random random;
+    private final long realStartNanos = System.nanoTime();
+
+    // Simulation state, guarded by this
+    private double x;
+    private double y;
+    private double heading;
+    private int leftSpeed;
+    private int rightSpeed;
+    private long simulatedNanos;
+    private long stopAtNanos = Long.MAX_VALUE;
+    private CompletableFuture<Boolean> timedMotion;
+    private boolean inContact;
+    private long collisions;
+    private String qrCodeText;
+    private BufferedImage qrCodeFrame; // Last QR code frame rendered, so a held-up card is encoded once
+    private String qrCodeFrameText;
+    private int[] underlights = {0, 0, 0};
+    private final Map<Button, ButtonFunction> buttons = new EnumMap<>(Button.class);
+    private final DistanceFilter distanceFilter = new DistanceFilter(DistanceFilter.Mode.MEDIAN, 3);
+
+    private final AtomicLong motorWrites = new AtomicLong();
+    private final AtomicLong lightWrites = new AtomicLong();
+    private final AtomicLong distanceReadings = new AtomicLong();
+    private final AtomicLong frames = new AtomicLong();
+
+    /**
+     * Creates a simulated bot in the middle of the arena, facing along the x axis, with the default
+     * time scale and sensor noise and no echoes.
+     *
+     * @param arena the world to drive in
+     */
+    public SimulatedBotController(SimulatedArena arena) {
+        this(arena, DEFAULT_TIME_SCALE, DEFAULT_NOISE_CM, 0, 42);
+    }
+
+    /**
+     * Creates a simulated bot in the middle of the arena, facing along the x axis.
+     *
+     * @param arena           the world to drive in
+     * @param timeScale       how much faster than real time the simulation runs
+     * @param noiseCm         the standard deviation of ultrasound readings, in centimetres
+     * @param echoProbability the chance that an ultrasound reading is an echo, between 0 and 1
+     * @param seed            the seed for sensor noise, so runs can be repeated
+     */
+    public SimulatedBotController(SimulatedArena arena, double timeScale, double noiseCm, double echoProbability,
+                                  long seed) {
+        if (arena == null) {
+            throw new IllegalArgumentException("arena must not be null");
+        }
+        if (timeScale <= 0) {
+            throw new IllegalArgumentException("timeScale must be positive");
+        }
+        if (noiseCm < 0 || echoProbability < 0 || echoProbability > 1) {
+            throw new IllegalArgumentException("noiseCm must not be negative and echoProbability must be in [0, 1]");
+        }
+        this.arena = arena;
+        this.timeScale = timeScale;
+        this.noiseCm = noiseCm;
+        this.echoProbability = echoProbability;
+        this.random = new Random(seed);
+        this.x = arena.getWidth() / 2;
+        this.y = arena.getHeight() / 2;
+    }
+
+    // ----- Simulation control -----
+
+    /**
+     * Moves the bot to a pose, stopping it.
+     *
+     * @param x              the centre of the bot, in centimetres
+     * @param y              the centre of the bot, in centimetres
+     * @param headingDegrees the direction the bot faces, counter-clockwise from the x axis
+     * @throws IllegalArgumentException if the bot would overlap an obstacle there
+     */
+    public synchronized void setPose(double x, double y, double headingDegrees) {
+        if (arena.collides(x, y, BOT_RADIUS_CM)) {
+            throw new IllegalArgumentException("The bot would overlap an obstacle at (" + x + ", " + y + ")");
+        }
+        advance();
+        setSpeeds(0, 0);
+        this.x = x;
+        this.y = y;
+        this.heading = Math.toRadians(headingDegrees);
+        this.inContact = false;
+        distanceFilter.reset();
+    }
+
+    /** @return the x coordinate of the bot's centre, in centimetres */
+    public synchronized double getX() {
+        advance();
+        return x;
+    }
+
+    /** @return the y coordinate of the bot's centre, in centimetres */
+    public synchronized double getY() {
+        advance();
+        return y;
+    }
+
+    /** @return the direction the bot faces, in degrees counter-clockwise from the x axis, in [0, 360) */
+    public synchronized double getHeadingDegrees() {
+        advance();
+        double degrees = Math.toDegrees(heading) % 360;
+        return degrees < 0 ? degrees + 360 : degrees;
+    }
+
+    /**
+     * @return the obstacle straight ahead within camera range, or {@code null}; the ground truth for
+     *         what {@link #takeGreyPicture()} shows
+     */
+    public synchronized SimulatedArena.Obstacle getObstacleInView() {
+        advance();
+        SimulatedArena.Hit hit = castFromFront(CAMERA_RANGE_CM);
+        return hit == null ? null : hit.getObstacle();
+    }
+
+    /**
+     * Shows a QR code encoding {@code text} in every frame until {@link #lowerQRCode()}, as if someone
+     * held a card in front of the camera.
+     *
+     * @param text the text to encode
+     */
+    public synchronized void holdUpQRCode(String text) {
+        this.qrCodeText = text;
+    }
+
+    /** Takes the QR code card away again. */
+    public synchronized void lowerQRCode() {
+        this.qrCodeText = null;
+    }
+
+    /**
+     * Presses a button, running its handler on the calling thread.
+     *
+     * @param button the button to press
+     * @return {@code true} if a handler was enabled for the button
+     */
+    public boolean pressButton(Button button) {
+        ButtonFunction function;
+        synchronized (this) {
+            function = buttons.get(button);
+        }
+        if (function == null) {
+            return false;
+        }
+        function.run();
+        return true;
+    }
+
+    /** @return a copy of the last underlight colour set */
+    public synchronized int[] getUnderlights() {
+        return underlights.clone();
+    }
+
+    /** @return the number of times the bot has run into an obstacle */
+    public synchronized long getCollisionCount() {
+        return collisions;
+    }
+
+    /** @return the simulated time elapsed since the controller was created, in milliseconds */
+    public synchronized long getSimulatedTimeMillis() {
+        advance();
+        return simulatedNanos / 1_000_000L;
+    }
+
+    /** @return how much faster than real time the simulation runs */
+    public double getTimeScale() {
+        return timeScale;
+    }
+
+    /** @return the number of motor commands received */
+    public long getMotorWriteCount() {
+        return motorWrites.get();
+    }
+
+    /** @return the number of underlight commands received */
+    public long getLightWriteCount() {
+        return lightWrites.get();
+    }
+
+    /** @return the number of ultrasound readings taken */
+    public long getDistanceReadingCount() {
+        return distanceReadings.get();
+    }
+
+    /** @return the number of camera frames rendered */
+    public long getFrameCount() {
+        return frames.get();
+    }
+
+    // ----- Underlights -----
+
+    @Override
+    public synchronized void setUnderlights(int[] rgbValue) {
+        lightWrites.incrementAndGet();
+        underlights = rgbValue.clone();
+    }
+
+    @Override
+    public void fillUnderlights(int[] rgbValue) {
+        setUnderlights(rgbValue);
+    }
+
+    @Override
+    public void disableUnderlights() {
+        setUnderlights(new int[] {0, 0, 0});
+    }
+
+    // ----- Motion -----
+
+    @Override
+    public void move(int speed, int speed2, int duration) {
+        awaitMotion(startTimedMotion(speed, speed2, duration));
+    }
+
+    @Override
+    public void moveForward30cm(int speed) {
+        awaitMotion(moveForward30cmAsync(speed));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> moveForward30cmAsync(int speed) {
+        return finishWhenDue(startTimedMotion(speed, speed, duration30cm(speed)));
+    }
+
+    @Override
+    public void moveForward() {
+        startContinuousMotion(50, 50);
+    }
+
+    @Override
+    public void moveForward(int speed, int totalDuration) {
+        // As on the robot: short bursts, stopping early when an object comes within 40 cm
+        long end = currentSimulatedNanos() + totalDuration * 1_000_000L;
+        while (currentSimulatedNanos() < end) {
+            move(speed, speed, 100);
+            if (isObjectDetected(40)) {
+                stopMoving();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void moveBackward30cm(int speed) {
+        awaitMotion(moveBackward30cmAsync(speed));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> moveBackward30cmAsync(int speed) {
+        return finishWhenDue(startTimedMotion(-speed, -speed, duration30cm(speed)));
+    }
+
+    @Override
+    public void moveBackward() {
+        startContinuousMotion(-50, -50);
+    }
+
+    @Override
+    public void turnLeft(int speed) {
+        startContinuousMotion(-speed, speed);
+    }
+
+    @Override
+    public void turnLeft60() {
+        awaitMotion(turnLeft60Async());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> turnLeft60Async() {
+        return finishWhenDue(startTimedMotion(-100, 100, TURN_LEFT_60_MILLIS));
+    }
+
+    @Override
+    public void turnRight(int speed) {
+        startContinuousMotion(speed, -speed);
+    }
+
+    @Override
+    public void turnRight60() {
+        awaitMotion(turnRight60Async());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> turnRight60Async() {
+        return finishWhenDue(startTimedMotion(100, -100, TURN_RIGHT_60_MILLIS));
+    }
+
+    @Override
+    public double reverse(int speed, int totalDuration) {
+        double startX;
+        double startY;
+        synchronized (this) {
+            advance();
+            startX = x;
+            startY = y;
+        }
+        move(-speed, -speed, totalDuration);
+        synchronized (this) {
+            return Math.hypot(x - startX, y - startY); // The distance actually covered
+        }
+    }
+
+    @Override
+    public void stopMoving() {
+        startContinuousMotion(0, 0);
+    }
+
+    // ----- Sensors -----
+
+    @Override
+    public synchronized double measureDistance() {
+        advance();
+        distanceReadings.incrementAndGet();
+        SimulatedArena.Hit hit = castFromFront(SENSOR_RANGE_CM);
+        double distance = hit == null ? SENSOR_RANGE_CM : hit.getDistance();
+        if (random.nextDouble() < echoProbability) {
+            return distance * (1.5 + random.nextDouble()); // A multipath echo, much further than the truth
+        }
+        return Math.max(0, distance + random.nextGaussian() * noiseCm);
+    }
+
+    @Override
+    public boolean isObjectDetected(double threshold) {
+        long sampleNanos = System.nanoTime();
+        double distance = measureDistance();
+        synchronized (this) {
+            distanceFilter.update(distance, sampleNanos);
+            return distanceFilter.getValue() <= threshold;
+        }
+    }
+
+    @Override
+    public synchronized double getSmoothedDistance() {
+        return distanceFilter.getValue();
+    }
+
+    // ----- Camera -----
+
+    @Override
+    public BufferedImage takeGreyPicture() {
+        return render(GREY_PICTURE_SIZE, GREY_PICTURE_SIZE, BufferedImage.TYPE_BYTE_GRAY, null);
+    }
+
+    @Override
+    public BufferedImage takeCustomPicture(ImageSize imageSize) {
+        return takeCustomPicture(imageSize, null);
+    }
+
+    @Override
+    public BufferedImage takeCustomPicture(ImageSize imageSize, BufferedImage into) {
+        // Sizes are named like SQUARE_480x480
+        Matcher matcher = IMAGE_SIZE_NAME.matcher(imageSize.name());
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Unsupported image size " + imageSize);
+        }
+        return render(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                BufferedImage.TYPE_3BYTE_BGR, into);
+    }
+
+    @Override
+    public BufferedImage takeHighQualityPicture() {
+        return render(HIGH_QUALITY_PICTURE_SIZE, HIGH_QUALITY_PICTURE_SIZE, BufferedImage.TYPE_3BYTE_BGR, null);
+    }
+
+    /**
+     * The simulation has no native QR decoder.
+     *
+     * @return always an empty {@code String}
+     */
+    @Override
+    public String decodeQRImageNatively(BufferedImage image) {
+        return "";
+    }
+
+    // ----- Buttons -----
+
+    @Override
+    public synchronized void enableButton(Button button, ButtonFunction function) {
+        buttons.put(button, function);
+    }
+
+    @Override
+    public synchronized void disableButton(Button button) {
+        buttons.remove(button);
+    }
+
+    @Override
+    public synchronized void disableAllButtons() {
+        buttons.clear();
+    }
+
+    @Override
+    public Button getButtonFromString(String button) {
+        switch (button.toUpperCase()) {
+            case "A": return Button.A;
+            case "B": return Button.B;
+            case "X": return Button.X;
+            case "Y": return Button.Y;
+            default: return null;
+        }
+    }
+
+    @Override
+    public void enableButton(String button, Runnable action) {
+        Button simulatedButton = getButtonFromString(button);
+        if (simulatedButton == null) {
+            throw new IllegalArgumentException("Invalid button name: " + button);
+        }
+        enableButton(simulatedButton, action::run);
+    }
+
+    @Override
+    public void disableButton(String button) {
+        Button simulatedButton = getButtonFromString(button);
+        if (simulatedButton == null) {
+            throw new IllegalArgumentException("Invalid button name: " + button);
+        }
+        disableButton(simulatedButton);
+    }
+
+    @Override
+    public double getCalibrationFactor50() {
+        return CALIBRATION_FACTOR_50;
+    }
+
+    @Override
+    public double getCalibrationFactor30() {
+        return CALIBRATION_FACTOR_30;
+    }
+
+    // ----- Simulation internals -----
+
+    private synchronized long currentSimulatedNanos() {
+        advance();
+        return simulatedNanos;
+    }
+
+    /**
+     * Sets the wheels running until the next command. Supersedes a timed motion in progress.
+     */
+    private synchronized void startContinuousMotion(int left, int right) {
+        advance();
+        setSpeeds(left, right);
+    }
+
+    /**
+     * Sets the wheels running for {@code durationMillis} of simulated time. Supersedes a timed
+     * motion in progress.
+     *
+     * @return a future completing with {@code true} once the motion has ended, or {@code false} if
+     *         another motor command superseded it
+     */
+    private synchronized CompletableFuture<Boolean> startTimedMotion(int left, int right, long durationMillis) {
+        advance();
+        setSpeeds(left, right);
+        stopAtNanos = simulatedNanos + durationMillis * 1_000_000L;
+        timedMotion = new CompletableFuture<>();
+        return timedMotion;
+    }
+
+    /**
+     * Must be called with the monitor held, after {@link #advance()}.
+     */
+    private void setSpeeds(int left, int right) {
+        motorWrites.incrementAndGet();
+        leftSpeed = left;
+        rightSpeed = right;
+        stopAtNanos = Long.MAX_VALUE;
+        if (timedMotion != null) {
+            timedMotion.complete(false);
+            timedMotion = null;
+        }
+    }
+
+    /**
+     * Advances the simulation to the current simulated time: moves the bot, stops timed motions
+     * that are due and completes their futures. Must be called with the monitor held.
+     */
+    private void advance() {
+        long now = (long) ((System.nanoTime() - realStartNanos) * timeScale);
+        while (simulatedNanos < now) {
+            long end = Math.min(now, Math.min(stopAtNanos, simulatedNanos + MAX_STEP_NANOS));
+            step((end - simulatedNanos) / 1e9);
+            simulatedNanos = end;
+            if (simulatedNanos >= stopAtNanos) {
+                leftSpeed = 0;
+                rightSpeed = 0;
+                stopAtNanos = Long.MAX_VALUE;
+                if (timedMotion != null) {
+                    timedMotion.complete(true);
+                    timedMotion = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Integrates the differential drive over {@code seconds}, stopping against obstacles.
+     */
+    private void step(double seconds) {
+        if (leftSpeed == 0 && rightSpeed == 0) {
+            return;
+        }
+        double left = leftSpeed * CM_PER_SECOND_PER_SPEED;
+        double right = rightSpeed * CM_PER_SECOND_PER_SPEED;
+        double speed = (left + right) / 2;
+        double midHeading = heading + (right - left) / TRACK_WIDTH_CM * seconds / 2;
+        double nextX = x + speed * Math.cos(midHeading) * seconds;
+        double nextY = y + speed * Math.sin(midHeading) * seconds;
+        heading += (right - left) / TRACK_WIDTH_CM * seconds;
+        if (speed == 0) {
+            return;
+        }
+        if (arena.collides(nextX, nextY, BOT_RADIUS_CM)) {
+            if (!inContact) {
+                collisions++;
+                inContact = true;
+            }
+        } else {
+            x = nextX;
+            y = nextY;
+            inContact = false;
+        }
+    }
+
+    /**
+     * Casts a ray from the front of the bot along its heading. Must be called with the monitor held.
+     */
+    private SimulatedArena.Hit castFromFront(double range) {
+        double frontX = x + BOT_RADIUS_CM * Math.cos(heading);
+        double frontY = y + BOT_RADIUS_CM * Math.sin(heading);
+        return arena.castRay(frontX, frontY, heading, range);
+    }
+
+    /**
+     * Renders what the camera sees: the QR code card if held up, otherwise a wall with the object
+     * straight ahead, if any, drawn as a block whose size falls off with distance. The frame is drawn
+     * into {@code into} if it has the requested size and type, and into a new image otherwise.
+     */
+    private BufferedImage render(int width, int height, int imageType, BufferedImage into) {
+        String qrCode;
+        SimulatedArena.Hit hit;
+        synchronized (this) {
+            advance();
+            qrCode = qrCodeText;
+            hit = castFromFront(CAMERA_RANGE_CM);
+        }
+        frames.incrementAndGet();
+        BufferedImage image = into != null && into.getWidth() == width && into.getHeight() == height
+                && into.getType() == imageType ? into : new BufferedImage(width, height, imageType);
+        Graphics2D graphics = image.createGraphics();
+        // The scene is drawn square and centred, so the image bounds crop a non-square frame
+        int size = Math.max(width, height);
+        int left = (width - size) / 2;
+        int top = (height - size) / 2;
+        if (qrCode != null) {
+            graphics.drawImage(qrCodeFrame(qrCode, size, imageType), left, top, null);
+            graphics.dispose();
+            return image;
+        }
+        graphics.translate(left, top);
+        SyntheticFrames.paintWall(graphics, size);
+        graphics.translate(-left, -top);
+        if (hit != null && hit.getObstacle().getType() == SimulatedArena.ObstacleType.OBJECT) {
+            SimulatedArena.Obstacle object = hit.getObstacle();
+            double objectSize = Math.sqrt(object.getWidth() * object.getHeight());
+            int side = (int) (width * CAMERA_FOCAL_LENGTH * objectSize / Math.max(1, hit.getDistance()));
+            side = Math.max(12, Math.min(side, Math.min(width, height) * 9 / 10));
+            graphics.setColor(new Color(object.getShade(), object.getShade(), object.getShade()));
+            // Objects stand on the floor, so they appear a little below the centre
+            graphics.fillRect((width - side) / 2, Math.min(height - side, height / 2 - side / 3), side, side);
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Returns the QR code frame for {@code text}, encoding it only when the card, size or type
+     * differs from the last frame rendered.
+     */
+    private BufferedImage qrCodeFrame(String text, int size, int imageType) {
+        synchronized (this) {
+            if (qrCodeFrame != null && qrCodeFrame.getWidth() == size && qrCodeFrame.getType() == imageType
+                    && text.equals(qrCodeFrameText)) {
+                return qrCodeFrame;
+            }
+        }
+        // Encode outside the lock so motion and sensing are not held up
+        BufferedImage frame = SyntheticFrames.qrCodeFrame(size, imageType, text);
+        synchronized (this) {
+            qrCodeFrame = frame;
+            qrCodeFrameText = text;
+        }
+        return frame;
+    }
+
+    /**
+     * Makes sure a timed motion's future completes even if nothing else advances the simulation,
+     * by polling from the common pool once the motion is due.
+     */
+    private CompletableFuture<Boolean> finishWhenDue(CompletableFuture<Boolean> motion) {
+        long remainingSimulatedNanos;
+        synchronized (this) {
+            remainingSimulatedNanos = stopAtNanos == Long.MAX_VALUE ? 0 : stopAtNanos - simulatedNanos;
+        }
+        long delayNanos = (long) (remainingSimulatedNanos / timeScale);
+        CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS).execute(() -> awaitMotion(motion));
+        return motion;
+    }
+
+    /**
+     * Blocks until a timed motion has ended, sleeping in real time for the simulated remainder.
+     */
+    private void awaitMotion(CompletableFuture<Boolean> motion) {
+        while (!motion.isDone()) {
+            long remainingSimulatedNanos;
+            synchronized (this) {
+                advance();
+                if (motion.isDone()) {
+                    return;
+                }
+                remainingSimulatedNanos = stopAtNanos - simulatedNanos;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(1, (long) (remainingSimulatedNanos / timeScale)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static long duration30cm(int speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+        return (long) ((MOVE_30CM_FACTOR / speed) * 1_000);
+    }
+}
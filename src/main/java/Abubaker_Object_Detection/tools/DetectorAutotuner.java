@@ -0,0 +1,258 @@
+package Abubaker_Object_Detection.tools;
+
+import Abubaker_Object_Detection.detection.DetectorParameters;
+import Abubaker_Object_Detection.detection.OpenCVObjectDetector;
+import Abubaker_Object_Detection.util.OpenCVLoader;
+import org.opencv.core.Core;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Offline tuning tool for the {@link OpenCVObjectDetector} parameters.
+ * <p>
+ * Loads a labelled image set, evaluates every combination of a parameter grid (minimum contour
+ * area, aspect ratio range, lower Canny threshold coefficient and pyramid depth) and reports, for
+ * each combination, the accuracy, precision and recall against the labels and the mean detection
+ * latency per frame. Combinations are spread across all cores, one detector per worker; OpenCV's
+ * own threading is switched off meanwhile so that workers do not compete with it and the
+ * latencies stay comparable. Finally, the Pareto-optimal settings are listed: those for which no
+ * other combination is both at least as accurate and at least as fast.
+ * <p>
+ * The image directory must contain two subdirectories, {@code object/} with frames that show an
+ * object and {@code empty/} with frames that do not (e.g. sorted encounter photos and wander
+ * frames). Any format ImageIO can read is accepted.
+ * <p>
+ * Usage: {@code DetectorAutotuner <labelled-dir> [repeats]}
+ */
+public class DetectorAutotuner {
+
+    private static final double[] AREA_FRACTIONS = {0.00025, 0.0005, 0.001, 0.002};
+    private static final double[][] ASPECT_RANGES = {{0.1, 8}, {0.15, 5}, {0.25, 4}};
+    private static final double[] CANNY_LOW_STD_DEV_FACTORS = {0.5, 1, 1.5};
+    private static final int[] PYRAMID_LEVELS = {0, 1, 2};
+
+    /** Number of passes over the image set made before measuring each combination. */
+    private static final int WARM_UP_PASSES = 1;
+
+    /** The score of one parameter combination. */
+    private static final class Score {
+        final DetectorParameters parameters;
+        final int truePositives;
+        final int falsePositives;
+        final int trueNegatives;
+        final int falseNegatives;
+        final double millisPerFrame;
+
+        Score(DetectorParameters parameters, int truePositives, int falsePositives,
+              int trueNegatives, int falseNegatives, double millisPerFrame) {
+            this.parameters = parameters;
+            this.truePositives = truePositives;
+            this.falsePositives = falsePositives;
+            this.trueNegatives = trueNegatives;
+            this.falseNegatives = falseNegatives;
+            this.millisPerFrame = millisPerFrame;
+        }
+
+        double accuracy() {
+            int total = truePositives + falsePositives + trueNegatives + falseNegatives;
+            return total == 0 ? 0 : (double) (truePositives + trueNegatives) / total;
+        }
+
+        double precision() {
+            int predicted = truePositives + falsePositives;
+            return predicted == 0 ? 0 : (double) truePositives / predicted;
+        }
+
+        double recall() {
+            int actual = truePositives + falseNegatives;
+            return actual == 0 ? 0 : (double) truePositives / actual;
+        }
+
+        /** @return {@code true} if {@code other} is at least as good on both axes and better on one */
+        boolean isDominatedBy(Score other) {
+            return other.accuracy() >= accuracy() && other.millisPerFrame <= millisPerFrame
+                    && (other.accuracy() > accuracy() || other.millisPerFrame < millisPerFrame);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("acc %.3f  prec %.3f  rec %.3f  %8.3f ms/frame  %s",
+                    accuracy(), precision(), recall(), millisPerFrame, parameters);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: DetectorAutotuner <labelled-dir> [repeats]");
+            System.exit(1);
+        }
+        File root = new File(args[0]);
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        OpenCVLoader.ensureLoaded();
+
+        List<BufferedImage> images = new ArrayList<>();
+        List<Boolean> labels = new ArrayList<>();
+        load(new File(root, "object"), true, images, labels);
+        load(new File(root, "empty"), false, images, labels);
+        if (images.isEmpty()) {
+            System.err.println("No images found under " + root + "/object or " + root + "/empty");
+            System.exit(1);
+        }
+
+        List<DetectorParameters> grid = grid();
+        System.out.printf("Evaluating %d combinations over %d images (%d repeats)%n",
+                grid.size(), images.size(), repeats);
+
+        List<Score> scores = evaluate(grid, images, labels, repeats);
+
+        scores.sort(Comparator.comparingDouble(Score::accuracy).reversed()
+                .thenComparingDouble(score -> score.millisPerFrame));
+        System.out.println();
+        System.out.println("All combinations, most accurate first:");
+        for (Score score : scores) {
+            System.out.println("  " + score);
+        }
+
+        System.out.println();
+        System.out.println("Pareto-optimal settings, fastest first:");
+        for (Score score : paretoFront(scores)) {
+            System.out.println("  " + score);
+        }
+    }
+
+    /**
+     * Builds the parameter grid. Debug images are switched off so the sweep does not write to disk.
+     */
+    private static List<DetectorParameters> grid() {
+        List<DetectorParameters> grid = new ArrayList<>();
+        DetectorParameters base = DetectorParameters.DEFAULT.withSaveDebugImages(false);
+        for (double fraction : AREA_FRACTIONS) {
+            for (double[] aspect : ASPECT_RANGES) {
+                for (double stdDevFactor : CANNY_LOW_STD_DEV_FACTORS) {
+                    for (int levels : PYRAMID_LEVELS) {
+                        grid.add(base.withMinContourAreaFraction(fraction)
+                                .withAspectRatioRange(aspect[0], aspect[1])
+                                .withCannyLow(base.getCannyLowMeanFactor(), stdDevFactor, base.getCannyLowFloor())
+                                .withPyramidLevels(levels));
+                    }
+                }
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * Scores every combination, one per task, using all cores.
+     */
+    private static List<Score> evaluate(List<DetectorParameters> grid, List<BufferedImage> images,
+                                        List<Boolean> labels, int repeats)
+            throws InterruptedException, ExecutionException {
+        int previousThreads = Core.getNumThreads();
+        Core.setNumThreads(1);
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<Score>> futures = new ArrayList<>(grid.size());
+            for (DetectorParameters parameters : grid) {
+                futures.add(executor.submit(() -> score(parameters, images, labels, repeats)));
+            }
+            List<Score> scores = new ArrayList<>(grid.size());
+            for (Future<Score> future : futures) {
+                scores.add(future.get());
+            }
+            return scores;
+        } finally {
+            executor.shutdownNow();
+            Core.setNumThreads(previousThreads);
+        }
+    }
+
+    /**
+     * Runs one combination over the image set and compares its verdicts with the labels.
+     */
+    private static Score score(DetectorParameters parameters, List<BufferedImage> images,
+                               List<Boolean> labels, int repeats) {
+        try (OpenCVObjectDetector detector = new OpenCVObjectDetector(true, parameters, null)) {
+            for (int pass = 0; pass < WARM_UP_PASSES; pass++) {
+                for (BufferedImage image : images) {
+                    detector.detectObject(image);
+                }
+            }
+
+            int truePositives = 0, falsePositives = 0, trueNegatives = 0, falseNegatives = 0;
+            long start = System.nanoTime();
+            for (int pass = 0; pass < repeats; pass++) {
+                for (int i = 0; i < images.size(); i++) {
+                    boolean found = detector.detectObject(images.get(i));
+                    // The detector is deterministic, so the verdicts of the first pass are enough
+                    if (pass > 0) {
+                        continue;
+                    }
+                    boolean labelled = labels.get(i);
+                    if (found && labelled) {
+                        truePositives++;
+                    } else if (found) {
+                        falsePositives++;
+                    } else if (labelled) {
+                        falseNegatives++;
+                    } else {
+                        trueNegatives++;
+                    }
+                }
+            }
+            double millisPerFrame = (System.nanoTime() - start) / 1e6 / ((double) repeats * images.size());
+            return new Score(parameters, truePositives, falsePositives, trueNegatives, falseNegatives, millisPerFrame);
+        }
+    }
+
+    /**
+     * @return the scores that no other score dominates, ordered by latency
+     */
+    private static List<Score> paretoFront(List<Score> scores) {
+        List<Score> front = new ArrayList<>();
+        for (Score candidate : scores) {
+            boolean dominated = false;
+            for (Score other : scores) {
+                if (candidate.isDominatedBy(other)) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                front.add(candidate);
+            }
+        }
+        front.sort(Comparator.comparingDouble(score -> score.millisPerFrame));
+        return front;
+    }
+
+    /**
+     * Reads every image in a directory and records it with the given label.
+     */
+    private static void load(File directory, boolean label, List<BufferedImage> images, List<Boolean> labels)
+            throws IOException {
+        File[] files = directory.listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            BufferedImage image = ImageIO.read(file);
+            if (image == null) {
+                System.err.println("Skipping unreadable file " + file);
+                continue;
+            }
+            images.add(image);
+            labels.add(label);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package Abubaker_Object_Detection.tools;
+
+import Abubaker_Object_Detection.detection.DetectionResult;
+import Abubaker_Object_Detection.detection.DetectionResult.Stage;
+import Abubaker_Object_Detection.detection.DnnObjectDetector;
+import Abubaker_Object_Detection.detection.OpenCVObjectDetector;
+import Abubaker_Object_Detection.util.OpenCVLoader;
+import Abubaker_Object_Detection.util.SyntheticFrames;
+import org.opencv.core.Core;
+
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command-line benchmark for the object detectors.
+ * <p>
+ * Runs the {@link OpenCVObjectDetector} with and without pooled buffers, and with the 2x and 4x
+ * coarse-to-fine search, over synthetic 480x480 greyscale frames (the size used by {@code takeGreyPicture()}) and reports, per frame:
+ * <ul>
+ *     <li>the mean detection latency,</li>
+ *     <li>the Java heap bytes allocated by the detecting thread,</li>
+ *     <li>how many working-buffer sets the pooled detector had to allocate during the
+ *         measured (post warm-up) phase, which is expected to be zero, and</li>
+ *     <li>the OpenCV Mats still created and released per frame (one per contour and per
+ *         {@code findContours} call, and the submat headers of refined regions), which pooling
+ *         cannot avoid; see {@link OpenCVObjectDetector#getTransientNativeMatCount()}.</li>
+ * </ul>
+ * It then measures the throughput of {@link OpenCVObjectDetector#detectBatch(List, int)} for
+ * increasing parallelism, to show how batch detection scales with the number of cores. During
+ * each batch, OpenCV's own thread count is lowered to {@code cores / parallelism} so the workers
+ * do not oversubscribe the CPU.
+ * <p>
+ * When an ONNX model is given, the {@link DnnObjectDetector} is measured on the same frames for
+ * every requested input size, alongside the contour detector: construction (including warm-up),
+ * the first frame after construction, and the steady-state latency split into conversion,
+ * inference and decoding, so the two detectors can be compared per deployment. With
+ * {@code --threads n}, OpenCV's thread count (which the detectors leave alone, as it is a
+ * process-wide setting) is set to {@code n} for these runs and restored afterwards.
+ * <p>
+ * Usage: {@code DetectorBenchmark [--threads n] [frames] [model.onnx] [inputSize,...]}
+ */
+public class DetectorBenchmark {
+
+    private static final int FRAME_SIZE = 480;
+    private static final int WARM_UP_FRAMES = 200;
+
+    public static void main(String[] args) {
+        int threads = 0;
+        List<String> positional = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        if (threads < 0) {
+            throw new IllegalArgumentException("--threads must not be negative");
+        }
+        int frames = positional.size() > 0 ? Integer.parseInt(positional.get(0)) : 2000;
+
+        OpenCVLoader.ensureLoaded();
+
+        BufferedImage[] images = {
+                SyntheticFrames.emptyFrame(FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY),
+                SyntheticFrames.objectFrame(FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY)
+        };
+
+        try (OpenCVObjectDetector unpooled = new OpenCVObjectDetector(false);
+             OpenCVObjectDetector pooled = new OpenCVObjectDetector(true);
+             OpenCVObjectDetector pyramid2x = new OpenCVObjectDetector(true, 1, null);
+             OpenCVObjectDetector pyramid4x = new OpenCVObjectDetector(true, 2, null)) {
+            run("unpooled", unpooled, images, frames);
+            run("pooled", pooled, images, frames);
+            run("pyramid2x", pyramid2x, images, frames);
+            run("pyramid4x", pyramid4x, images, frames);
+
+            List<BufferedImage> batch = new ArrayList<>(frames);
+            for (int i = 0; i < frames; i++) {
+                batch.add(images[i % images.length]);
+            }
+            runBatch(pooled, batch);
+        }
+
+        if (positional.size() > 1) {
+            String[] sizes = positional.size() > 2
+                    ? positional.get(2).split(",")
+                    : new String[]{"" + DnnObjectDetector.DEFAULT_INPUT_SIZE};
+            int previousThreads = Core.getNumThreads();
+            if (threads > 0) {
+                Core.setNumThreads(threads);
+            }
+            System.out.println("dnn runs with " + Core.getNumThreads() + " OpenCV threads");
+            try {
+                for (String size : sizes) {
+                    runDnn(positional.get(1), Integer.parseInt(size.trim()), images, frames);
+                }
+            } finally {
+                Core.setNumThreads(previousThreads);
+            }
+        }
+    }
+
+    /**
+     * Loads the model at the given input size and measures construction, the first frame and
+     * the steady-state latency per stage.
+     */
+    private static void runDnn(String modelPath, int inputSize, BufferedImage[] images, int frames) {
+        long start = System.nanoTime();
+        try (DnnObjectDetector detector = new DnnObjectDetector(modelPath, inputSize,
+                DnnObjectDetector.DEFAULT_CONFIDENCE_THRESHOLD, DnnObjectDetector.DEFAULT_WARM_UP_RUNS)) {
+            long constructed = System.nanoTime() - start;
+            long first = detector.detect(images[0]).getTotalNanos();
+
+            // The network is far slower than the contour pipeline, so measure fewer frames
+            int dnnFrames = Math.max(1, frames / 10);
+            long[] stages = new long[Stage.values().length];
+            long total = 0;
+            for (int i = 0; i < dnnFrames; i++) {
+                DetectionResult result = detector.detect(images[i % images.length]);
+                total += result.getTotalNanos();
+                for (Stage stage : Stage.values()) {
+                    stages[stage.ordinal()] += result.getStageNanos(stage);
+                }
+            }
+
+            System.out.printf("dnn%-7d %8.3f ms/frame (conversion %.3f, inference %.3f, decode %.3f)"
+                            + " construct+warm-up %.1f ms (warm-up %.1f ms), first frame %.3f ms%n",
+                    inputSize, total / 1e6 / dnnFrames,
+                    stages[Stage.CONVERSION.ordinal()] / 1e6 / dnnFrames,
+                    stages[Stage.INFERENCE.ordinal()] / 1e6 / dnnFrames,
+                    stages[Stage.CONTOURS.ordinal()] / 1e6 / dnnFrames,
+                    constructed / 1e6, detector.getWarmUpNanos() / 1e6, first / 1e6);
+        }
+    }
+
+    /**
+     * Measures batch throughput for parallelism 1, 2, 4, ... up to the number of cores.
+     */
+    private static void runBatch(OpenCVObjectDetector detector, List<BufferedImage> batch) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        detector.detectBatch(batch.subList(0, Math.min(batch.size(), WARM_UP_FRAMES)), cores);
+
+        int previousThreads = Core.getNumThreads();
+        for (int parallelism = 1; ; parallelism = Math.min(cores, parallelism * 2)) {
+            Core.setNumThreads(Math.max(1, cores / parallelism));
+            long start = System.nanoTime();
+            try {
+                detector.detectBatch(batch, parallelism);
+            } finally {
+                Core.setNumThreads(previousThreads);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("batch x%-3d %10.1f frames/s%n", parallelism, batch.size() / seconds);
+            if (parallelism == cores) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Warms up and then measures a single detector configuration.
+     */
+    private static void run(String label, OpenCVObjectDetector detector, BufferedImage[] images, int frames) {
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            detector.detectObject(images[i % images.length]);
+        }
+
+        long buffersBefore = detector.getPooledBufferAllocations();
+        long matsBefore = detector.getTransientNativeMatCount();
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+
+        for (int i = 0; i < frames; i++) {
+            detector.detectObject(images[i % images.length]);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long bytes = allocatedBytes() - bytesBefore;
+        long buffers = detector.getPooledBufferAllocations() - buffersBefore;
+        long mats = detector.getTransientNativeMatCount() - matsBefore;
+
+        System.out.printf("%-10s %8.3f ms/frame %10.1f heap bytes/frame %4d buffer sets allocated"
+                        + " %6.1f transient Mats/frame%n",
+                label, elapsed / 1e6 / frames, (double) bytes / frames, buffers, (double) mats / frames);
+    }
+
+    /**
+     * @return the number of heap bytes allocated so far by the current thread, or {@code -1}
+     *         if the JVM does not support allocation measurement
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
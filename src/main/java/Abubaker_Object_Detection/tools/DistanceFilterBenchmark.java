@@ -0,0 +1,124 @@
+package Abubaker_Object_Detection.tools;
+
+import bot.DistanceFilter;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+
+/**
+ * Command-line microbenchmark for the ultrasound {@link DistanceFilter}s.
+ * <p>
+ * Feeds every filter mode the same synthetic readings: an object approaching at a constant speed,
+ * sampled every 50 ms with Gaussian noise and occasional echo spikes. For each mode it reports the
+ * mean time per update, including reading the filtered value and rate. The previous smoothing, a mean
+ * over a {@code Queue<Double>} of three readings, is timed on the same readings for comparison.
+ * <p>
+ * How well the filters track the distance, reject echoes and estimate the rate is checked by
+ * {@code DistanceFilterTest}, not here.
+ * <p>
+ * Usage: {@code DistanceFilterBenchmark [updates]}
+ */
+public class DistanceFilterBenchmark {
+
+    private static final int WARM_UP_UPDATES = 200_000;
+    private static final long SAMPLE_PERIOD_NANOS = 50_000_000L;
+    private static final double START_DISTANCE = 200; // cm
+    private static final double SPEED = -20; // cm/s, approaching
+    private static final double NOISE = 1.5; // cm, standard deviation
+    private static final double ECHO_PROBABILITY = 0.03;
+
+    public static void main(String[] args) {
+        int updates = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        // One approach from START_DISTANCE to 0 cm, repeated; precomputed so the loop only filters
+        int samples = (int) (START_DISTANCE / -SPEED / (SAMPLE_PERIOD_NANOS / 1e9));
+        double[] readings = new double[samples];
+        Random random = new Random(42);
+        for (int i = 0; i < samples; i++) {
+            double truth = START_DISTANCE + SPEED * i * SAMPLE_PERIOD_NANOS / 1e9;
+            readings[i] = random.nextDouble() < ECHO_PROBABILITY
+                    ? truth * (1.5 + random.nextDouble()) // Multipath echo: much further than the object
+                    : truth + random.nextGaussian() * NOISE;
+        }
+
+        System.out.printf("%d updates over %d-sample approaches at %.0f cm/s, noise %.1f cm, %.0f%% echoes%n",
+                updates, samples, SPEED, NOISE, ECHO_PROBABILITY * 100);
+        for (DistanceFilter.Mode mode : DistanceFilter.Mode.values()) {
+            run(mode.name(), new DistanceFilter(mode), readings, updates);
+        }
+        run("MEDIAN(3)", new DistanceFilter(DistanceFilter.Mode.MEDIAN, 3), readings, updates);
+        runBoxedQueue(readings, updates);
+    }
+
+    /**
+     * Times one filter after a warm-up.
+     */
+    private static void run(String label, DistanceFilter filter, double[] readings, int updates) {
+        feed(filter, readings, WARM_UP_UPDATES);
+        filter.reset();
+
+        long start = System.nanoTime();
+        double sink = feed(filter, readings, updates);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-15s %7.1f ns/update%s%n", label, (double) elapsed / updates, sink == 42 ? " " : "");
+    }
+
+    /**
+     * Adds {@code updates} readings to the filter, cycling through the approach.
+     *
+     * @return a value depending on every result, so the JIT cannot drop the reads
+     */
+    private static double feed(DistanceFilter filter, double[] readings, int updates) {
+        double sink = 0;
+        long nanos = 0;
+        for (int i = 0, j = 0; i < updates; i++) {
+            filter.update(readings[j], nanos);
+            sink += filter.getValue() + filter.getRateOfChange();
+            nanos += SAMPLE_PERIOD_NANOS;
+            if (++j == readings.length) {
+                j = 0;
+            }
+        }
+        return sink;
+    }
+
+    /**
+     * Times the previous smoothing: a boxed queue of the last three readings, averaged on every read.
+     */
+    private static void runBoxedQueue(double[] readings, int updates) {
+        ArrayDeque<Double> queue = new ArrayDeque<>(3);
+        feedBoxedQueue(queue, readings, WARM_UP_UPDATES);
+        queue.clear();
+
+        long start = System.nanoTime();
+        double sink = feedBoxedQueue(queue, readings, updates);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-15s %7.1f ns/update%s%n", "Queue<Double>", (double) elapsed / updates,
+                sink == 42 ? " " : "");
+    }
+
+    private static double feedBoxedQueue(ArrayDeque<Double> queue, double[] readings, int updates) {
+        double sink = 0;
+        for (int i = 0, j = 0; i < updates; i++) {
+            sink += addToBoxedQueue(queue, readings[j]);
+            if (++j == readings.length) {
+                j = 0;
+            }
+        }
+        return sink;
+    }
+
+    private static double addToBoxedQueue(ArrayDeque<Double> queue, double distance) {
+        if (queue.size() >= 3) {
+            queue.poll();
+        }
+        queue.offer(distance);
+        double total = 0;
+        for (double d : queue) {
+            total += d;
+        }
+        return total / queue.size();
+    }
+}
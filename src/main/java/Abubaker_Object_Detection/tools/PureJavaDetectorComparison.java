@@ -0,0 +1,70 @@
+package Abubaker_Object_Detection.tools;
+
+import Abubaker_Object_Detection.detection.DetectorParameters;
+import Abubaker_Object_Detection.detection.ObjectDetector;
+import Abubaker_Object_Detection.detection.OpenCVObjectDetector;
+import Abubaker_Object_Detection.detection.PureJavaObjectDetector;
+import Abubaker_Object_Detection.util.OpenCVLoader;
+import Abubaker_Object_Detection.util.SyntheticFrames;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Compares the throughput of the {@link PureJavaObjectDetector} with that of the
+ * {@link OpenCVObjectDetector} it mirrors.
+ * <p>
+ * The OpenCV detector and the pure-Java detector with plain loops and with the Vector API are timed
+ * on 480x480 greyscale frames. Build with the {@code vector} profile and run with
+ * {@code --add-modules jdk.incubator.vector} to include the Vector API variant. That both detectors
+ * reach the same verdicts is checked by {@code PureJavaObjectDetectorTest}.
+ * <p>
+ * Usage: {@code PureJavaDetectorComparison [frames]}
+ */
+public class PureJavaDetectorComparison {
+
+    private static final int FRAME_SIZE = 480;
+    private static final int WARM_UP_FRAMES = 200;
+
+    public static void main(String[] args) {
+        int frames = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        OpenCVLoader.ensureLoaded();
+
+        DetectorParameters parameters = DetectorParameters.DEFAULT.withSaveDebugImages(false);
+        PureJavaObjectDetector scalar = new PureJavaObjectDetector(parameters, false);
+        PureJavaObjectDetector vector = new PureJavaObjectDetector(parameters, true);
+
+        try (OpenCVObjectDetector openCV = new OpenCVObjectDetector(true, parameters, null)) {
+            BufferedImage[] images = {
+                    SyntheticFrames.emptyFrame(FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY),
+                    SyntheticFrames.objectFrame(FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY)
+            };
+            time("opencv", openCV, images, frames);
+            time("java", scalar, images, frames);
+            if (vector.isVectorized()) {
+                time("java+simd", vector, images, frames);
+            } else {
+                System.out.println("java+simd  skipped (build with -Pvector and start the JVM with "
+                        + "--add-modules jdk.incubator.vector)");
+            }
+        }
+    }
+
+    /**
+     * Warms up and then measures one detector.
+     */
+    private static void time(String label, ObjectDetector detector, BufferedImage[] images, int frames) {
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            detector.detectObject(images[i % images.length]);
+        }
+        long bytesBefore = DetectorBenchmark.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++) {
+            detector.detectObject(images[i % images.length]);
+        }
+        long elapsed = System.nanoTime() - start;
+        long bytes = DetectorBenchmark.allocatedBytes() - bytesBefore;
+        System.out.printf("%-10s %8.3f ms/frame %10.1f frames/s %10.1f heap bytes/frame%n",
+                label, elapsed / 1e6 / frames, frames / (elapsed / 1e9), (double) bytes / frames);
+    }
+}
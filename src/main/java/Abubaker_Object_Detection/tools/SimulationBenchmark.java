@@ -0,0 +1,134 @@
+package Abubaker_Object_Detection.tools;
+
+import Abubaker_Object_Detection.detection.OpenCVObjectDetector;
+import Abubaker_Object_Detection.orchestrator.BotOrchestrator;
+import Abubaker_Object_Detection.selection.OpenCVQRCodeScanner;
+import Abubaker_Object_Detection.simulation.SimulatedArena;
+import Abubaker_Object_Detection.simulation.SimulatedBotController;
+import Abubaker_Object_Detection.util.OpenCVLoader;
+import bot.DistanceReading;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Command-line benchmark that runs the mode-selection and encounter paths against a
+ * {@link SimulatedBotController} in the default {@link SimulatedArena}, without the robot.
+ * <p>
+ * It reports, each as iterations per minute of real time:
+ * <ul>
+ *     <li>mode selection: {@link BotOrchestrator#scanQRCodeProgressively} with a QR code held up
+ *         in front of the simulated camera;</li>
+ *     <li>encounters: the bot is placed at random poses, reads the ultrasound sensor, and, with
+ *         something within 40 cm, takes a greyscale picture and runs the object detector;</li>
+ *     <li>motion: 30 cm moves and 60 degree turns driven around the arena, with the simulated time
+ *         covered per real second.</li>
+ * </ul>
+ * Only throughput is reported. That the simulation casts rays, stops at obstacles, covers the
+ * right distances and shows decodable QR codes is checked by the tests of the simulation package.
+ * <p>
+ * Usage: {@code SimulationBenchmark [iterations] [timeScale]}
+ */
+public class SimulationBenchmark {
+
+    private static final String MODE_TEXT = "Curious SwiftBot";
+    private static final double ENCOUNTER_DISTANCE = 40; // cm, as used by the behaviours
+    private static final int WARM_UP_ITERATIONS = 50;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double timeScale = args.length > 1 ? Double.parseDouble(args[1]) : SimulatedBotController.DEFAULT_TIME_SCALE;
+
+        OpenCVLoader.ensureLoaded();
+
+        SimulatedArena arena = SimulatedArena.createDefault();
+        SimulatedBotController simulation = new SimulatedBotController(arena, timeScale,
+                SimulatedBotController.DEFAULT_NOISE_CM, 0.02, 42);
+
+        try (OpenCVObjectDetector detector = new OpenCVObjectDetector(true);
+             OpenCVQRCodeScanner scanner = new OpenCVQRCodeScanner()) {
+            BotOrchestrator orchestrator = new BotOrchestrator(simulation, scanner, detector);
+
+            runModeSelection(simulation, orchestrator, scanner, iterations);
+            runEncounters(arena, simulation, detector, iterations);
+            runMotion(simulation, iterations / 10);
+        }
+    }
+
+    private static void runModeSelection(SimulatedBotController simulation, BotOrchestrator orchestrator,
+                                         OpenCVQRCodeScanner scanner, int iterations) {
+        simulation.holdUpQRCode(MODE_TEXT);
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            orchestrator.scanQRCodeProgressively(scanner);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            orchestrator.scanQRCodeProgressively(scanner);
+        }
+        long elapsed = System.nanoTime() - start;
+        simulation.lowerQRCode();
+
+        System.out.printf("mode selection: %d scans, %.0f scans/min, %.2f ms/scan%n",
+                iterations, perMinute(iterations, elapsed), elapsed / 1e6 / iterations);
+    }
+
+    private static void runEncounters(SimulatedArena arena, SimulatedBotController simulation,
+                                      OpenCVObjectDetector detector, int iterations) {
+        Random random = new Random(7);
+        int encounters = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            placeRandomly(arena, simulation, random);
+            DistanceReading reading = simulation.readDistance();
+            if (reading.getDistance() >= ENCOUNTER_DISTANCE) {
+                continue;
+            }
+            encounters++;
+            BufferedImage image = simulation.takeGreyPicture();
+            detector.detectObject(image);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.printf("encounters: %d poses, %d within %.0f cm, %.0f poses/min%n",
+                iterations, encounters, ENCOUNTER_DISTANCE, perMinute(iterations, elapsed));
+    }
+
+    private static void runMotion(SimulatedBotController simulation, int moves) {
+        simulation.setPose(75, 200, 0);
+        long simulatedStart = simulation.getSimulatedTimeMillis();
+        long start = System.nanoTime();
+        for (int i = 0; i < moves; i++) {
+            if (simulation.isObjectDetected(ENCOUNTER_DISTANCE)) {
+                simulation.turnRight60();
+            } else {
+                simulation.moveForward30cm(50);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        double simulatedSeconds = (simulation.getSimulatedTimeMillis() - simulatedStart) / 1e3;
+
+        System.out.printf("motion: %d moves, %.1f simulated s in %.2f real s (%.0fx), %.0f moves/min%n",
+                moves, simulatedSeconds, elapsed / 1e9, simulatedSeconds / (elapsed / 1e9), perMinute(moves, elapsed));
+    }
+
+    /**
+     * Moves the bot to a random free spot on the floor, facing a random direction.
+     */
+    private static void placeRandomly(SimulatedArena arena, SimulatedBotController simulation, Random random) {
+        while (true) {
+            double x = random.nextDouble() * arena.getWidth();
+            double y = random.nextDouble() * arena.getHeight();
+            try {
+                simulation.setPose(x, y, random.nextDouble() * 360);
+                return;
+            } catch (IllegalArgumentException e) {
+                // Overlaps an obstacle: try elsewhere
+            }
+        }
+    }
+
+    private static double perMinute(int count, long elapsedNanos) {
+        return count * 60e9 / elapsedNanos;
+    }
+}
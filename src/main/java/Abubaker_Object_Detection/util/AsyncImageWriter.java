@@ -0,0 +1,371 @@
+package Abubaker_Object_Detection.util;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists images (encounter photos and debug frames) on a background thread so that the
+ * detection and behaviour threads only pay for handing the image over.
+ * <p>
+ * Images are placed on a bounded queue and encoded by a single daemon thread. When the queue is
+ * full, the configured {@link DropPolicy} decides whether the new image is dropped, the oldest
+ * queued image is dropped, or the caller blocks until space is available. Every image is written
+ * to a unique file name ({@code <prefix>_<timestamp>_<sequence>.<ext>}), so several producers
+ * can safely write at the same time.
+ * <p>
+ * {@link BufferedImage}s are queued by reference and must not be modified after submission;
+ * OpenCV {@link Mat}s are cloned on submission, so the caller may keep reusing its own Mat.
+ * {@link #close()} stops accepting new images and flushes everything still queued.
+ */
+public class AsyncImageWriter implements AutoCloseable {
+
+    /**
+     * What to do when an image is submitted while the queue is full.
+     */
+    public enum DropPolicy {
+        /** Discard the image being submitted. */
+        DROP_NEWEST,
+        /** Discard the oldest queued image to make room for the new one. */
+        DROP_OLDEST,
+        /** Block the submitting thread until there is room. */
+        BLOCK
+    }
+
+    /**
+     * Output image format.
+     */
+    public enum Format {
+        JPEG("jpg"),
+        PNG("png");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        /**
+         * @return the file extension (and ImageIO format name) used for this format
+         */
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    /** Default number of images that can be waiting to be written. */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /** Default JPEG quality, between 0 and 1. */
+    public static final float DEFAULT_QUALITY = 0.9f;
+
+    /** A single queued write request. Exactly one of {@code image} and {@code mat} is set. */
+    private static final class Task {
+        final BufferedImage image;
+        final Mat mat;
+        final File file;
+
+        Task(BufferedImage image, Mat mat, File file) {
+            this.image = image;
+            this.mat = mat;
+            this.file = file;
+        }
+
+        /** Releases the native copy held by this task, if any. */
+        void discard() {
+            if (mat != null) {
+                mat.release();
+            }
+        }
+    }
+
+    private final File directory;
+    private final DropPolicy dropPolicy;
+    private final Format format;
+    private final float quality;
+
+    private final BlockingQueue<Task> queue;
+    private final Thread worker;
+
+    /** Sequence number appended to file names to make them unique. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /** Guards {@link #pending}; notified whenever it drops to zero. */
+    private final Object pendingLock = new Object();
+
+    /** Number of images accepted but not yet written (queued or being encoded). */
+    private int pending;
+
+    private volatile boolean closed;
+
+    /**
+     * Creates a writer that stores JPEGs in the working directory, using the default capacity
+     * and quality and dropping the oldest queued image when full.
+     */
+    public AsyncImageWriter() {
+        this(new File("."), DEFAULT_CAPACITY, DropPolicy.DROP_OLDEST, Format.JPEG, DEFAULT_QUALITY);
+    }
+
+    /**
+     * Creates a writer and starts its background thread.
+     *
+     * @param directory  the directory images are written to
+     * @param capacity   the maximum number of images waiting to be written
+     * @param dropPolicy what to do when the queue is full
+     * @param format     the output format
+     * @param quality    the JPEG quality between 0 and 1 (ignored for PNG)
+     */
+    public AsyncImageWriter(File directory, int capacity, DropPolicy dropPolicy, Format format, float quality) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        if (quality < 0 || quality > 1) {
+            throw new IllegalArgumentException("quality must be between 0 and 1");
+        }
+        this.directory = directory;
+        this.dropPolicy = dropPolicy;
+        this.format = format;
+        this.quality = quality;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        this.worker = new Thread(this::drain, "image-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Queues a {@link BufferedImage} to be written.
+     *
+     * @param image  the image; must not be modified after submission
+     * @param prefix the file name prefix (e.g. {@code "picture"})
+     * @return the file the image will be written to, or {@code null} if it was dropped
+     */
+    public File submit(BufferedImage image, String prefix) {
+        return enqueue(new Task(image, null, nextFile(prefix)));
+    }
+
+    /**
+     * Queues an OpenCV {@link Mat} to be written. The Mat is cloned, so the caller keeps
+     * ownership of {@code mat} and may reuse it immediately.
+     *
+     * @param mat    the image data (greyscale or BGR)
+     * @param prefix the file name prefix (e.g. {@code "detected_objects"})
+     * @return the file the image will be written to, or {@code null} if it was dropped
+     */
+    public File submit(Mat mat, String prefix) {
+        return enqueue(new Task(null, mat.clone(), nextFile(prefix)));
+    }
+
+    /**
+     * Blocks until every image accepted so far has been written, or the timeout expires.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of {@code timeout}
+     * @return {@code true} if all images were written, {@code false} on timeout
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (pendingLock) {
+            while (pending > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(pendingLock, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting images, waits up to 10 seconds for the queue to drain and then stops the
+     * background thread. Images still queued after the timeout are discarded.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (!flush(10, TimeUnit.SECONDS)) {
+                Logger.logError("Timed out flushing " + queue.size() + " queued image(s)", null);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker.interrupt();
+    }
+
+    /** @return the number of images written successfully */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /** @return the number of images dropped because the queue was full or the writer was closed */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** @return the number of images that failed to encode or write */
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Applies the drop policy and hands the task to the worker thread.
+     */
+    private File enqueue(Task task) {
+        if (closed) {
+            drop(task);
+            return null;
+        }
+
+        synchronized (pendingLock) {
+            pending++;
+        }
+
+        boolean accepted;
+        switch (dropPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(task);
+                    accepted = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    accepted = false;
+                }
+                break;
+            case DROP_OLDEST:
+                accepted = queue.offer(task);
+                while (!accepted) {
+                    Task oldest = queue.poll();
+                    if (oldest != null) {
+                        drop(oldest);
+                        completed();
+                    }
+                    accepted = queue.offer(task);
+                }
+                break;
+            case DROP_NEWEST:
+            default:
+                accepted = queue.offer(task);
+                break;
+        }
+
+        if (!accepted) {
+            drop(task);
+            completed();
+            return null;
+        }
+        return task.file;
+    }
+
+    /**
+     * Body of the background thread: writes queued images until interrupted.
+     */
+    private void drain() {
+        while (true) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                write(task);
+                written.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                Logger.logError("Error saving the image " + task.file.getName(), e);
+            } finally {
+                task.discard();
+                completed();
+            }
+        }
+
+        // Release anything left behind when the writer was stopped
+        Task task;
+        while ((task = queue.poll()) != null) {
+            drop(task);
+            completed();
+        }
+    }
+
+    /**
+     * Encodes a single task to disk.
+     */
+    private void write(Task task) throws IOException {
+        if (task.mat != null) {
+            MatOfInt params = format == Format.JPEG
+                    ? new MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, Math.round(quality * 100))
+                    : new MatOfInt();
+            try {
+                if (!Imgcodecs.imwrite(task.file.getPath(), task.mat, params)) {
+                    throw new IOException("imwrite failed");
+                }
+            } finally {
+                params.release();
+            }
+            return;
+        }
+
+        if (format == Format.PNG) {
+            if (!ImageIO.write(task.image, format.getExtension(), task.file)) {
+                throw new IOException("No ImageIO writer for " + format);
+            }
+            return;
+        }
+
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format.getExtension());
+        if (!writers.hasNext()) {
+            throw new IOException("No ImageIO writer for " + format);
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(task.file)) {
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(task.image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private File nextFile(String prefix) {
+        return new File(directory, prefix + "_" + System.currentTimeMillis() + "_"
+                + sequence.incrementAndGet() + "." + format.getExtension());
+    }
+
+    private void drop(Task task) {
+        task.discard();
+        dropped.incrementAndGet();
+    }
+
+    /** Marks one accepted image as finished (written, failed or dropped). */
+    private void completed() {
+        synchronized (pendingLock) {
+            if (--pending == 0) {
+                pendingLock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package Abubaker_Object_Detection.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Computes a fast 64-bit content hash of a {@link BufferedImage}'s pixels.
+ * <p>
+ * For tightly packed byte and int rasters (the types produced by the SwiftBot camera and by
+ * {@code ImageIO}) the backing array is hashed directly, eight bytes at a time, using four
+ * independent lanes in the style of xxHash64 so the CPU can overlap the multiplications. Other
+ * rasters are hashed row by row through {@link BufferedImage#getRGB}. The image's width, height
+ * and type are mixed into the seed, so images with equal bytes but different shapes differ.
+ * <p>
+ * The hash is not cryptographic; it is intended for cache keys where an accidental collision
+ * between two camera frames is vanishingly unlikely.
+ */
+public final class ImageHasher {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    /** Reads little-endian longs straight out of a byte array. */
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** Per-thread row buffer for the {@code getRGB} fallback. */
+    private static final ThreadLocal<int[]> ROW = new ThreadLocal<>();
+
+    private ImageHasher() {
+    }
+
+    /**
+     * Hashes the pixels of an image.
+     *
+     * @param image the image to hash
+     * @return a 64-bit hash of the image's dimensions, type and pixels
+     */
+    public static long hash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long seed = ((long) width << 40) ^ ((long) height << 16) ^ image.getType();
+
+        Raster raster = image.getRaster();
+        DataBuffer buffer = raster.getDataBuffer();
+        boolean untranslated = raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && buffer.getNumBanks() == 1
+                && buffer.getOffset() == 0;
+
+        if (untranslated && buffer instanceof DataBufferByte
+                && raster.getSampleModel() instanceof ComponentSampleModel) {
+            ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+            byte[] data = ((DataBufferByte) buffer).getData();
+            if (data.length == model.getScanlineStride() * height) {
+                return hashBytes(data, seed);
+            }
+        }
+
+        if (untranslated && buffer instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            int[] data = ((DataBufferInt) buffer).getData();
+            if (data.length == model.getScanlineStride() * height) {
+                return hashInts(data, data.length, seed);
+            }
+        }
+
+        return hashRows(image, seed);
+    }
+
+    /**
+     * Hashes a byte array, eight bytes at a time.
+     */
+    static long hashBytes(byte[] data, long seed) {
+        int length = data.length;
+        int index = 0;
+        long hash;
+
+        if (length >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = length - 32;
+            do {
+                v1 = round(v1, (long) LONGS.get(data, index));
+                v2 = round(v2, (long) LONGS.get(data, index + 8));
+                v3 = round(v3, (long) LONGS.get(data, index + 16));
+                v4 = round(v4, (long) LONGS.get(data, index + 24));
+                index += 32;
+            } while (index <= limit);
+            hash = merge(v1, v2, v3, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+
+        hash += length;
+        for (; index + 8 <= length; index += 8) {
+            hash ^= round(0, (long) LONGS.get(data, index));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        for (; index < length; index++) {
+            hash ^= (data[index] & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        return avalanche(hash);
+    }
+
+    /**
+     * Hashes the first {@code length} entries of an int array, two ints at a time.
+     */
+    static long hashInts(int[] data, int length, long seed) {
+        int index = 0;
+        long hash;
+
+        if (length >= 8) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            int limit = length - 8;
+            do {
+                v1 = round(v1, pack(data[index], data[index + 1]));
+                v2 = round(v2, pack(data[index + 2], data[index + 3]));
+                v3 = round(v3, pack(data[index + 4], data[index + 5]));
+                v4 = round(v4, pack(data[index + 6], data[index + 7]));
+                index += 8;
+            } while (index <= limit);
+            hash = merge(v1, v2, v3, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+
+        hash += (long) length * 4;
+        for (; index < length; index++) {
+            hash ^= (data[index] & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+        }
+        return avalanche(hash);
+    }
+
+    /**
+     * Fallback for unusual rasters: hashes each row's ARGB values and chains the row hashes.
+     */
+    private static long hashRows(BufferedImage image, long seed) {
+        int width = image.getWidth();
+        int[] row = ROW.get();
+        if (row == null || row.length < width) {
+            row = new int[width];
+            ROW.set(row);
+        }
+
+        long hash = seed;
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            hash = hashInts(row, width, hash);
+        }
+        return hash;
+    }
+
+    private static long pack(int low, int high) {
+        return (low & 0xFFFFFFFFL) | ((long) high << 32);
+    }
+
+    private static long round(long accumulator, long input) {
+        accumulator += input * PRIME2;
+        accumulator = Long.rotateLeft(accumulator, 31);
+        return accumulator * PRIME1;
+    }
+
+    private static long merge(long v1, long v2, long v3, long v4) {
+        long hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        hash = (hash ^ round(0, v1)) * PRIME1 + PRIME4;
+        hash = (hash ^ round(0, v2)) * PRIME1 + PRIME4;
+        hash = (hash ^ round(0, v3)) * PRIME1 + PRIME4;
+        hash = (hash ^ round(0, v4)) * PRIME1 + PRIME4;
+        return hash;
+    }
+
+    private static long avalanche(long hash) {
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+}
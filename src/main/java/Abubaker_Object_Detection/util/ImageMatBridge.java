@@ -0,0 +1,254 @@
+package Abubaker_Object_Detection.util;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfInt;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Collections;
+
+/**
+ * Converts {@link BufferedImage}s into OpenCV {@link Mat}s by reading the raster's
+ * {@link DataBuffer} directly, instead of redrawing the image into a new
+ * {@code TYPE_3BYTE_BGR} copy first.
+ * <p>
+ * The resulting {@code Mat} keeps the image's natural channel count:
+ * <ul>
+ *     <li>{@code TYPE_BYTE_GRAY} becomes a single-channel {@code CV_8UC1} Mat; the pixel bytes are
+ *         copied straight into native memory.</li>
+ *     <li>{@code TYPE_3BYTE_BGR} becomes a {@code CV_8UC3} Mat, again with a single copy.</li>
+ *     <li>{@code TYPE_4BYTE_ABGR(_PRE)} is copied as-is into a per-thread {@code CV_8UC4} Mat,
+ *         and OpenCV then drops the alpha byte while writing the {@code CV_8UC3} Mat.</li>
+ *     <li>{@code TYPE_INT_RGB}, {@code TYPE_INT_BGR} and {@code TYPE_INT_ARGB(_PRE)} take two
+ *         passes: the ints are unpacked to BGR into a reusable per-thread byte array, which is then
+ *         copied into the {@code CV_8UC3} Mat. The Java bindings only copy an {@code int[]} into a
+ *         {@code CV_32S} Mat and cannot view that memory as {@code CV_8UC4}, so the raw ints cannot
+ *         be handed to {@code cvtColor} without this repacking.</li>
+ *     <li>Any other image type falls back to drawing the image into a {@code TYPE_3BYTE_BGR}
+ *         image first.</li>
+ * </ul>
+ * Greyscale images are copied byte for byte. The old {@code drawImage} conversion treated
+ * {@code TYPE_BYTE_GRAY} as linear and brightened it to sRGB, so grey frames now reach the
+ * detectors slightly darker than they used to.
+ * <p>
+ * Alpha is discarded; premultiplied images are converted as-is. The destination Mat is
+ * (re)allocated through {@link Mat#create(int, int, int)}, so passing the same Mat for frames of
+ * the same size and type reuses its native memory.
+ */
+public final class ImageMatBridge {
+
+    /** Per-thread scratch array used when pixels need to be repacked before copying. */
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<>();
+
+    /** Per-thread {@code CV_8UC4} Mat holding ABGR pixels before their alpha byte is dropped. */
+    private static final ThreadLocal<Mat> ABGR = ThreadLocal.withInitial(Mat::new);
+
+    /** Channel pairs for {@code Core.mixChannels} that copy B, G and R out of A, B, G, R. */
+    private static final MatOfInt ABGR_TO_BGR = new MatOfInt(1, 0, 2, 1, 3, 2);
+
+    private ImageMatBridge() {
+    }
+
+    /**
+     * Copies the pixels of {@code image} into {@code dst}, producing either a {@code CV_8UC1}
+     * (greyscale input) or a {@code CV_8UC3} BGR Mat.
+     *
+     * @param image the source image
+     * @param dst   the destination Mat; reallocated only if its size or type does not match
+     * @return {@code dst}, for convenience
+     */
+    public static Mat toMat(BufferedImage image, Mat dst) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY:
+                dst.create(height, width, CvType.CV_8UC1);
+                if (!putBytes(raster, width, height, 1, dst)) {
+                    fallback(image, dst);
+                }
+                return dst;
+
+            case BufferedImage.TYPE_3BYTE_BGR:
+                dst.create(height, width, CvType.CV_8UC3);
+                if (!putBytes(raster, width, height, 3, dst)) {
+                    fallback(image, dst);
+                }
+                return dst;
+
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+                dst.create(height, width, CvType.CV_8UC3);
+                if (!putPackedInts(raster, width, height, false, dst)) {
+                    fallback(image, dst);
+                }
+                return dst;
+
+            case BufferedImage.TYPE_INT_BGR:
+                dst.create(height, width, CvType.CV_8UC3);
+                if (!putPackedInts(raster, width, height, true, dst)) {
+                    fallback(image, dst);
+                }
+                return dst;
+
+            case BufferedImage.TYPE_4BYTE_ABGR:
+            case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+                dst.create(height, width, CvType.CV_8UC3);
+                if (!putAbgrBytes(raster, width, height, dst)) {
+                    fallback(image, dst);
+                }
+                return dst;
+
+            default:
+                fallback(image, dst);
+                return dst;
+        }
+    }
+
+    /**
+     * Copies an interleaved byte raster whose layout already matches OpenCV's
+     * (grey, or BGR) directly into {@code dst}.
+     *
+     * @return {@code false} if the raster is not tightly packed (e.g. a sub-image view)
+     */
+    private static boolean putBytes(Raster raster, int width, int height, int channels, Mat dst) {
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)
+                || !(raster.getSampleModel() instanceof ComponentSampleModel)) {
+            return false;
+        }
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+
+        byte[] data = buffer.getData();
+        boolean packed = buffer.getNumBanks() == 1
+                && buffer.getOffset() == 0
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && model.getPixelStride() == channels
+                && model.getScanlineStride() == width * channels
+                && data.length == width * height * channels;
+        if (!packed) {
+            return false;
+        }
+
+        dst.put(0, 0, data);
+        return true;
+    }
+
+    /**
+     * Unpacks an {@code int}-per-pixel raster to BGR bytes and copies them into {@code dst}.
+     *
+     * @param bgrOrder {@code true} for {@code TYPE_INT_BGR} (0x00BBGGRR), {@code false} for
+     *                 the RGB/ARGB layouts (0xAARRGGBB)
+     * @return {@code false} if the raster layout is not the standard packed layout
+     */
+    private static boolean putPackedInts(Raster raster, int width, int height, boolean bgrOrder, Mat dst) {
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            return false;
+        }
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+
+        int[] data = buffer.getData();
+        int stride = model.getScanlineStride();
+        int base = buffer.getOffset()
+                - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+
+        byte[] bgr = scratch(width * height * 3);
+        int out = 0;
+        for (int y = 0; y < height; y++) {
+            int in = base + y * stride;
+            for (int x = 0; x < width; x++) {
+                int pixel = data[in++];
+                if (bgrOrder) {
+                    bgr[out++] = (byte) (pixel >> 16);
+                    bgr[out++] = (byte) (pixel >> 8);
+                    bgr[out++] = (byte) pixel;
+                } else {
+                    bgr[out++] = (byte) pixel;
+                    bgr[out++] = (byte) (pixel >> 8);
+                    bgr[out++] = (byte) (pixel >> 16);
+                }
+            }
+        }
+
+        dst.put(0, 0, bgr);
+        return true;
+    }
+
+    /**
+     * Copies an ABGR byte raster into a 4-channel Mat, then lets OpenCV drop the alpha byte while
+     * writing the BGR channels into {@code dst}.
+     *
+     * @return {@code false} if the raster is not tightly packed (e.g. a sub-image view)
+     */
+    private static boolean putAbgrBytes(Raster raster, int width, int height, Mat dst) {
+        if (!(raster.getDataBuffer() instanceof DataBufferByte)
+                || !(raster.getSampleModel() instanceof ComponentSampleModel)) {
+            return false;
+        }
+        DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+
+        byte[] data = buffer.getData();
+        boolean packed = buffer.getNumBanks() == 1
+                && buffer.getOffset() == 0
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && model.getPixelStride() == 4
+                && model.getScanlineStride() == width * 4
+                && data.length == width * height * 4;
+        if (!packed) {
+            return false;
+        }
+
+        Mat abgr = ABGR.get();
+        abgr.create(height, width, CvType.CV_8UC4);
+        abgr.put(0, 0, data);
+        // No cvtColor code reads A, B, G, R, so pick the channels out directly
+        Core.mixChannels(Collections.singletonList(abgr), Collections.singletonList(dst), ABGR_TO_BGR);
+        return true;
+    }
+
+    /**
+     * Slow path for unusual image types or non-packed rasters: draws the image into a
+     * {@code TYPE_3BYTE_BGR} copy and copies that into {@code dst}.
+     */
+    private static void fallback(BufferedImage image, Mat dst) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        BufferedImage converted = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics graphics = converted.getGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+
+        dst.create(height, width, CvType.CV_8UC3);
+        dst.put(0, 0, ((DataBufferByte) converted.getRaster().getDataBuffer()).getData());
+    }
+
+    /**
+     * Returns this thread's scratch array of exactly {@code length} bytes. The array is only
+     * reallocated when the size of the repacked frames changes.
+     */
+    private static byte[] scratch(int length) {
+        byte[] scratch = SCRATCH.get();
+        if (scratch == null || scratch.length != length) {
+            scratch = new byte[length];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+}
@@ -0,0 +1,56 @@
+package Abubaker_Object_Detection.util;
+
+import nu.pattern.OpenCV;
+
+/**
+ * Loads the OpenCV native library exactly once per process.
+ * <p>
+ * {@link OpenCV#loadLocally()} extracts the bundled native library to a temporary directory and
+ * loads it, which takes a noticeable amount of time and should not be repeated for every scan or
+ * detector. Every class that needs OpenCV calls {@link #ensureLoaded()} instead; the first call
+ * loads the library and later calls return after reading a single volatile field. Concurrent
+ * first calls are serialised, so the library is loaded by exactly one of them. If loading fails,
+ * the exception is passed to the caller and the next call tries again.
+ */
+public final class OpenCVLoader {
+
+    private static final Object LOCK = new Object();
+
+    private static volatile boolean loaded;
+
+    /** Time the successful load took, in nanoseconds. */
+    private static long loadNanos;
+
+    private OpenCVLoader() {
+    }
+
+    /**
+     * Loads the OpenCV native library unless it has already been loaded.
+     */
+    public static void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (LOCK) {
+            if (!loaded) {
+                long start = System.nanoTime();
+                OpenCV.loadLocally();
+                loadNanos = System.nanoTime() - start;
+                loaded = true;
+                Logger.logInfo("OpenCV native library loaded in " + loadNanos / 1_000_000 + " ms");
+            }
+        }
+    }
+
+    /** @return {@code true} once the native library has been loaded */
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /** @return how long loading the native library took, in nanoseconds, or {@code 0} if not loaded */
+    public static long getLoadNanos() {
+        synchronized (LOCK) {
+            return loadNanos;
+        }
+    }
+}
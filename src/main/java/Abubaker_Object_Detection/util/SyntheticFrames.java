@@ -0,0 +1,148 @@
+package Abubaker_Object_Detection.util;
+
+import org.opencv.core.Mat;
+import org.opencv.objdetect.QRCodeEncoder;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GradientPaint;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Generates synthetic camera frames for benchmarking and warming up the vision pipeline
+ * without access to the SwiftBot camera.
+ * <p>
+ * Two kinds of frame are produced:
+ * <ul>
+ *     <li>An "empty" frame: a smooth vertical gradient, resembling a bare wall.</li>
+ *     <li>An "object" frame: the same gradient with a dark, roughly square block in the middle,
+ *         which the contour-based detectors report as an object.</li>
+ *     <li>A "random" frame: a wall with a random number of rectangles and ellipses of random
+ *         size and brightness, for comparing detectors over varied scenes.</li>
+ *     <li>A "QR code" frame: a QR code encoding a given text, rendered with OpenCV's
+ *         {@link QRCodeEncoder}, for exercising the QR scanners.</li>
+ * </ul>
+ */
+public final class SyntheticFrames {
+
+    private SyntheticFrames() {
+    }
+
+    /**
+     * Creates a frame showing a bare wall.
+     *
+     * @param size      width and height of the square frame in pixels
+     * @param imageType the {@link BufferedImage} type to create (e.g. {@code TYPE_BYTE_GRAY})
+     * @return the generated frame
+     */
+    public static BufferedImage emptyFrame(int size, int imageType) {
+        BufferedImage image = new BufferedImage(size, size, imageType);
+        Graphics2D graphics = image.createGraphics();
+        paintWall(graphics, size);
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Paints the bare wall of {@link #emptyFrame(int, int)} over the square from (0, 0) to
+     * ({@code size}, {@code size}), for callers that draw into an image of their own.
+     *
+     * @param graphics the graphics to paint with; its paint is left changed
+     * @param size     width and height of the square in pixels
+     */
+    public static void paintWall(Graphics2D graphics, int size) {
+        graphics.setPaint(new GradientPaint(0, 0, new Color(170, 170, 170), 0, size, new Color(200, 200, 200)));
+        graphics.fillRect(0, 0, size, size);
+    }
+
+    /**
+     * Creates a frame showing a dark block in front of a wall.
+     *
+     * @param size      width and height of the square frame in pixels
+     * @param imageType the {@link BufferedImage} type to create (e.g. {@code TYPE_BYTE_GRAY})
+     * @return the generated frame
+     */
+    public static BufferedImage objectFrame(int size, int imageType) {
+        BufferedImage image = emptyFrame(size, imageType);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(30, 30, 30));
+        graphics.fillRect(size / 3, size / 3, size / 3, size / 3);
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Creates a frame with between zero and four random shapes in front of a wall. The same
+     * seed always produces the same frame.
+     *
+     * @param size      width and height of the square frame in pixels
+     * @param imageType the {@link BufferedImage} type to create (e.g. {@code TYPE_BYTE_GRAY})
+     * @param random    the source of randomness
+     * @return the generated frame
+     */
+    public static BufferedImage randomFrame(int size, int imageType, Random random) {
+        BufferedImage image = emptyFrame(size, imageType);
+        Graphics2D graphics = image.createGraphics();
+        int shapes = random.nextInt(5);
+        for (int i = 0; i < shapes; i++) {
+            int grey = random.nextInt(256);
+            graphics.setColor(new Color(grey, grey, grey));
+            int width = 4 + random.nextInt(size / 2);
+            int height = 4 + random.nextInt(size / 2);
+            int x = random.nextInt(size - width);
+            int y = random.nextInt(size - height);
+            if (random.nextBoolean()) {
+                graphics.fillRect(x, y, width, height);
+            } else {
+                graphics.fillOval(x, y, width, height);
+            }
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    /**
+     * Creates a frame showing a QR code that encodes {@code text}, centred on a white background
+     * and covering roughly 60% of the frame width. Loads OpenCV if necessary.
+     *
+     * @param size      width and height of the square frame in pixels
+     * @param imageType the {@link BufferedImage} type to create (e.g. {@code TYPE_BYTE_GRAY})
+     * @param text      the text to encode
+     * @return the generated frame
+     */
+    public static BufferedImage qrCodeFrame(int size, int imageType, String text) {
+        OpenCVLoader.ensureLoaded();
+
+        // The encoder writes one pixel per module: 0 for dark modules, 255 for light ones
+        Mat code = new Mat();
+        byte[] modules;
+        int count;
+        try {
+            QRCodeEncoder.create().encode(text, code);
+            count = code.rows();
+            modules = new byte[count * count];
+            code.get(0, 0, modules);
+        } finally {
+            code.release();
+        }
+
+        BufferedImage image = new BufferedImage(size, size, imageType);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, size, size);
+
+        int scale = Math.max(1, size * 3 / 5 / count);
+        int offset = (size - count * scale) / 2;
+        graphics.setColor(Color.BLACK);
+        for (int y = 0; y < count; y++) {
+            for (int x = 0; x < count; x++) {
+                if (modules[y * count + x] == 0) {
+                    graphics.fillRect(offset + x * scale, offset + y * scale, scale, scale);
+                }
+            }
+        }
+        graphics.dispose();
+        return image;
+    }
+}
@@ -1,6 +1,7 @@
 package bot;
 
 import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
 import swiftbot.Button;
 //import java.lang.Runnable;
 import swiftbot.ButtonFunction;
@@ -34,6 +35,20 @@ public interface BotController {
      */
     void moveForward30cm(int speed);
 
+    /**
+     * Starts moving the SwiftBot forward ~30 cm without waiting for the movement to finish.
+     * The default implementation simply calls {@link #moveForward30cm(int)}; implementations that
+     * can stop the wheels from a timer override it.
+     *
+     * @param speed The speed (motor power) to move forward, typically in the range 1–100.
+     * @return A future completing with {@code true} when the movement has finished, or {@code false}
+     *         if another movement command took over first.
+     */
+    default CompletableFuture<Boolean> moveForward30cmAsync(int speed) {
+        moveForward30cm(speed);
+        return CompletableFuture.completedFuture(true);
+    }
+
     /**
      * Moves the SwiftBot forward continuously at a default speed. This method does not
      * include any fixed distance or duration, leaving it to the caller to decide when
@@ -58,6 +73,19 @@ public interface BotController {
      */
     void moveBackward30cm(int speed);
 
+    /**
+     * Starts moving the SwiftBot backward ~30 cm without waiting for the movement to finish.
+     * The default implementation simply calls {@link #moveBackward30cm(int)}.
+     *
+     * @param speed The speed (motor power) to move backward, typically in the range 1–100.
+     * @return A future completing with {@code true} when the movement has finished, or {@code false}
+     *         if another movement command took over first.
+     */
+    default CompletableFuture<Boolean> moveBackward30cmAsync(int speed) {
+        moveBackward30cm(speed);
+        return CompletableFuture.completedFuture(true);
+    }
+
     /**
      * Moves the SwiftBot backward continuously at a default speed. This method does not
      * include any fixed distance or duration, leaving it to the caller to decide when
@@ -77,6 +105,18 @@ public interface BotController {
      */
     void turnLeft60();
 
+    /**
+     * Starts a ~60-degree left turn without waiting for it to finish. The default implementation
+     * simply calls {@link #turnLeft60()}.
+     *
+     * @return A future completing with {@code true} when the turn has finished, or {@code false}
+     *         if another movement command took over first.
+     */
+    default CompletableFuture<Boolean> turnLeft60Async() {
+        turnLeft60();
+        return CompletableFuture.completedFuture(true);
+    }
+
     /**
      * Causes the SwiftBot to rotate right continuously at specified speed.
      * Does not automatically stop, so further commands may be needed to halt movement.
@@ -89,6 +129,18 @@ public interface BotController {
      */
     void turnRight60();
 
+    /**
+     * Starts a ~60-degree right turn without waiting for it to finish. The default implementation
+     * simply calls {@link #turnRight60()}.
+     *
+     * @return A future completing with {@code true} when the turn has finished, or {@code false}
+     *         if another movement command took over first.
+     */
+    default CompletableFuture<Boolean> turnRight60Async() {
+        turnRight60();
+        return CompletableFuture.completedFuture(true);
+    }
+
     /**
      * Immediately stops any ongoing movement of the SwiftBot, overriding previous
      * movement commands.
@@ -113,6 +165,34 @@ public interface BotController {
      */
     double measureDistance();
 
+    /**
+     * Returns a distance reading together with the time it was taken.
+     * <p>
+     * Controllers that sample the sensor in the background (see
+     * {@link SwiftBotController#startUltrasoundSampling(long, long)}) return their latest reading
+     * without touching the sensor, as long as it is recent enough. The default implementation
+     * measures with {@link #measureDistance()}.
+     *
+     * @return the reading
+     */
+    default DistanceReading readDistance() {
+        long start = System.nanoTime();
+        return new DistanceReading(measureDistance(), start, 0);
+    }
+
+    /**
+     * Returns a distance reading taken after {@code nanoTime}, waiting for the next background
+     * sample if necessary. The default implementation measures with {@link #measureDistance()}.
+     *
+     * @param nanoTime      a {@link System#nanoTime()} value the reading must be newer than
+     * @param timeoutMillis the longest time to wait for a background sample
+     * @return the reading, or {@code null} if none arrived within the timeout
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    default DistanceReading awaitDistanceNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        return readDistance();
+    }
+
     /**
      * Checks if an object is detected within a given threshold  distance.
      *
@@ -144,6 +224,22 @@ public interface BotController {
      */
     BufferedImage takeCustomPicture(ImageSize imageSize);
 
+    /**
+     * Captures a still like {@link #takeCustomPicture(ImageSize)}, reusing {@code into} if the controller
+     * can draw into it.
+     * <p>
+     * The SwiftBot API always returns a new image, so the default implementation ignores {@code into}.
+     * Controllers that render their own frames, such as the simulation, draw into a buffer of the right
+     * size and type, so capturing the same size again allocates no new image.
+     *
+     * @param imageSize The desired resolution of the captured image.
+     * @param into      A {@code TYPE_3BYTE_BGR} image to reuse, or {@code null}.
+     * @return {@code into} if the picture was drawn into it, otherwise a new {@link BufferedImage}.
+     */
+    default BufferedImage takeCustomPicture(ImageSize imageSize, BufferedImage into) {
+        return takeCustomPicture(imageSize);
+    }
+
     /**
      * Captures a single still image using the SwiftBot's camera at a higher resolution
      * (often 1080x1080 pixels in full colour).
@@ -152,6 +248,35 @@ public interface BotController {
      */
     BufferedImage takeHighQualityPicture();
 
+    /**
+     * Returns the newest greyscale frame captured in the background, without blocking.
+     * <p>
+     * Only controllers that capture continuously (see
+     * {@link SwiftBotController#startContinuousCapture()}) have such frames; the default
+     * implementation returns {@code null}.
+     *
+     * @return the newest frame, or {@code null} if no background frame is available
+     */
+    default CapturedFrame getLatestFrame() {
+        return null;
+    }
+
+    /**
+     * Returns a greyscale frame whose capture started after {@code nanoTime}. A controller that
+     * captures continuously returns its newest frame straight away if it is recent enough, and
+     * otherwise waits for the next one. The default implementation takes a new picture with
+     * {@link #takeGreyPicture()}.
+     *
+     * @param nanoTime      a {@link System#nanoTime()} value the frame must be newer than
+     * @param timeoutMillis the longest time to wait for a background frame
+     * @return the frame, or {@code null} if none arrived within the timeout
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    default CapturedFrame awaitFrameNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        long start = System.nanoTime();
+        return new CapturedFrame(takeGreyPicture(), start, 0);
+    }
+
 
     /** 
      * Decodes a QR code from a BufferedImage using the SwiftBotAPI's native QR code decoding capabilities.
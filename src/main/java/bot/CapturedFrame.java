@@ -0,0 +1,68 @@
+package bot;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A camera frame together with the time it was captured.
+ * <p>
+ * The capture time is taken from {@link System#nanoTime()} just before the camera was asked for the
+ * frame, so the picture was exposed no earlier than that. Comparing it with the time of another
+ * reading (e.g. an ultrasound measurement) tells whether the frame shows the scene at that moment.
+ */
+public final class CapturedFrame {
+
+    private final BufferedImage image;
+    private final long captureNanos;
+    private final long sequence;
+
+    /**
+     * @param image        the captured picture
+     * @param captureNanos the {@link System#nanoTime()} at which the capture started
+     * @param sequence     the frame's position in its capture stream (1 for the first frame), or 0 for a
+     *                     single capture outside any stream
+     */
+    public CapturedFrame(BufferedImage image, long captureNanos, long sequence) {
+        if (image == null) {
+            throw new IllegalArgumentException("image must not be null");
+        }
+        this.image = image;
+        this.captureNanos = captureNanos;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return the captured picture
+     */
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the capture started
+     */
+    public long getCaptureNanos() {
+        return captureNanos;
+    }
+
+    /**
+     * @return the frame's position in its capture stream, or 0 for a single capture
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return how long ago the capture started, in nanoseconds
+     */
+    public long getAgeNanos() {
+        return System.nanoTime() - captureNanos;
+    }
+
+    /**
+     * @param nanoTime a {@link System#nanoTime()} value
+     * @return {@code true} if the capture started after {@code nanoTime}
+     */
+    public boolean isNewerThan(long nanoTime) {
+        return captureNanos - nanoTime > 0;
+    }
+}
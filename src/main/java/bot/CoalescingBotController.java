@@ -0,0 +1,515 @@
+package bot;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import swiftbot.Button;
+import swiftbot.ButtonFunction;
+import swiftbot.ImageSize;
+
+/**
+ * A {@link BotController} decorator that drops motor and underlight writes which would not change
+ * anything, and merges bursts of writes into one.
+ * <p>
+ * The decorator remembers the wheel speeds and the underlight colour it last sent to the wrapped
+ * controller. A continuous motor command ({@link #moveForward()}, {@link #moveBackward()},
+ * {@link #turnLeft(int)}, {@link #turnRight(int)}) or an underlight colour that matches what was
+ * last sent is dropped. Behaviours can therefore repeat a command in every loop iteration without each
+ * repeat turning into a bus write.
+ * <p>
+ * With a non-zero window, a write that follows the previous one on the same channel within the
+ * window is held back until the window ends. If further writes arrive meanwhile, only the last one
+ * is sent, and none is sent if the last one restores what was already there. The first write after
+ * a quiet period is sent at once.
+ * <p>
+ * Some commands are never coalesced:
+ * <ul>
+ *     <li>{@link #stopMoving()} is always sent at once and discards any held-back motor write.</li>
+ *     <li>Timed and blocking motions ({@link #move}, the 30 cm moves, the 60-degree turns,
+ *         {@link #reverse}) discard any held-back motor write and are passed straight through.
+ *         Afterwards the wheel state counts as unknown, so the next command is always sent.</li>
+ *     <li>Underlight colours that do not hold exactly three values are passed straight through in
+ *         the same way, leaving the underlight state unknown.</li>
+ * </ul>
+ * All other calls are passed through unchanged.
+ * <p>
+ * Held-back writes are sent from a single daemon thread; {@link #close()} sends any still pending
+ * and stops it. Writes made after closing, e.g. from a button handler, are no longer held back:
+ * unless they repeat the current state, they are sent at once. The wrapped controller is never called with the decorator's lock held, so a write
+ * that blocks, e.g. waiting for a dispatcher, does not hold up other callers. If two writes to the
+ * same channel are in flight at once, their order at the hardware is not known, and the channel's
+ * state counts as unknown afterwards. Instances are thread-safe.
+ */
+public class CoalescingBotController implements BotController, AutoCloseable {
+
+    /** Default window within which successive writes to the same channel are merged. */
+    public static final long DEFAULT_WINDOW_MILLIS = 20;
+
+    /** Marks a channel whose hardware state is not known. */
+    private static final long UNKNOWN = Long.MIN_VALUE;
+
+    /** Key of the underlights when switched off with {@link #disableUnderlights()}. */
+    private static final long LIGHTS_DISABLED = -1;
+
+    /**
+     * One actuator: the state last sent to it, and at most one write held back for the end of the
+     * current window. Guarded by the decorator's lock.
+     */
+    private static final class Channel {
+        long lastKey = UNKNOWN;
+        long lastWriteNanos;
+        Runnable pendingWrite;
+        long pendingKey;
+        ScheduledFuture<?> flush;
+        int sending; // Writes handed to the wrapped controller and not yet returned
+        boolean overlapped; // Whether any of those were in flight at the same time
+        final AtomicLong requested = new AtomicLong();
+        final AtomicLong written = new AtomicLong();
+    }
+
+    private final BotController delegate;
+    private final long windowNanos;
+    private final Object lock = new Object();
+    private final Channel motors = new Channel();
+    private final Channel lights = new Channel();
+    private final ScheduledExecutorService flusher;
+    private boolean closed; // Guarded by lock
+
+    /**
+     * Wraps a controller, merging writes within {@link #DEFAULT_WINDOW_MILLIS}.
+     *
+     * @param delegate the controller to send writes to
+     */
+    public CoalescingBotController(BotController delegate) {
+        this(delegate, DEFAULT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Wraps a controller.
+     *
+     * @param delegate     the controller to send writes to
+     * @param windowMillis the window within which writes to the same channel are merged, or 0 to
+     *                     only drop writes that repeat the current state
+     */
+    public CoalescingBotController(BotController delegate, long windowMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        if (windowMillis < 0) {
+            throw new IllegalArgumentException("windowMillis must not be negative");
+        }
+        this.delegate = delegate;
+        this.windowNanos = windowMillis * 1_000_000L;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "actuator-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the wrapped controller
+     */
+    public BotController getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the number of continuous motor, stop and underlight writes requested through this
+     *         decorator (timed and blocking motions are not counted)
+     */
+    public long getRequestedWriteCount() {
+        return motors.requested.get() + lights.requested.get();
+    }
+
+    /**
+     * @return the number of those writes actually sent to the wrapped controller
+     */
+    public long getBusWriteCount() {
+        return motors.written.get() + lights.written.get();
+    }
+
+    /**
+     * @return the number of writes dropped as redundant or merged into a later one
+     */
+    public long getSavedWriteCount() {
+        return getRequestedWriteCount() - getBusWriteCount();
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingBotController{motors " + motors.written.get() + "/" + motors.requested.get()
+                + " written, lights " + lights.written.get() + "/" + lights.requested.get()
+                + " written, " + getSavedWriteCount() + " writes saved}";
+    }
+
+    /**
+     * Sends any held-back writes and stops the flushing thread. The decorator and the wrapped
+     * controller stay usable; later writes are no longer held back.
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush(motors);
+        flush(lights);
+        flusher.shutdownNow();
+    }
+
+    // ----- Underlights -----
+
+    @Override
+    public void setUnderlights(int[] rgbValue) {
+        if (rgbValue.length != 3) {
+            forgetState(lights);
+            delegate.setUnderlights(rgbValue);
+            return;
+        }
+        int[] colour = rgbValue.clone(); // The caller may reuse its array before a held-back write is sent
+        write(lights, rgbKey(colour), () -> delegate.setUnderlights(colour));
+    }
+
+    @Override
+    public void fillUnderlights(int[] rgbValue) {
+        if (rgbValue.length != 3) {
+            forgetState(lights);
+            delegate.fillUnderlights(rgbValue);
+            return;
+        }
+        int[] colour = rgbValue.clone();
+        write(lights, rgbKey(colour), () -> delegate.fillUnderlights(colour));
+    }
+
+    @Override
+    public void disableUnderlights() {
+        write(lights, LIGHTS_DISABLED, delegate::disableUnderlights);
+    }
+
+    // ----- Continuous motion -----
+
+    @Override
+    public void moveForward() {
+        write(motors, speedKey(50, 50), delegate::moveForward);
+    }
+
+    @Override
+    public void moveBackward() {
+        write(motors, speedKey(-50, -50), delegate::moveBackward);
+    }
+
+    @Override
+    public void turnLeft(int speed) {
+        write(motors, speedKey(-speed, speed), () -> delegate.turnLeft(speed));
+    }
+
+    @Override
+    public void turnRight(int speed) {
+        write(motors, speedKey(speed, -speed), () -> delegate.turnRight(speed));
+    }
+
+    @Override
+    public void stopMoving() {
+        synchronized (lock) {
+            motors.requested.incrementAndGet();
+            discardPending(motors);
+            beginSend(motors, speedKey(0, 0));
+        }
+        send(motors, delegate::stopMoving);
+    }
+
+    // ----- Timed and blocking motion -----
+
+    @Override
+    public void move(int speed, int speed2, int duration) {
+        forgetState(motors);
+        delegate.move(speed, speed2, duration);
+    }
+
+    @Override
+    public void moveForward30cm(int speed) {
+        forgetState(motors);
+        delegate.moveForward30cm(speed);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> moveForward30cmAsync(int speed) {
+        forgetState(motors);
+        return delegate.moveForward30cmAsync(speed);
+    }
+
+    @Override
+    public void moveForward(int speed, int totalDuration) {
+        forgetState(motors);
+        delegate.moveForward(speed, totalDuration);
+    }
+
+    @Override
+    public void moveBackward30cm(int speed) {
+        forgetState(motors);
+        delegate.moveBackward30cm(speed);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> moveBackward30cmAsync(int speed) {
+        forgetState(motors);
+        return delegate.moveBackward30cmAsync(speed);
+    }
+
+    @Override
+    public void turnLeft60() {
+        forgetState(motors);
+        delegate.turnLeft60();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> turnLeft60Async() {
+        forgetState(motors);
+        return delegate.turnLeft60Async();
+    }
+
+    @Override
+    public void turnRight60() {
+        forgetState(motors);
+        delegate.turnRight60();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> turnRight60Async() {
+        forgetState(motors);
+        return delegate.turnRight60Async();
+    }
+
+    @Override
+    public double reverse(int speed, int totalDuration) {
+        forgetState(motors);
+        return delegate.reverse(speed, totalDuration);
+    }
+
+    // ----- Everything else is passed through -----
+
+    @Override
+    public double measureDistance() {
+        return delegate.measureDistance();
+    }
+
+    @Override
+    public DistanceReading readDistance() {
+        return delegate.readDistance();
+    }
+
+    @Override
+    public DistanceReading awaitDistanceNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        return delegate.awaitDistanceNewerThan(nanoTime, timeoutMillis);
+    }
+
+    @Override
+    public boolean isObjectDetected(double threshold) {
+        return delegate.isObjectDetected(threshold);
+    }
+
+    @Override
+    public double getSmoothedDistance() {
+        return delegate.getSmoothedDistance();
+    }
+
+    @Override
+    public BufferedImage takeGreyPicture() {
+        return delegate.takeGreyPicture();
+    }
+
+    @Override
+    public BufferedImage takeCustomPicture(ImageSize imageSize) {
+        return delegate.takeCustomPicture(imageSize);
+    }
+
+    @Override
+    public BufferedImage takeCustomPicture(ImageSize imageSize, BufferedImage into) {
+        return delegate.takeCustomPicture(imageSize, into);
+    }
+
+    @Override
+    public BufferedImage takeHighQualityPicture() {
+        return delegate.takeHighQualityPicture();
+    }
+
+    @Override
+    public CapturedFrame getLatestFrame() {
+        return delegate.getLatestFrame();
+    }
+
+    @Override
+    public CapturedFrame awaitFrameNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        return delegate.awaitFrameNewerThan(nanoTime, timeoutMillis);
+    }
+
+    @Override
+    public String decodeQRImageNatively(BufferedImage image) {
+        return delegate.decodeQRImageNatively(image);
+    }
+
+    @Override
+    public void enableButton(Button button, ButtonFunction function) {
+        delegate.enableButton(button, function);
+    }
+
+    @Override
+    public void disableButton(Button button) {
+        delegate.disableButton(button);
+    }
+
+    @Override
+    public void disableAllButtons() {
+        delegate.disableAllButtons();
+    }
+
+    @Override
+    public Button getButtonFromString(String button) {
+        return delegate.getButtonFromString(button);
+    }
+
+    @Override
+    public void enableButton(String button, Runnable action) {
+        delegate.enableButton(button, action);
+    }
+
+    @Override
+    public void disableButton(String button) {
+        delegate.disableButton(button);
+    }
+
+    @Override
+    public double getCalibrationFactor50() {
+        return delegate.getCalibrationFactor50();
+    }
+
+    @Override
+    public double getCalibrationFactor30() {
+        return delegate.getCalibrationFactor30();
+    }
+
+    // ----- Coalescing -----
+
+    /**
+     * Sends, holds back or drops a write that would put the channel into the state {@code key}.
+     */
+    private void write(Channel channel, long key, Runnable action) {
+        synchronized (lock) {
+            channel.requested.incrementAndGet();
+            if (channel.pendingWrite != null) {
+                // Within a burst: this write replaces the held-back one, or cancels it if it
+                // restores the state already sent
+                if (key == channel.lastKey) {
+                    discardPending(channel);
+                } else {
+                    channel.pendingWrite = action;
+                    channel.pendingKey = key;
+                }
+                return;
+            }
+            if (key == channel.lastKey) {
+                return; // Nothing would change
+            }
+            long sinceLastWrite = System.nanoTime() - channel.lastWriteNanos;
+            if (windowNanos > 0 && !closed && channel.lastKey != UNKNOWN && sinceLastWrite < windowNanos) {
+                channel.pendingWrite = action;
+                channel.pendingKey = key;
+                channel.flush = flusher.schedule(() -> flush(channel),
+                        windowNanos - sinceLastWrite, TimeUnit.NANOSECONDS);
+                return;
+            }
+            beginSend(channel, key);
+        }
+        send(channel, action);
+    }
+
+    /**
+     * Sends the channel's held-back write, if any.
+     */
+    private void flush(Channel channel) {
+        Runnable write;
+        synchronized (lock) {
+            write = channel.pendingWrite;
+            if (write == null) {
+                return;
+            }
+            channel.pendingWrite = null;
+            channel.flush = null;
+            beginSend(channel, channel.pendingKey);
+        }
+        try {
+            send(channel, write);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records the state a write is about to put the channel into. Must be called with {@link #lock}
+     * held, followed by {@link #send} once it is released.
+     */
+    private static void beginSend(Channel channel, long key) {
+        if (channel.sending++ > 0) {
+            channel.overlapped = true;
+        }
+        channel.lastKey = key;
+        channel.lastWriteNanos = System.nanoTime();
+    }
+
+    /**
+     * Makes a write begun with {@link #beginSend}. Must be called without {@link #lock} held. If the
+     * write fails or overlapped another one, the state of the hardware is not known, and the next
+     * write is sent whatever it is.
+     */
+    private void send(Channel channel, Runnable action) {
+        boolean sent = false;
+        try {
+            action.run();
+            sent = true;
+            channel.written.incrementAndGet();
+        } finally {
+            synchronized (lock) {
+                if (!sent || channel.overlapped) {
+                    channel.lastKey = UNKNOWN;
+                }
+                if (--channel.sending == 0) {
+                    channel.overlapped = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the channel's held-back write, if any. Must be called with {@link #lock} held.
+     */
+    private void discardPending(Channel channel) {
+        if (channel.pendingWrite != null) {
+            channel.pendingWrite = null;
+            channel.flush.cancel(false);
+            channel.flush = null;
+        }
+    }
+
+    /**
+     * Called before a write this decorator does not track: drops any held-back write on the channel
+     * and forgets its state, so the next write is always sent.
+     */
+    private void forgetState(Channel channel) {
+        synchronized (lock) {
+            discardPending(channel);
+            channel.lastKey = UNKNOWN;
+        }
+    }
+
+    private static long speedKey(int leftSpeed, int rightSpeed) {
+        return ((long) leftSpeed << 32) | (rightSpeed & 0xFFFFFFFFL);
+    }
+
+    private static long rgbKey(int[] rgb) {
+        return ((long) (rgb[0] & 0xFFFF) << 32) | ((long) (rgb[1] & 0xFFFF) << 16) | (rgb[2] & 0xFFFF);
+    }
+}
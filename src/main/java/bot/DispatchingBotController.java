@@ -0,0 +1,576 @@
+package bot;
+
+import java.awt.image.BufferedImage;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import swiftbot.Button;
+import swiftbot.ButtonFunction;
+import swiftbot.ImageSize;
+
+/**
+ * A {@link BotController} decorator that runs every hardware call on a single dispatcher thread, so
+ * the SwiftBot API is never entered from several threads at once, whether the caller is the main
+ * loop or a button callback.
+ * <p>
+ * Callers put their call on a lock-free multi-producer queue ({@link ConcurrentLinkedQueue}) and
+ * wait for the dispatcher to run it; results and exceptions are handed back as if the call had been
+ * made directly. {@link #stopMoving()} goes through a separate stop lane that the dispatcher always
+ * empties first, so a stop overtakes any queued camera, sensor or motor work. It still waits for the
+ * call that is running when it arrives, since the API offers no way to abort one. Calls made on the
+ * dispatcher thread itself, e.g. from inside another call, run at once instead of being queued.
+ * <p>
+ * The blocking 30 cm moves and 60-degree turns dispatch their asynchronous variants and wait for
+ * the motion outside the dispatcher, so a stop issued mid-turn is not held up by the turn itself.
+ * <p>
+ * A {@link SwiftBotController} also makes hardware calls on threads of its own: its timer thread
+ * stops timed motions, and continuous capture and ultrasound sampling run on background threads.
+ * Wrapping one installs the dispatcher's lanes as its {@link HardwareExecutor}, so those calls are
+ * dispatched as well: stops through the stop lane, without the timer thread waiting for them, and
+ * captures and measurements through the work lane. Its camera and distance methods are then called
+ * on the caller's thread, since they route their own hardware calls: a sampled or continuously
+ * captured reading or frame is served without a dispatcher round trip, and waiting for the next one
+ * does not hold up the dispatcher; only the measurement or capture they fall back to is enqueued.
+ * For other controllers, those methods are dispatched like the rest, and the await methods take a new
+ * reading or picture through the work lane, as the {@link BotController} defaults do.
+ * <p>
+ * The time from enqueueing a call to the start of its execution is recorded per lane, see
+ * {@link #getStopLatency()} and {@link #getWorkLatency()}; the calls dispatched for the controller's
+ * own threads are included.
+ * <p>
+ * A few calls do not touch the hardware and are passed straight through: the smoothed distance and
+ * calibration factors, the native QR decoder (which only decodes an image already in memory) and
+ * the latest background frame.
+ */
+public class DispatchingBotController implements BotController, AutoCloseable {
+
+    /**
+     * Enqueue-to-execution latencies of one lane.
+     */
+    public static final class LatencyStatistics {
+        private final String lane;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private LatencyStatistics(String lane) {
+            this.lane = lane;
+        }
+
+        private void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        /**
+         * @return the number of calls run from this lane
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return the mean time calls waited in this lane, in nanoseconds
+         */
+        public double getMeanNanos() {
+            long calls = count.get();
+            return calls == 0 ? 0 : (double) totalNanos.get() / calls;
+        }
+
+        /**
+         * @return the longest time a call waited in this lane, in nanoseconds
+         */
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        @Override
+        public String toString() {
+            return lane + "{calls=" + getCount() + ", mean=" + String.format("%.1f", getMeanNanos() / 1000)
+                    + " us, max=" + getMaxNanos() / 1000 + " us}";
+        }
+    }
+
+    /** A hardware call; may throw whatever the wrapped controller throws. */
+    private interface HardwareCall<T> {
+        T call() throws Exception;
+    }
+
+    /** A queued call and the future its caller waits on. */
+    private static final class Task<T> extends CompletableFuture<T> {
+        final HardwareCall<T> call;
+        final LatencyStatistics statistics;
+        final long enqueueNanos = System.nanoTime();
+        final AtomicBoolean started = new AtomicBoolean();
+
+        Task(HardwareCall<T> call, LatencyStatistics statistics) {
+            this.call = call;
+            this.statistics = statistics;
+        }
+
+        void run() {
+            if (!started.compareAndSet(false, true)) {
+                return; // Cancelled by its caller while queued
+            }
+            statistics.record(System.nanoTime() - enqueueNanos);
+            try {
+                complete(call.call());
+            } catch (Throwable e) {
+                completeExceptionally(e);
+            }
+        }
+
+        /**
+         * Withdraws the call if the dispatcher has not started it yet.
+         */
+        void cancelIfNotStarted() {
+            if (started.compareAndSet(false, true)) {
+                cancel(false);
+            }
+        }
+    }
+
+    private final BotController delegate;
+    private final Queue<Task<?>> stopLane = new ConcurrentLinkedQueue<>();
+    private final Queue<Task<?>> workLane = new ConcurrentLinkedQueue<>();
+    private final LatencyStatistics stopLatency = new LatencyStatistics("stop");
+    private final LatencyStatistics workLatency = new LatencyStatistics("work");
+    private final Thread dispatcher;
+    private final boolean routesOwnCalls; // Whether the delegate dispatches its own hardware calls
+    private volatile boolean running = true;
+
+    /**
+     * Runs the delegate's own hardware calls on the dispatcher. Once closed, runs them directly, so
+     * that a stop is never lost.
+     */
+    private final HardwareExecutor lanes = new HardwareExecutor() {
+        @Override
+        public <T> T call(Callable<T> call) throws Exception {
+            if (Thread.currentThread() == dispatcher) {
+                return call.call();
+            }
+            Task<T> task = enqueue(workLane, workLatency, call::call);
+            return task == null ? call.call() : await(task);
+        }
+
+        @Override
+        public void stop(Runnable stop) {
+            if (Thread.currentThread() == dispatcher || enqueue(stopLane, stopLatency, () -> {
+                stop.run();
+                return null;
+            }) == null) {
+                stop.run();
+            }
+        }
+    };
+
+    /**
+     * Wraps a controller and starts the dispatcher thread.
+     *
+     * @param delegate the controller whose hardware calls are dispatched
+     */
+    public DispatchingBotController(BotController delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        this.delegate = delegate;
+        this.dispatcher = new Thread(this::runDispatcher, "hardware-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        this.routesOwnCalls = delegate instanceof SwiftBotController;
+        if (routesOwnCalls) {
+            ((SwiftBotController) delegate).setHardwareExecutor(lanes);
+        }
+    }
+
+    /**
+     * @return the wrapped controller
+     */
+    public BotController getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return the latencies of {@link #stopMoving()} calls
+     */
+    public LatencyStatistics getStopLatency() {
+        return stopLatency;
+    }
+
+    /**
+     * @return the latencies of all other dispatched calls
+     */
+    public LatencyStatistics getWorkLatency() {
+        return workLatency;
+    }
+
+    /**
+     * Runs the calls already queued, then stops the dispatcher. Later calls throw
+     * {@link IllegalStateException}; the hardware calls of a {@link SwiftBotController}'s own threads
+     * run directly again.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        if (Thread.currentThread() != dispatcher) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ----- Stop lane -----
+
+    @Override
+    public void stopMoving() {
+        dispatch(stopLane, stopLatency, () -> {
+            delegate.stopMoving();
+            return null;
+        });
+    }
+
+    // ----- Work lane -----
+
+    @Override
+    public void setUnderlights(int[] rgbValue) {
+        work(() -> delegate.setUnderlights(rgbValue));
+    }
+
+    @Override
+    public void move(int speed, int speed2, int duration) {
+        work(() -> delegate.move(speed, speed2, duration));
+    }
+
+    @Override
+    public void moveForward30cm(int speed) {
+        awaitMotion(moveForward30cmAsync(speed));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> moveForward30cmAsync(int speed) {
+        return dispatch(workLane, workLatency, () -> delegate.moveForward30cmAsync(speed));
+    }
+
+    @Override
+    public void moveForward() {
+        work(delegate::moveForward);
+    }
+
+    @Override
+    public void moveForward(int speed, int totalDuration) {
+        work(() -> delegate.moveForward(speed, totalDuration));
+    }
+
+    @Override
+    public void moveBackward30cm(int speed) {
+        awaitMotion(moveBackward30cmAsync(speed));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> moveBackward30cmAsync(int speed) {
+        return dispatch(workLane, workLatency, () -> delegate.moveBackward30cmAsync(speed));
+    }
+
+    @Override
+    public void moveBackward() {
+        work(delegate::moveBackward);
+    }
+
+    @Override
+    public void turnLeft(int speed) {
+        work(() -> delegate.turnLeft(speed));
+    }
+
+    @Override
+    public void turnLeft60() {
+        awaitMotion(turnLeft60Async());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> turnLeft60Async() {
+        return dispatch(workLane, workLatency, delegate::turnLeft60Async);
+    }
+
+    @Override
+    public void turnRight(int speed) {
+        work(() -> delegate.turnRight(speed));
+    }
+
+    @Override
+    public void turnRight60() {
+        awaitMotion(turnRight60Async());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> turnRight60Async() {
+        return dispatch(workLane, workLatency, delegate::turnRight60Async);
+    }
+
+    @Override
+    public double reverse(int speed, int totalDuration) {
+        return dispatch(workLane, workLatency, () -> delegate.reverse(speed, totalDuration));
+    }
+
+    @Override
+    public void enableButton(Button button, ButtonFunction function) {
+        work(() -> delegate.enableButton(button, function));
+    }
+
+    @Override
+    public void disableButton(Button button) {
+        work(() -> delegate.disableButton(button));
+    }
+
+    @Override
+    public void disableAllButtons() {
+        work(delegate::disableAllButtons);
+    }
+
+    @Override
+    public void fillUnderlights(int[] rgbValue) {
+        work(() -> delegate.fillUnderlights(rgbValue));
+    }
+
+    @Override
+    public void disableUnderlights() {
+        work(delegate::disableUnderlights);
+    }
+
+    @Override
+    public void enableButton(String button, Runnable action) {
+        work(() -> delegate.enableButton(button, action));
+    }
+
+    @Override
+    public void disableButton(String button) {
+        work(() -> delegate.disableButton(button));
+    }
+
+    // ----- Sensors and camera: on the caller's thread if the delegate dispatches its own calls -----
+
+    @Override
+    public double measureDistance() {
+        return sense(delegate::measureDistance);
+    }
+
+    @Override
+    public DistanceReading readDistance() {
+        return sense(delegate::readDistance);
+    }
+
+    @Override
+    public DistanceReading awaitDistanceNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        if (routesOwnCalls) {
+            return delegate.awaitDistanceNewerThan(nanoTime, timeoutMillis);
+        }
+        return BotController.super.awaitDistanceNewerThan(nanoTime, timeoutMillis);
+    }
+
+    @Override
+    public boolean isObjectDetected(double threshold) {
+        return sense(() -> delegate.isObjectDetected(threshold));
+    }
+
+    @Override
+    public BufferedImage takeGreyPicture() {
+        return sense(delegate::takeGreyPicture);
+    }
+
+    @Override
+    public BufferedImage takeCustomPicture(ImageSize imageSize) {
+        return sense(() -> delegate.takeCustomPicture(imageSize));
+    }
+
+    @Override
+    public BufferedImage takeCustomPicture(ImageSize imageSize, BufferedImage into) {
+        return sense(() -> delegate.takeCustomPicture(imageSize, into));
+    }
+
+    @Override
+    public BufferedImage takeHighQualityPicture() {
+        return sense(delegate::takeHighQualityPicture);
+    }
+
+    @Override
+    public CapturedFrame awaitFrameNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        if (routesOwnCalls) {
+            return delegate.awaitFrameNewerThan(nanoTime, timeoutMillis);
+        }
+        return BotController.super.awaitFrameNewerThan(nanoTime, timeoutMillis);
+    }
+
+    // ----- Passed straight through -----
+
+    @Override
+    public double getSmoothedDistance() {
+        return delegate.getSmoothedDistance();
+    }
+
+    @Override
+    public CapturedFrame getLatestFrame() {
+        return delegate.getLatestFrame();
+    }
+
+    @Override
+    public String decodeQRImageNatively(BufferedImage image) {
+        return delegate.decodeQRImageNatively(image);
+    }
+
+    @Override
+    public Button getButtonFromString(String button) {
+        return delegate.getButtonFromString(button);
+    }
+
+    @Override
+    public double getCalibrationFactor50() {
+        return delegate.getCalibrationFactor50();
+    }
+
+    @Override
+    public double getCalibrationFactor30() {
+        return delegate.getCalibrationFactor30();
+    }
+
+    // ----- Dispatching -----
+
+    /**
+     * Waits for a timed motion outside the dispatcher, so a stop can still be dispatched while the
+     * bot is moving.
+     */
+    private static void awaitMotion(CompletableFuture<Boolean> motion) {
+        try {
+            motion.join();
+        } catch (CancellationException | CompletionException e) {
+            // The motion was cancelled, so the wheels have already been stopped
+        }
+    }
+
+    /**
+     * Runs a camera or sensor call on the caller's thread if the delegate dispatches its own
+     * hardware calls, otherwise on the dispatcher.
+     */
+    private <T> T sense(HardwareCall<T> call) {
+        if (routesOwnCalls) {
+            if (!running) {
+                throw new IllegalStateException("DispatchingBotController has been closed");
+            }
+            return unchecked(call);
+        }
+        return dispatch(workLane, workLatency, call);
+    }
+
+    private void work(Runnable call) {
+        dispatch(workLane, workLatency, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a call on the dispatcher thread and waits for its result. On the dispatcher thread itself
+     * the call runs at once.
+     */
+    private <T> T dispatch(Queue<Task<?>> lane, LatencyStatistics statistics, HardwareCall<T> call) {
+        if (Thread.currentThread() == dispatcher) {
+            return unchecked(call);
+        }
+        Task<T> task = enqueue(lane, statistics, call);
+        if (task == null) {
+            throw new IllegalStateException("DispatchingBotController has been closed");
+        }
+        try {
+            return await(task);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Queues a call for the dispatcher.
+     *
+     * @return the queued task, or {@code null} if the dispatcher has been closed
+     */
+    private <T> Task<T> enqueue(Queue<Task<?>> lane, LatencyStatistics statistics, HardwareCall<T> call) {
+        if (!running) {
+            return null;
+        }
+        Task<T> task = new Task<>(call, statistics);
+        lane.offer(task);
+        LockSupport.unpark(dispatcher);
+        if (!running && lane.remove(task)) {
+            // Closed while enqueueing, and the dispatcher may already have drained its lanes
+            return null;
+        }
+        return task;
+    }
+
+    /**
+     * Waits for a queued call, rethrowing what it threw. If the caller is interrupted, a call the
+     * dispatcher has not started yet is withdrawn; one already running cannot be aborted and is
+     * left to finish.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    private static <T> T await(Task<T> task) throws Exception {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            task.cancelIfNotStarted();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static <T> T unchecked(HardwareCall<T> call) {
+        try {
+            return call.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Body of the dispatcher thread: runs queued calls, stop lane first, until closed and drained.
+     */
+    private void runDispatcher() {
+        while (true) {
+            Task<?> task = stopLane.poll();
+            if (task == null) {
+                task = workLane.poll();
+            }
+            if (task != null) {
+                task.run();
+            } else if (running) {
+                LockSupport.park(this);
+            } else {
+                return;
+            }
+        }
+    }
+}
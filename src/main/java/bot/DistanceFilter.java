@@ -0,0 +1,334 @@
+package bot;
+
+import java.util.Arrays;
+
+/**
+ * Smooths ultrasound distance readings and estimates how fast the distance is changing.
+ * <p>
+ * One of four filters is selected when the filter is created:
+ * <ul>
+ *     <li>{@link Mode#MOVING_AVERAGE}: the mean of the last {@code window} readings.</li>
+ *     <li>{@link Mode#MEDIAN}: the median of the last {@code window} readings. A single echo
+ *         (a reading far off from its neighbours) does not move the median at all, which makes
+ *         this the most robust choice for obstacle checks.</li>
+ *     <li>{@link Mode#EXPONENTIAL}: an exponentially weighted average with weight {@code alpha}
+ *         for the newest reading.</li>
+ *     <li>{@link Mode#KALMAN}: a constant-velocity Kalman filter over distance and its rate of change.
+ *         Readings more than {@code gate} standard deviations from the prediction are treated as
+ *         echoes and ignored, unless several arrive in a row, in which case the filter accepts that
+ *         the scene has changed and restarts from the new reading.</li>
+ * </ul>
+ * All state is kept in primitive fields and {@code double[]} ring buffers sized when the filter is
+ * created, so {@link #update(double, long)} and the getters never allocate. Updates take constant time,
+ * except for the median, which keeps a sorted copy of the window and so takes time proportional to
+ * the (small, fixed) window size.
+ * <p>
+ * The rate of change is in centimetres per second and is negative while the distance shrinks. The
+ * Kalman filter estimates it as part of its state; the other filters take the change in the filtered
+ * value between updates and smooth it exponentially.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class DistanceFilter {
+
+    /** The available filters. */
+    public enum Mode {
+        MOVING_AVERAGE, MEDIAN, EXPONENTIAL, KALMAN
+    }
+
+    /** Default number of readings considered by the windowed filters. */
+    public static final int DEFAULT_WINDOW = 5;
+
+    /** Default weight of the newest reading for the exponential filter. */
+    public static final double DEFAULT_ALPHA = 0.4;
+
+    /** Default process noise of the Kalman filter (acceleration variance, (cm/s^2)^2). */
+    public static final double DEFAULT_PROCESS_NOISE = 400;
+
+    /** Default measurement noise of the Kalman filter (reading variance, cm^2). */
+    public static final double DEFAULT_MEASUREMENT_NOISE = 4;
+
+    /** Default Kalman outlier gate, in standard deviations of the innovation. */
+    public static final double DEFAULT_GATE = 4;
+
+    /** Consecutive gated readings after which the Kalman filter restarts from the newest one. */
+    static final int MAX_CONSECUTIVE_OUTLIERS = 3;
+
+    /** Weight of the newest difference when smoothing the rate of change of non-Kalman filters. */
+    private static final double RATE_SMOOTHING = 0.5;
+
+    private final Mode mode;
+    private final int window;
+    private final double alpha;
+    private final double processNoise;
+    private final double measurementNoise;
+    private final double gate;
+
+    // Ring of the last readings (moving average and median)
+    private final double[] readings;
+    private int head;
+    private int count;
+    private double sum;
+
+    // Sorted copy of the ring (median)
+    private final double[] sorted;
+
+    // Filter output and rate of change
+    private double value;
+    private double rate;
+    private long lastNanos;
+    private long updates;
+
+    // Kalman covariance (symmetric 2x2: p00, p01 = p10, p11) and outlier tracking
+    private double p00, p01, p11;
+    private int consecutiveOutliers;
+    private long rejected;
+
+    /**
+     * Creates a filter with the default parameters for the given mode.
+     *
+     * @param mode the filter to use
+     */
+    public DistanceFilter(Mode mode) {
+        this(mode, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a filter with the given window and default parameters otherwise.
+     *
+     * @param mode   the filter to use
+     * @param window the number of readings considered by the moving-average and median filters
+     */
+    public DistanceFilter(Mode mode, int window) {
+        this(mode, window, DEFAULT_ALPHA, DEFAULT_PROCESS_NOISE, DEFAULT_MEASUREMENT_NOISE, DEFAULT_GATE);
+    }
+
+    /**
+     * Creates a filter.
+     *
+     * @param mode             the filter to use
+     * @param window           the number of readings considered by the moving-average and median filters
+     * @param alpha            the weight of the newest reading for the exponential filter, in (0, 1]
+     * @param processNoise     the Kalman process noise (acceleration variance)
+     * @param measurementNoise the Kalman measurement noise (reading variance)
+     * @param gate             the Kalman outlier gate in standard deviations, or {@code Double.POSITIVE_INFINITY}
+     *                         to accept every reading
+     */
+    public DistanceFilter(Mode mode, int window, double alpha, double processNoise, double measurementNoise,
+                          double gate) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode must not be null");
+        }
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be at least 1");
+        }
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1]");
+        }
+        if (processNoise < 0 || measurementNoise <= 0 || gate <= 0) {
+            throw new IllegalArgumentException("Kalman noise and gate parameters must be positive");
+        }
+        this.mode = mode;
+        this.window = window;
+        this.alpha = alpha;
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+        this.gate = gate;
+        this.readings = new double[window];
+        this.sorted = new double[window];
+    }
+
+    /**
+     * Adds a reading. Readings that are not finite are ignored.
+     *
+     * @param distance    the measured distance in centimetres
+     * @param sampleNanos the {@link System#nanoTime()} at which the reading was taken
+     */
+    public void update(double distance, long sampleNanos) {
+        if (Double.isNaN(distance) || Double.isInfinite(distance)) {
+            return;
+        }
+        double dt = updates == 0 ? 0 : (sampleNanos - lastNanos) / 1e9;
+        double previous = value;
+
+        switch (mode) {
+            case MOVING_AVERAGE:
+                addToRing(distance);
+                value = sum / count;
+                break;
+            case MEDIAN:
+                addToSorted(distance);
+                addToRing(distance);
+                value = (count & 1) == 1
+                        ? sorted[count / 2]
+                        : (sorted[count / 2 - 1] + sorted[count / 2]) / 2;
+                break;
+            case EXPONENTIAL:
+                value = updates == 0 ? distance : alpha * distance + (1 - alpha) * value;
+                break;
+            case KALMAN:
+                updateKalman(distance, dt);
+                break;
+        }
+
+        if (mode != Mode.KALMAN && updates > 0 && dt > 0) {
+            double instantaneous = (value - previous) / dt;
+            rate = updates == 1 ? instantaneous : RATE_SMOOTHING * instantaneous + (1 - RATE_SMOOTHING) * rate;
+        }
+        lastNanos = sampleNanos;
+        updates++;
+    }
+
+    /**
+     * @return the filtered distance in centimetres, or {@link Double#MAX_VALUE} before the first reading
+     */
+    public double getValue() {
+        return updates == 0 ? Double.MAX_VALUE : value;
+    }
+
+    /**
+     * @return the estimated rate of change of the distance in centimetres per second (negative while
+     *         approaching), or 0 before two readings have been added
+     */
+    public double getRateOfChange() {
+        return rate;
+    }
+
+    /**
+     * @return the filter in use
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the number of readings added since creation or the last {@link #reset()}
+     */
+    public long getUpdateCount() {
+        return updates;
+    }
+
+    /**
+     * @return the number of readings the Kalman filter ignored as echoes
+     */
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    /**
+     * Forgets all readings.
+     */
+    public void reset() {
+        Arrays.fill(readings, 0);
+        Arrays.fill(sorted, 0);
+        head = 0;
+        count = 0;
+        sum = 0;
+        value = 0;
+        rate = 0;
+        lastNanos = 0;
+        updates = 0;
+        p00 = p01 = p11 = 0;
+        consecutiveOutliers = 0;
+        rejected = 0;
+    }
+
+    /**
+     * Overwrites the oldest reading of the ring and keeps the running sum up to date.
+     */
+    private void addToRing(double distance) {
+        if (count == window) {
+            sum -= readings[head];
+        } else {
+            count++;
+        }
+        readings[head] = distance;
+        sum += distance;
+        head = head + 1 == window ? 0 : head + 1;
+        if (head == 0) {
+            // Recompute once per lap so rounding errors in the running sum cannot accumulate
+            sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += readings[i];
+            }
+        }
+    }
+
+    /**
+     * Replaces the reading about to leave the ring with the new one in the sorted copy. Must be
+     * called before {@link #addToRing(double)}.
+     */
+    private void addToSorted(double distance) {
+        int size = count;
+        if (count == window) {
+            // Remove the oldest reading, which addToRing is about to overwrite
+            int index = Arrays.binarySearch(sorted, 0, size, readings[head]);
+            System.arraycopy(sorted, index + 1, sorted, index, size - index - 1);
+            size--;
+        }
+        int insert = Arrays.binarySearch(sorted, 0, size, distance);
+        if (insert < 0) {
+            insert = -insert - 1;
+        }
+        System.arraycopy(sorted, insert, sorted, insert + 1, size - insert);
+        sorted[insert] = distance;
+    }
+
+    /**
+     * One predict and update step of the constant-velocity Kalman filter.
+     */
+    private void updateKalman(double distance, double dt) {
+        if (updates == 0) {
+            startKalman(distance);
+            return;
+        }
+
+        // Predict: distance moves with the current rate; uncertainty grows with the process noise
+        double predicted = value + rate * dt;
+        double dt2 = dt * dt;
+        double q00 = processNoise * dt2 * dt2 / 4;
+        double q01 = processNoise * dt2 * dt / 2;
+        double q11 = processNoise * dt2;
+        double a00 = p00 + 2 * dt * p01 + dt2 * p11 + q00;
+        double a01 = p01 + dt * p11 + q01;
+        double a11 = p11 + q11;
+
+        // Gate readings far from the prediction as echoes
+        double innovation = distance - predicted;
+        double innovationVariance = a00 + measurementNoise;
+        if (innovation * innovation > gate * gate * innovationVariance) {
+            rejected++;
+            if (++consecutiveOutliers >= MAX_CONSECUTIVE_OUTLIERS) {
+                startKalman(distance);
+                return;
+            }
+            value = predicted;
+            p00 = a00;
+            p01 = a01;
+            p11 = a11;
+            return;
+        }
+        consecutiveOutliers = 0;
+
+        // Update with the reading
+        double k0 = a00 / innovationVariance;
+        double k1 = a01 / innovationVariance;
+        value = predicted + k0 * innovation;
+        rate = rate + k1 * innovation;
+        p00 = (1 - k0) * a00;
+        p01 = (1 - k0) * a01;
+        p11 = a11 - k1 * a01;
+    }
+
+    /**
+     * (Re)starts the Kalman filter at a reading with unknown rate of change.
+     */
+    private void startKalman(double distance) {
+        value = distance;
+        rate = 0;
+        p00 = measurementNoise;
+        p01 = 0;
+        p11 = 10_000; // (100 cm/s)^2: the rate is unknown
+        consecutiveOutliers = 0;
+    }
+}
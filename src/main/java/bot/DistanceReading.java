@@ -0,0 +1,67 @@
+package bot;
+
+/**
+ * An ultrasound distance reading together with the time it was taken.
+ * <p>
+ * The sample time is taken from {@link System#nanoTime()} just before the sensor was triggered, so
+ * it can be compared with other timestamps, e.g. those of {@link CapturedFrame}s.
+ */
+public final class DistanceReading {
+
+    private final double distance;
+    private final long sampleNanos;
+    private final long sequence;
+
+    /**
+     * @param distance    the measured distance in centimetres
+     * @param sampleNanos the {@link System#nanoTime()} at which the measurement started
+     * @param sequence    the reading's position in its sampling stream (1 for the first reading), or 0
+     *                    for a single measurement outside any stream
+     */
+    public DistanceReading(double distance, long sampleNanos, long sequence) {
+        this.distance = distance;
+        this.sampleNanos = sampleNanos;
+        this.sequence = sequence;
+    }
+
+    /**
+     * @return the measured distance in centimetres
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the measurement started
+     */
+    public long getSampleNanos() {
+        return sampleNanos;
+    }
+
+    /**
+     * @return the reading's position in its sampling stream, or 0 for a single measurement
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return how long ago the measurement started, in nanoseconds
+     */
+    public long getAgeNanos() {
+        return System.nanoTime() - sampleNanos;
+    }
+
+    /**
+     * @param nanoTime a {@link System#nanoTime()} value
+     * @return {@code true} if the measurement started after {@code nanoTime}
+     */
+    public boolean isNewerThan(long nanoTime) {
+        return sampleNanos - nanoTime > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "DistanceReading{" + distance + " cm, #" + sequence + '}';
+    }
+}
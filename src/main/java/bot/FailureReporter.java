@@ -0,0 +1,57 @@
+package bot;
+
+/**
+ * Reports the failures of a background loop that retries a hardware call, without flooding
+ * {@code System.err} while the hardware keeps failing.
+ * <p>
+ * The first failure of a run is printed with its stack trace. Further failures are only counted,
+ * with a one-line summary every {@value #SUMMARY_INTERVAL} failures and when the call succeeds
+ * again. Used by one thread at a time.
+ */
+final class FailureReporter {
+
+    /** Number of failures in a row between two summary lines. */
+    static final int SUMMARY_INTERVAL = 100;
+
+    private final String description;
+    private int consecutiveFailures;
+
+    /**
+     * @param description what failed, e.g. {@code "Background capture"}
+     */
+    FailureReporter(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Records a failure, printing it if it is the first of a run.
+     *
+     * @param e the exception thrown by the call
+     */
+    void failed(Exception e) {
+        consecutiveFailures++;
+        if (consecutiveFailures == 1) {
+            System.err.println(description + " failed; further failures are counted");
+            e.printStackTrace();
+        } else if (consecutiveFailures % SUMMARY_INTERVAL == 0) {
+            System.err.println(description + " has failed " + consecutiveFailures + " times in a row: " + e);
+        }
+    }
+
+    /**
+     * Records a success, reporting the end of a run of failures.
+     */
+    void succeeded() {
+        if (consecutiveFailures > 0) {
+            System.err.println(description + " recovered after " + consecutiveFailures + " failures");
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * @return the number of failures since the last success
+     */
+    int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
@@ -0,0 +1,105 @@
+package bot;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A fixed-size ring of the most recent {@link CapturedFrame}s, written by one capture thread and
+ * read by any number of others.
+ * <p>
+ * The newest frame is also kept in a volatile field, so {@link #latest()} never blocks. Readers that
+ * need a frame captured after a certain moment wait in {@link #awaitNewerThan(long, long)} until the
+ * writer publishes one. Older frames are overwritten once the ring is full.
+ */
+final class FrameRing {
+
+    private final CapturedFrame[] frames;
+
+    /** Number of frames published so far; guarded by {@code this}. */
+    private long published;
+
+    /** The newest frame, or {@code null} before the first one. */
+    private volatile CapturedFrame latest;
+
+    /**
+     * @param capacity the number of recent frames kept
+     */
+    FrameRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.frames = new CapturedFrame[capacity];
+    }
+
+    /**
+     * Adds a frame, overwriting the oldest one if the ring is full, and wakes up waiting readers.
+     *
+     * @param image        the captured picture
+     * @param captureNanos the {@link System#nanoTime()} at which the capture started
+     * @return the published frame
+     */
+    synchronized CapturedFrame publish(BufferedImage image, long captureNanos) {
+        published++;
+        CapturedFrame frame = new CapturedFrame(image, captureNanos, published);
+        frames[(int) ((published - 1) % frames.length)] = frame;
+        latest = frame;
+        notifyAll();
+        return frame;
+    }
+
+    /**
+     * @return the newest frame, or {@code null} if none has been captured yet
+     */
+    CapturedFrame latest() {
+        return latest;
+    }
+
+    /**
+     * Returns the newest frame if it was captured after {@code nanoTime}, otherwise waits for one.
+     *
+     * @param nanoTime      a {@link System#nanoTime()} value the frame must be newer than
+     * @param timeoutMillis the longest time to wait
+     * @return the frame, or {@code null} if none arrived in time
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    CapturedFrame awaitNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        CapturedFrame frame = latest;
+        if (frame != null && frame.isNewerThan(nanoTime)) {
+            return frame;
+        }
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        synchronized (this) {
+            while (true) {
+                frame = latest;
+                if (frame != null && frame.isNewerThan(nanoTime)) {
+                    return frame;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                wait(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+            }
+        }
+    }
+
+    /**
+     * @return the frames currently held, oldest first
+     */
+    synchronized List<CapturedFrame> snapshot() {
+        int count = (int) Math.min(published, frames.length);
+        List<CapturedFrame> result = new ArrayList<>(count);
+        for (long sequence = published - count + 1; sequence <= published; sequence++) {
+            result.add(frames[(int) ((sequence - 1) % frames.length)]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of frames published since the ring was created
+     */
+    synchronized long getPublishedCount() {
+        return published;
+    }
+}
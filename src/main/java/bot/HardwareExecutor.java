@@ -0,0 +1,46 @@
+package bot;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs the SwiftBot API calls that a controller makes on threads of its own (timed-motion stops,
+ * continuous capture, ultrasound sampling) or on behalf of a caller that bypasses a dispatcher
+ * (the measurements and captures the await methods fall back to).
+ * <p>
+ * {@link #DIRECT} runs them on the calling thread. A {@link DispatchingBotController} installs one
+ * that runs them on its dispatcher thread, so they are serialised with every other hardware call.
+ */
+interface HardwareExecutor {
+
+    /** Runs every call on the calling thread. */
+    HardwareExecutor DIRECT = new HardwareExecutor() {
+        @Override
+        public <T> T call(Callable<T> call) throws Exception {
+            return call.call();
+        }
+
+        @Override
+        public void stop(Runnable stop) {
+            stop.run();
+        }
+    };
+
+    /**
+     * Runs a hardware call and waits for its result.
+     *
+     * @param call the call
+     * @param <T>  the result type
+     * @return the result of the call
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a call
+     *                              run on another thread
+     * @throws Exception            whatever the call throws
+     */
+    <T> T call(Callable<T> call) throws Exception;
+
+    /**
+     * Runs a call that stops the wheels, ahead of other queued calls, without waiting for it.
+     *
+     * @param stop the call
+     */
+    void stop(Runnable stop);
+}
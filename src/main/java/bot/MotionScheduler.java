@@ -0,0 +1,221 @@
+package bot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs timed motions: starts the motors, then stops them from a timer thread once the duration has
+ * passed, so the caller neither blocks nor spins while the robot moves.
+ * <p>
+ * The timer thread sleeps with {@link LockSupport#parkNanos} until the stop is due. Parking tends to
+ * wake up slightly late, so the scheduler measures how late each stop was and wakes up that much
+ * earlier next time (up to {@link #MAX_COMPENSATION_NANOS}); the stop times then stay centred on
+ * their deadlines instead of drifting late.
+ * <p>
+ * Every motor command bumps a generation counter. A timed motion only stops the motors if no other
+ * command was issued since it started, so a pending stop never cuts short a newer motion. The
+ * superseded motion's future completes with {@code false}; one that ran to its end completes with
+ * {@code true}. Cancelling the future stops the motors at once, unless a newer command has already
+ * taken over.
+ * <p>
+ * The stops themselves (due or cancelled) run on a {@linkplain #setStopExecutor(Executor) stop
+ * executor}, by default the thread that triggers them. A controller whose hardware calls are
+ * serialised on a dispatcher thread hands them to the dispatcher instead; the timer thread then only
+ * requests the stop, and the generation check and the stop run together on the dispatcher.
+ */
+final class MotionScheduler {
+
+    /** Starts and stops the wheels. */
+    interface Motors {
+        void start(int leftSpeed, int rightSpeed);
+
+        void stop();
+    }
+
+    /** Longest early wake-up used to compensate for late timer wake-ups. */
+    static final long MAX_COMPENSATION_NANOS = 2_000_000L;
+
+    /** Share of each measured lateness added to the compensation. */
+    private static final double COMPENSATION_GAIN = 0.25;
+
+    /** A started motion waiting for its stop. */
+    private static final class Pending {
+        final long generation;
+        final long deadlineNanos;
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        boolean stopRequested; // Only used by the timer thread
+
+        Pending(long generation, long deadlineNanos) {
+            this.generation = generation;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final Motors motors;
+    private final Object lock = new Object();
+
+    /** Bumped by every motor command; guarded by {@link #lock}. */
+    private long generation;
+
+    /** The motion whose stop is due next, or {@code null}. Written under {@link #lock}. */
+    private volatile Pending pending;
+
+    private Thread thread; // guarded by lock
+    private volatile Executor stopExecutor = Runnable::run;
+    private volatile long compensationNanos;
+    private volatile long lastLatenessNanos;
+
+    /**
+     * @param motors the wheels to drive
+     */
+    MotionScheduler(Motors motors) {
+        this.motors = motors;
+    }
+
+    /**
+     * Sets where the stops of due and cancelled motions run. The default runs them on the thread
+     * that triggers them: the timer thread, or the thread cancelling the future.
+     *
+     * @param executor runs each stop; must not drop any
+     */
+    void setStopExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        this.stopExecutor = executor;
+    }
+
+    /**
+     * Starts the wheels at the given speeds and schedules them to stop after {@code durationMillis}.
+     *
+     * @param leftSpeed      the left wheel speed
+     * @param rightSpeed     the right wheel speed
+     * @param durationMillis how long to move
+     * @return a future completing with {@code true} once the motion has been stopped on time, or with
+     *         {@code false} if another motor command superseded it first
+     */
+    CompletableFuture<Boolean> schedule(int leftSpeed, int rightSpeed, long durationMillis) {
+        if (durationMillis < 0) {
+            throw new IllegalArgumentException("durationMillis must not be negative");
+        }
+        Pending superseded;
+        Pending motion;
+        synchronized (lock) {
+            superseded = pending;
+            generation++;
+            motors.stop();
+            motors.start(leftSpeed, rightSpeed);
+            // Time from the moment the motors are running, not from the call
+            motion = new Pending(generation, System.nanoTime() + durationMillis * 1_000_000L);
+            pending = motion;
+            if (thread == null) {
+                thread = new Thread(this::run, "motion-scheduler");
+                thread.setDaemon(true);
+                thread.start();
+            } else {
+                LockSupport.unpark(thread);
+            }
+        }
+        complete(superseded, false);
+
+        Pending started = motion;
+        motion.future.whenComplete((result, error) -> {
+            if (started.future.isCancelled()) {
+                stopExecutor.execute(() -> stopIfCurrent(started));
+            }
+        });
+        return motion.future;
+    }
+
+    /**
+     * Records that the caller is about to issue another motor command, so that a pending timed motion
+     * no longer stops the motors. Must be called before the command.
+     */
+    void supersede() {
+        Pending superseded;
+        synchronized (lock) {
+            superseded = pending;
+            pending = null;
+            generation++;
+        }
+        complete(superseded, false);
+    }
+
+    /**
+     * @return how much earlier than its deadline the timer thread currently wakes up, in nanoseconds
+     */
+    long getCompensationNanos() {
+        return compensationNanos;
+    }
+
+    /**
+     * @return how late (positive) or early (negative) the most recent timed stop was, in nanoseconds
+     */
+    long getLastLatenessNanos() {
+        return lastLatenessNanos;
+    }
+
+    /**
+     * Stops the motors for a cancelled motion, unless another command has taken over since.
+     */
+    private void stopIfCurrent(Pending motion) {
+        synchronized (lock) {
+            if (motion.generation != generation) {
+                return;
+            }
+            pending = null;
+            generation++;
+            motors.stop();
+        }
+    }
+
+    /**
+     * Body of the timer thread: parks until the pending motion is due, then requests its stop.
+     */
+    private void run() {
+        while (true) {
+            Pending motion = pending;
+            if (motion == null || motion.stopRequested) {
+                LockSupport.park(this); // A new motion unparks the thread
+                continue;
+            }
+            long remaining = motion.deadlineNanos - compensationNanos - System.nanoTime();
+            if (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                continue; // Woken early, by a new motion or spuriously: re-check
+            }
+            motion.stopRequested = true;
+            stopExecutor.execute(() -> stopDue(motion));
+        }
+    }
+
+    /**
+     * Stops a motion that has reached its deadline, unless another command has taken over since.
+     */
+    private void stopDue(Pending motion) {
+        boolean stopped = false;
+        synchronized (lock) {
+            if (pending == motion && motion.generation == generation) {
+                long lateness = System.nanoTime() - motion.deadlineNanos;
+                motors.stop();
+                pending = null;
+                stopped = true;
+
+                // Wake up earlier next time by a share of how late this stop was
+                lastLatenessNanos = lateness;
+                long compensation = compensationNanos + (long) (COMPENSATION_GAIN * lateness);
+                compensationNanos = Math.max(0, Math.min(MAX_COMPENSATION_NANOS, compensation));
+            }
+        }
+        if (stopped) {
+            motion.future.complete(true);
+        }
+    }
+
+    private static void complete(Pending motion, boolean ranToEnd) {
+        if (motion != null) {
+            motion.future.complete(ranToEnd);
+        }
+    }
+}
@@ -7,7 +7,12 @@ import swiftbot.ButtonFunction;
 import swiftbot.ImageSize;
 import swiftbot.SwiftBotAPI;
 
-import java.util.Queue;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.awt.image.BufferedImage;
 
 /**
@@ -26,9 +31,31 @@ public class SwiftBotController implements BotController {
     private static final double CALIBRATION_FACTOR_50 = 0.33; // Factor to calculate distance at speed 50
     private static final double CALIBRATION_FACTOR_30 = 0.26; // Factor to calculate distance at speed 30
 
-    private static final int SMOOTHING_SAMPLE_SIZE = 3; // Number of recent readings to average for smoothing
-    private Queue<Double> recentDistances; // Stores the most recent distance readings
+    private static final int SMOOTHING_SAMPLE_SIZE = 3; // Number of recent readings the default filter considers
+    private final Object distanceFilterLock = new Object(); // Guards distanceFilter and lastSmoothedSequence
+    private DistanceFilter distanceFilter = new DistanceFilter(DistanceFilter.Mode.MEDIAN, SMOOTHING_SAMPLE_SIZE); // Smooths the recent distance readings
+    private long lastSmoothedSequence; // Sequence of the last sampled reading added to distanceFilter
     private BotController botController; // Reference to the robot's API for accessing sensors
+
+    private static final int DEFAULT_FRAME_RING_SIZE = 4; // Recent frames kept by continuous capture
+    private static final long FRAME_WAIT_MILLIS = 2000; // Longest wait for a background frame in takeGreyPicture
+    private static final long MAX_FRAME_AGE_NANOS = 250_000_000L; // Oldest background frame takeGreyPicture returns
+    private static final long CAPTURE_RETRY_MILLIS = 100; // Pause after a failed background capture
+    private static final long MAX_CAPTURE_RETRY_MILLIS = 2000; // Longest pause after repeated failed captures
+
+    private final Object cameraLock = new Object(); // Serialises access to the camera
+    private volatile FrameRing frameRing; // Recent background frames, or null when not capturing
+    private Thread captureThread; // Thread running continuous capture; guarded by this
+
+    private final Object ultrasoundLock = new Object(); // Serialises access to the ultrasound sensor
+    private volatile UltrasoundSampler ultrasoundSampler; // Background sampler, or null when not sampling
+    private volatile long maxReadingAgeNanos; // Oldest sampled reading measureDistance may return
+
+    private static final double MOVE_30CM_FACTOR = 190.0; // Milliseconds per unit of speed to cover ~30 cm
+    private static final long TURN_LEFT_60_MILLIS = 125; // Spin time for a ~60-degree left turn
+    private static final long TURN_RIGHT_60_MILLIS = 225; // Spin time for a ~60-degree right turn
+    private final MotionScheduler motionScheduler; // Stops timed motions without blocking the caller
+    private volatile HardwareExecutor hardware = HardwareExecutor.DIRECT; // Runs camera, sensor and timed-stop calls
     /**
      * Constructs a {@code SwiftBotController} with a provided {@link SwiftBotAPI} instance.
      *
@@ -37,6 +64,17 @@ public class SwiftBotController implements BotController {
      */
     public SwiftBotController(SwiftBotAPI swiftBotApi) {
         this.swiftBotApi = swiftBotApi;
+        this.motionScheduler = new MotionScheduler(new MotionScheduler.Motors() {
+            @Override
+            public void start(int leftSpeed, int rightSpeed) {
+                swiftBotApi.startMove(leftSpeed, rightSpeed);
+            }
+
+            @Override
+            public void stop() {
+                swiftBotApi.stopMove();
+            }
+        });
     }
 
     /**
@@ -51,6 +89,7 @@ public class SwiftBotController implements BotController {
 
     @Override
     public void move(int speed, int speed2, int duration) {
+        motionScheduler.supersede();
         swiftBotApi.move(speed, speed2, duration);
     }
 
@@ -63,23 +102,22 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void moveForward30cm(int speed) {
+        awaitMotion(moveForward30cmAsync(speed));
+    }
 
-        swiftBotApi.stopMove();
-        // Calculate duration to move 30 cm at the specified speed (heuristic).
-        int duration = (int) ((190.0 / speed) * 1_000);
-        // Start moving forward at the designated speed for both wheels.
-        swiftBotApi.startMove(speed, speed);
-
-        // End time after which the bot should stop.
-        long endTime = System.currentTimeMillis() + duration;
-
-        // Loop until we reach the target time.
-        while(System.currentTimeMillis() < endTime){
-            // Busy wait (could be improved, but typically short).
-        }
-
-        // Stop after finishing the movement.
-        swiftBotApi.stopMove();
+    /**
+     * Starts moving the SwiftBot forward ~30 cm and returns at once; a timer thread stops the
+     * wheels once the distance has been covered.
+     *
+     * @param speed The motor power (positive integer) used for movement,
+     *              from which the duration is computed.
+     * @return A future completing with {@code true} when the bot has stopped after the full distance,
+     *         or {@code false} if another movement command took over first.
+     */
+    @Override
+    public CompletableFuture<Boolean> moveForward30cmAsync(int speed) {
+        // Start moving forward at the designated speed for both wheels, stopping after the computed duration.
+        return motionScheduler.schedule(speed, speed, duration30cm(speed));
     }
 
     /**
@@ -88,6 +126,7 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void moveForward() {
+        motionScheduler.supersede();
         swiftBotApi.startMove(50, 50);
     }
 
@@ -131,21 +170,22 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void moveBackward30cm(int speed) {
+        awaitMotion(moveBackward30cmAsync(speed));
+    }
 
-        swiftBotApi.stopMove();
-        // Calculate duration to move 30 cm at the specified speed (heuristic).
-        int duration = (int) ((190.0 / speed) * 1_000);
+    /**
+     * Starts moving the SwiftBot backward ~30 cm and returns at once; a timer thread stops the
+     * wheels once the distance has been covered.
+     *
+     * @param speed The motor power (positive integer) used for movement,
+     *              from which the duration is computed.
+     * @return A future completing with {@code true} when the bot has stopped after the full distance,
+     *         or {@code false} if another movement command took over first.
+     */
+    @Override
+    public CompletableFuture<Boolean> moveBackward30cmAsync(int speed) {
         // Negative speed moves the SwiftBot in reverse.
-        swiftBotApi.startMove(-speed, -speed);
-
-        // End time after which the bot should stop.
-        long endTime = System.currentTimeMillis() + duration;
-
-        // Loop until we reach the target time.
-        while(System.currentTimeMillis() < endTime){
-            // Busy wait.
-        }
-        swiftBotApi.stopMove();
+        return motionScheduler.schedule(-speed, -speed, duration30cm(speed));
     }
 
     /**
@@ -154,6 +194,7 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void moveBackward() {
+        motionScheduler.supersede();
         swiftBotApi.startMove(-50, -50);
     }
 
@@ -164,6 +205,7 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void turnLeft(int speed) {
+        motionScheduler.supersede();
         swiftBotApi.startMove(-speed, speed);
     }
 
@@ -173,16 +215,20 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void turnLeft60() {
+        awaitMotion(turnLeft60Async());
+    }
 
-        swiftBotApi.stopMove();
+    /**
+     * Starts an approximate 60-degree left turn and returns at once; a timer thread stops the
+     * wheels after 0.125 seconds.
+     *
+     * @return A future completing with {@code true} when the turn has finished, or {@code false}
+     *         if another movement command took over first.
+     */
+    @Override
+    public CompletableFuture<Boolean> turnLeft60Async() {
         // Spin wheels for ~0.125 seconds to achieve ~60-degree turn.
-        swiftBotApi.startMove(-100, 100);
-        long rotationEndTime = System.currentTimeMillis() + 125;
-
-        while(System.currentTimeMillis() < rotationEndTime){
-            // Busy wait until time elapses.
-        }
-        swiftBotApi.stopMove();
+        return motionScheduler.schedule(-100, 100, TURN_LEFT_60_MILLIS);
     }
 
     /**
@@ -192,6 +238,7 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void turnRight(int speed) {
+        motionScheduler.supersede();
         swiftBotApi.startMove(speed, -speed);
     }
 
@@ -201,16 +248,60 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void turnRight60() {
+        awaitMotion(turnRight60Async());
+    }
 
-        swiftBotApi.stopMove();
+    /**
+     * Starts an approximate 60-degree right turn and returns at once; a timer thread stops the
+     * wheels after 0.225 seconds.
+     *
+     * @return A future completing with {@code true} when the turn has finished, or {@code false}
+     *         if another movement command took over first.
+     */
+    @Override
+    public CompletableFuture<Boolean> turnRight60Async() {
         // Spin wheels for ~0.225 seconds to achieve ~60-degree turn.
-        swiftBotApi.startMove(100, -100);
-        long rotationEndTime = System.currentTimeMillis() + 225;
+        return motionScheduler.schedule(100, -100, TURN_RIGHT_60_MILLIS);
+    }
 
-        while(System.currentTimeMillis() < rotationEndTime){
-            // Busy wait until time elapses.
+    /**
+     * Sets where the API calls are run that this controller may make on threads other than the
+     * caller's: the stops of timed motions, every camera capture and ultrasound measurement
+     * (including those of continuous capture and ultrasound sampling). Installed by a
+     * {@link DispatchingBotController} so that these calls run on its dispatcher thread.
+     *
+     * @param executor the executor, or {@link HardwareExecutor#DIRECT} to run them where they are made
+     */
+    void setHardwareExecutor(HardwareExecutor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        hardware = executor;
+        motionScheduler.setStopExecutor(executor::stop);
+    }
+
+    /**
+     * @return How late (positive) or early (negative) the most recent timed stop was, in nanoseconds.
+     */
+    public long getLastMotionStopLatenessNanos() {
+        return motionScheduler.getLastLatenessNanos();
+    }
+
+    // Calculates how long to move to cover ~30 cm at the specified speed (heuristic)
+    private static long duration30cm(int speed) {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("speed must be positive");
+        }
+        return (long) ((MOVE_30CM_FACTOR / speed) * 1_000);
+    }
+
+    // Blocks until a timed motion has ended; the calling thread parks instead of spinning
+    private static void awaitMotion(CompletableFuture<Boolean> motion) {
+        try {
+            motion.join();
+        } catch (CancellationException | CompletionException e) {
+            // The motion was cancelled; the scheduler has already stopped the wheels
         }
-        swiftBotApi.stopMove();
     }
 
 
@@ -237,6 +328,7 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public void stopMoving() {
+        motionScheduler.supersede();
         swiftBotApi.stopMove();
     }   
 
@@ -248,26 +340,134 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public double measureDistance() {
+        return readDistance().getDistance();
+    }
+
+    /**
+     * Returns the background sampler's latest reading if ultrasound sampling is running and the
+     * reading is no older than the configured limit; otherwise measures directly, returning a
+     * distance of {@code 0} in case of an error.
+     *
+     * @return the reading
+     */
+    @Override
+    public DistanceReading readDistance() {
+        UltrasoundSampler sampler = ultrasoundSampler;
+        if (sampler != null) {
+            DistanceReading reading = sampler.latest();
+            if (reading != null && reading.getAgeNanos() <= maxReadingAgeNanos) {
+                return reading;
+            }
+        }
         try {
-            return swiftBotApi.useUltrasound();
+            return measureNow();
         } catch (Exception e) {
             e.printStackTrace();
         }
-        return 0;
+        return new DistanceReading(0, System.nanoTime(), 0);
     }
 
-    // Checks if an object is detected within a given threshold distance
+    // Measures with the ultrasound sensor, stamping the reading with the time the measurement started
+    private DistanceReading measureNow() throws Exception {
+        return useHardware(ultrasoundLock, () -> {
+            long start = System.nanoTime();
+            return new DistanceReading(swiftBotApi.useUltrasound(), start, 0);
+        });
+    }
+
+    // Runs an API call under the given lock, on the hardware executor. Callers wrap what it
+    // throws, so an interrupt while waiting for the executor is kept in the thread's status.
+    private <T> T useHardware(Object lock, Callable<T> call) throws Exception {
+        try {
+            return hardware.call(() -> {
+                synchronized (lock) {
+                    return call.call();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the latest background reading if it was taken after {@code nanoTime}, otherwise waits
+     * for the next one. Without ultrasound sampling, measures directly.
+     *
+     * @param nanoTime      a {@link System#nanoTime()} value the reading must be newer than
+     * @param timeoutMillis the longest time to wait for a background sample
+     * @return the reading, or {@code null} if none arrived within the timeout
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
     @Override
-    public boolean isObjectDetected(double threshold) {
-        double distance = measureDistance(); // Get the current distance reading from the robot's sensor
+    public DistanceReading awaitDistanceNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        UltrasoundSampler sampler = ultrasoundSampler;
+        if (sampler == null) {
+            return readDistance();
+        }
+        return sampler.awaitNewerThan(nanoTime, timeoutMillis);
+    }
+
+    /**
+     * Starts sampling the ultrasound sensor on a background thread.
+     * <p>
+     * The sampler measures every {@code periodMillis} and publishes each reading with its
+     * timestamp through a lock-free cell. While it runs, {@link #measureDistance()} and
+     * {@link #readDistance()} return the latest reading immediately instead of waiting for a
+     * sensor round trip, provided it is at most {@code maxAgeMillis} old; older readings (e.g.
+     * after sensor errors) make them measure directly again. Does nothing if sampling is already
+     * running.
+     *
+     * @param periodMillis the time between two measurements
+     * @param maxAgeMillis the oldest reading that is returned without measuring
+     */
+    public synchronized void startUltrasoundSampling(long periodMillis, long maxAgeMillis) {
+        if (ultrasoundSampler != null) {
+            return;
+        }
+        if (maxAgeMillis <= 0) {
+            throw new IllegalArgumentException("maxAgeMillis must be positive");
+        }
+        maxReadingAgeNanos = maxAgeMillis * 1_000_000L;
+        UltrasoundSampler sampler = new UltrasoundSampler(this::measureNow, periodMillis);
+        sampler.start();
+        ultrasoundSampler = sampler;
+    }
 
-        // Add the new reading to the queue, maintaining the maximum sample size
-        if (recentDistances.size() >= SMOOTHING_SAMPLE_SIZE) {
-            recentDistances.poll(); // Remove the oldest reading to make room
+    /**
+     * Stops ultrasound sampling. Does nothing if sampling is not running.
+     */
+    public synchronized void stopUltrasoundSampling() {
+        UltrasoundSampler sampler = ultrasoundSampler;
+        if (sampler == null) {
+            return;
         }
-        recentDistances.offer(distance); // Add the newest distance reading to the queue
+        ultrasoundSampler = null;
+        sampler.stop();
+    }
+
+    /**
+     * @return {@code true} if the ultrasound sensor is being sampled in the background
+     */
+    public boolean isUltrasoundSamplingRunning() {
+        return ultrasoundSampler != null;
+    }
 
-        double smoothedDistance = getSmoothedDistance(); // Calculate the smoothed (averaged) distance
+    // Checks if an object is detected within a given threshold distance
+    @Override
+    public boolean isObjectDetected(double threshold) {
+        DistanceReading reading = readDistance(); // Get the current distance reading from the robot's sensor
+        double distance = reading.getDistance();
+
+        double smoothedDistance;
+        synchronized (distanceFilterLock) {
+            // A sampled reading that is already in the filter would otherwise be counted twice
+            if (reading.getSequence() == 0 || reading.getSequence() != lastSmoothedSequence) {
+                lastSmoothedSequence = reading.getSequence();
+                distanceFilter.update(distance, reading.getSampleNanos()); // Add the newest distance reading to the filter
+            }
+            smoothedDistance = distanceFilter.getValue(); // Get the smoothed (filtered) distance
+        }
 
         // Print the raw and smoothed distances for debugging purposes
         //ystem.out.println("Raw Distance: " + distance + " cm");
@@ -282,18 +482,41 @@ public class SwiftBotController implements BotController {
         return false; // No object detected
     }
 
-    // Calculates the average (smoothed) distance from the recent readings
+    // Returns the filtered (smoothed) distance from the recent readings, or Double.MAX_VALUE if there are none
     @Override
     public double getSmoothedDistance() {
-        if (recentDistances.isEmpty()) {
-            return Double.MAX_VALUE; // Return a very large value if no readings are available
+        synchronized (distanceFilterLock) {
+            return distanceFilter.getValue();
         }
+    }
+
+    /**
+     * Returns how fast the filtered distance is changing, as estimated by the current filter from
+     * the readings taken by {@link #isObjectDetected(double)}.
+     *
+     * @return the rate of change in centimetres per second; negative while an object is getting closer
+     */
+    public double getDistanceRateOfChange() {
+        synchronized (distanceFilterLock) {
+            return distanceFilter.getRateOfChange();
+        }
+    }
 
-        double total = 0; // Sum up all the distance readings
-        for (double d : recentDistances) {
-            total += d; // Add each reading to the total
+    /**
+     * Selects the filter used to smooth distance readings. The default is a median over the last
+     * three readings, which ignores single ultrasonic echoes. The new filter starts with the readings
+     * it already holds, so pass a fresh one to start over.
+     *
+     * @param filter the filter to use
+     */
+    public void setDistanceFilter(DistanceFilter filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("filter must not be null");
+        }
+        synchronized (distanceFilterLock) {
+            distanceFilter = filter;
+            lastSmoothedSequence = 0;
         }
-        return total / recentDistances.size(); // Divide by the number of readings to get the average
     }
 
     /**
@@ -304,8 +527,28 @@ public class SwiftBotController implements BotController {
      */
     @Override
     public BufferedImage takeGreyPicture() {
+        // While capturing continuously, hand out the newest background frame if it is recent,
+        // and otherwise wait for the next one, rather than competing with the capture thread
+        // for the camera.
+        FrameRing ring = frameRing;
+        if (ring != null) {
+            CapturedFrame frame;
+            try {
+                frame = ring.awaitNewerThan(System.nanoTime() - MAX_FRAME_AGE_NANOS, FRAME_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            if (frame != null) {
+                return frame.getImage();
+            }
+            if (frameRing == ring) {
+                throw new RuntimeException("No frame captured within " + FRAME_WAIT_MILLIS + " ms");
+            }
+            // Capture was stopped while waiting: take the picture directly
+        }
         try {
-            return swiftBotApi.takeGrayscaleStill(ImageSize.SQUARE_480x480);
+            return useHardware(cameraLock, () -> swiftBotApi.takeGrayscaleStill(ImageSize.SQUARE_480x480));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -314,12 +557,143 @@ public class SwiftBotController implements BotController {
     @Override
     public BufferedImage takeCustomPicture(ImageSize imageSize) {
         try {
-            return swiftBotApi.takeStill(imageSize);
+            return useHardware(cameraLock, () -> swiftBotApi.takeStill(imageSize));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Starts capturing 480x480 greyscale frames continuously on a background thread, keeping
+     * the {@value #DEFAULT_FRAME_RING_SIZE} most recent ones.
+     *
+     * @see #startContinuousCapture(int)
+     */
+    public void startContinuousCapture() {
+        startContinuousCapture(DEFAULT_FRAME_RING_SIZE);
+    }
+
+    /**
+     * Starts capturing 480x480 greyscale frames continuously on a background thread.
+     * <p>
+     * Each frame is stored with the time its capture started in a ring of the most recent
+     * frames. Behaviours can then take the freshest frame without waiting for the camera
+     * ({@link #getLatestFrame()}), or wait only until a frame newer than a given moment
+     * arrives ({@link #awaitFrameNewerThan(long, long)}), so reacting to an encounter costs
+     * little more than running the detector. While capturing, {@link #takeGreyPicture()}
+     * returns the newest background frame if its capture started at most 250 ms ago, and
+     * otherwise waits for the next one; it fails rather than take a still of its own if no
+     * frame arrives. Other captures share the camera with the capture
+     * thread and may wait for the frame in progress. Frames are shared between readers and
+     * must not be modified. Does nothing if capture is already running.
+     *
+     * @param ringSize the number of recent frames kept
+     */
+    public synchronized void startContinuousCapture(int ringSize) {
+        if (captureThread != null) {
+            return;
+        }
+        FrameRing ring = new FrameRing(ringSize);
+        frameRing = ring;
+        captureThread = new Thread(() -> captureLoop(ring), "camera-capture");
+        captureThread.setDaemon(true);
+        captureThread.start();
+    }
+
+    /**
+     * Stops continuous capture and waits for the capture thread to finish its current frame.
+     * Does nothing if capture is not running.
+     */
+    public synchronized void stopContinuousCapture() {
+        Thread thread = captureThread;
+        if (thread == null) {
+            return;
+        }
+        frameRing = null;
+        captureThread = null;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return {@code true} if frames are being captured in the background
+     */
+    public boolean isContinuousCaptureRunning() {
+        return frameRing != null;
+    }
+
+    /**
+     * @return the newest background frame, or {@code null} if capture is not running or has not
+     *         produced a frame yet
+     */
+    @Override
+    public CapturedFrame getLatestFrame() {
+        FrameRing ring = frameRing;
+        return ring == null ? null : ring.latest();
+    }
+
+    /**
+     * Returns the newest background frame if its capture started after {@code nanoTime},
+     * otherwise waits for the next one. Without continuous capture, takes a new picture.
+     *
+     * @param nanoTime      a {@link System#nanoTime()} value the frame must be newer than
+     * @param timeoutMillis the longest time to wait for a background frame
+     * @return the frame, or {@code null} if none arrived within the timeout
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    @Override
+    public CapturedFrame awaitFrameNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        FrameRing ring = frameRing;
+        if (ring == null) {
+            return BotController.super.awaitFrameNewerThan(nanoTime, timeoutMillis);
+        }
+        return ring.awaitNewerThan(nanoTime, timeoutMillis);
+    }
+
+    /**
+     * @return the background frames currently held, oldest first; empty if capture is not running
+     */
+    public List<CapturedFrame> getRecentFrames() {
+        FrameRing ring = frameRing;
+        return ring == null ? Collections.emptyList() : ring.snapshot();
+    }
+
+    /**
+     * Body of the capture thread: captures frames into the ring until capture is stopped. After a
+     * failed capture it pauses, twice as long after each further failure in a row, up to
+     * {@value #MAX_CAPTURE_RETRY_MILLIS} ms, and reports the failures without repeating them.
+     */
+    private void captureLoop(FrameRing ring) {
+        FailureReporter failures = new FailureReporter("Background capture");
+        long retryMillis = CAPTURE_RETRY_MILLIS;
+        while (frameRing == ring && !Thread.currentThread().isInterrupted()) {
+            try {
+                CapturedFrame frame = useHardware(cameraLock, () -> {
+                    long captureNanos = System.nanoTime();
+                    return new CapturedFrame(swiftBotApi.takeGrayscaleStill(ImageSize.SQUARE_480x480), captureNanos, 0);
+                });
+                ring.publish(frame.getImage(), frame.getCaptureNanos());
+                failures.succeeded();
+                retryMillis = CAPTURE_RETRY_MILLIS;
+            } catch (Exception e) {
+                if (frameRing != ring) {
+                    return;
+                }
+                failures.failed(e);
+                try {
+                    Thread.sleep(retryMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                retryMillis = Math.min(retryMillis * 2, MAX_CAPTURE_RETRY_MILLIS);
+            }
+        }
+    }
+
     /**
      * Captures a still image in colour at a higher resolution of 1080x1080 pixels.
      *
@@ -327,7 +701,7 @@ public class SwiftBotController implements BotController {
      */
     public BufferedImage takeHighQualityPicture() {
         try {
-            return swiftBotApi.takeStill(ImageSize.SQUARE_1080x1080);
+            return useHardware(cameraLock, () -> swiftBotApi.takeStill(ImageSize.SQUARE_1080x1080));
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,146 @@
+package bot;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Polls a distance sensor at a fixed rate on a background thread and publishes each reading.
+ * <p>
+ * The newest {@link DistanceReading} sits in an {@link AtomicReference}, so reading it with
+ * {@link #latest()} is a single volatile load: no lock, no system call and no wait for the sensor.
+ * Readers that need a reading taken after a certain moment call {@link #awaitNewerThan(long, long)},
+ * which only blocks while no such reading exists. The sampler keeps track of how many readers are
+ * waiting, so publishing only takes the monitor lock when someone needs waking.
+ * <p>
+ * Failed measurements are not published (the last good reading stays in place and ages), so a
+ * sensor error is never mistaken for an obstacle at 0 cm. A failing sensor is reported once and
+ * then only counted (see {@link FailureReporter}), rather than once per period.
+ * <p>
+ * The sensor call takes care of its own locking, and may be run on another thread (see
+ * {@link HardwareExecutor}); the sampler holds no lock while it waits for a measurement.
+ */
+final class UltrasoundSampler {
+
+    /** Takes one measurement, stamped with the time it started; may throw on sensor errors. */
+    interface Sensor {
+        DistanceReading measure() throws Exception;
+    }
+
+    private final Sensor sensor;
+    private final long periodNanos;
+    private final AtomicReference<DistanceReading> latest = new AtomicReference<>();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object waitLock = new Object();
+    private final Thread thread;
+    private final FailureReporter failures = new FailureReporter("Ultrasound sampling");
+    private volatile boolean running;
+    private long sequence;
+
+    /**
+     * @param sensor       the measurement to run
+     * @param periodMillis the time between the starts of two measurements
+     */
+    UltrasoundSampler(Sensor sensor, long periodMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("periodMillis must be positive");
+        }
+        this.sensor = sensor;
+        this.periodNanos = periodMillis * 1_000_000L;
+        this.thread = new Thread(this::run, "ultrasound-sampler");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Stops sampling and waits for the measurement in progress to finish.
+     */
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the newest reading, or {@code null} if none has been taken yet
+     */
+    DistanceReading latest() {
+        return latest.get();
+    }
+
+    /**
+     * Returns the newest reading if it was taken after {@code nanoTime}, otherwise waits for one.
+     *
+     * @param nanoTime      a {@link System#nanoTime()} value the reading must be newer than
+     * @param timeoutMillis the longest time to wait
+     * @return the reading, or {@code null} if none arrived in time
+     * @throws InterruptedException if the calling thread is interrupted while waiting
+     */
+    DistanceReading awaitNewerThan(long nanoTime, long timeoutMillis) throws InterruptedException {
+        DistanceReading reading = latest.get();
+        if (reading != null && reading.isNewerThan(nanoTime)) {
+            return reading;
+        }
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        waiters.incrementAndGet();
+        try {
+            synchronized (waitLock) {
+                while (true) {
+                    reading = latest.get();
+                    if (reading != null && reading.isNewerThan(nanoTime)) {
+                        return reading;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !running) {
+                        return null;
+                    }
+                    waitLock.wait(remaining / 1_000_000L, (int) (remaining % 1_000_000L));
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Body of the sampling thread: measures once per period until stopped.
+     */
+    private void run() {
+        long next = System.nanoTime();
+        while (running) {
+            try {
+                DistanceReading measured = sensor.measure();
+                latest.set(new DistanceReading(measured.getDistance(), measured.getSampleNanos(), ++sequence));
+                failures.succeeded();
+                if (waiters.get() > 0) {
+                    synchronized (waitLock) {
+                        waitLock.notifyAll();
+                    }
+                }
+            } catch (Exception e) {
+                // Keep the last good reading; it ages and readers fall back once it is stale
+                failures.failed(e);
+            }
+
+            // Schedule from the previous start so the rate does not drift with measurement time
+            next += periodNanos;
+            long delay = next - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(this, delay);
+            } else {
+                next = System.nanoTime();
+            }
+        }
+        synchronized (waitLock) {
+            waitLock.notifyAll();
+        }
+    }
+}
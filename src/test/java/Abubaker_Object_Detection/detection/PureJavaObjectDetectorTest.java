@@ -0,0 +1,120 @@
+package Abubaker_Object_Detection.detection;
+
+import Abubaker_Object_Detection.util.OpenCVLoader;
+import Abubaker_Object_Detection.util.SyntheticFrames;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the {@link PureJavaObjectDetector} reaches the same verdicts as the
+ * {@link OpenCVObjectDetector} it mirrors, with closely overlapping boxes, on the
+ * {@link SyntheticFrames} scenes. Both run the full-frame pipeline with the default parameters.
+ */
+class PureJavaObjectDetectorTest {
+
+    private static final int FRAME_SIZE = 480;
+    private static final int RANDOM_SCENES = 200;
+
+    /** Minimum fraction of random scenes on which both detectors must return the same verdict. */
+    private static final double REQUIRED_AGREEMENT = 0.95;
+
+    /** Minimum intersection over union of the largest boxes on the standard object frames. */
+    private static final double OBJECT_FRAME_MIN_IOU = 0.9;
+
+    /** Minimum mean intersection over union of the largest boxes on the random scenes. */
+    private static final double RANDOM_SCENE_MIN_MEAN_IOU = 0.8;
+
+    private static final int[] IMAGE_TYPES = {
+            BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB
+    };
+
+    private static OpenCVObjectDetector openCV;
+    private static PureJavaObjectDetector pureJava;
+
+    @BeforeAll
+    static void createDetectors() {
+        OpenCVLoader.ensureLoaded();
+        DetectorParameters parameters = DetectorParameters.DEFAULT.withSaveDebugImages(false);
+        openCV = new OpenCVObjectDetector(true, parameters, null);
+        pureJava = new PureJavaObjectDetector(parameters, true);
+    }
+
+    @AfterAll
+    static void closeDetectors() {
+        openCV.close();
+    }
+
+    @Test
+    void emptyFramesAreRejectedByBoth() {
+        for (int type : IMAGE_TYPES) {
+            BufferedImage frame = SyntheticFrames.emptyFrame(FRAME_SIZE, type);
+            assertFalse(openCV.detect(frame).isObjectFound(), "OpenCV found an object in the empty frame of type " + type);
+            assertFalse(pureJava.detect(frame).isObjectFound(), "pure Java found an object in the empty frame of type " + type);
+        }
+    }
+
+    @Test
+    void objectFramesAreDetectedByBothWithOverlappingBoxes() {
+        for (int type : IMAGE_TYPES) {
+            BufferedImage frame = SyntheticFrames.objectFrame(FRAME_SIZE, type);
+            DetectionResult expected = openCV.detect(frame);
+            DetectionResult actual = pureJava.detect(frame);
+            assertTrue(expected.isObjectFound(), "OpenCV missed the object in the frame of type " + type);
+            assertTrue(actual.isObjectFound(), "pure Java missed the object in the frame of type " + type);
+            assertNotNull(expected.getLargestBox());
+            assertNotNull(actual.getLargestBox());
+            double overlap = intersectionOverUnion(expected.getLargestBox().getBounds(), actual.getLargestBox().getBounds());
+            assertTrue(overlap >= OBJECT_FRAME_MIN_IOU,
+                    "boxes overlap by " + overlap + " IoU in the frame of type " + type);
+        }
+    }
+
+    @Test
+    void randomScenesAgreeWithinTolerance() {
+        int agreed = 0;
+        int boxPairs = 0;
+        double overlapSum = 0;
+        StringBuilder mismatches = new StringBuilder();
+        for (int seed = 0; seed < RANDOM_SCENES; seed++) {
+            BufferedImage frame = SyntheticFrames.randomFrame(FRAME_SIZE, BufferedImage.TYPE_BYTE_GRAY, new Random(seed));
+            DetectionResult expected = openCV.detect(frame);
+            DetectionResult actual = pureJava.detect(frame);
+            if (expected.isObjectFound() == actual.isObjectFound()) {
+                agreed++;
+            } else {
+                mismatches.append(" seed ").append(seed);
+            }
+            if (expected.getLargestBox() != null && actual.getLargestBox() != null) {
+                boxPairs++;
+                overlapSum += intersectionOverUnion(expected.getLargestBox().getBounds(), actual.getLargestBox().getBounds());
+            }
+        }
+
+        double agreement = (double) agreed / RANDOM_SCENES;
+        assertTrue(agreement >= REQUIRED_AGREEMENT,
+                "verdicts agree on " + agreed + "/" + RANDOM_SCENES + " scenes; mismatches:" + mismatches);
+        if (boxPairs > 0) {
+            double meanOverlap = overlapSum / boxPairs;
+            assertTrue(meanOverlap >= RANDOM_SCENE_MIN_MEAN_IOU,
+                    "largest boxes overlap by " + meanOverlap + " IoU on average over " + boxPairs + " scenes");
+        }
+    }
+
+    private static double intersectionOverUnion(Rectangle a, Rectangle b) {
+        Rectangle overlap = a.intersection(b);
+        if (overlap.isEmpty()) {
+            return 0;
+        }
+        double intersection = overlap.width * (double) overlap.height;
+        return intersection / (a.width * (double) a.height + b.width * (double) b.height - intersection);
+    }
+}
@@ -0,0 +1,63 @@
+package Abubaker_Object_Detection.orchestrator;
+
+import Abubaker_Object_Detection.simulation.SimulatedArena;
+import Abubaker_Object_Detection.simulation.SimulatedBotController;
+import Abubaker_Object_Detection.util.AsyncImageWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the {@link BotOrchestrator}'s behaviours against a {@link SimulatedBotController}.
+ * <p>
+ * The behaviours pace themselves with real-time sleeps (the curious behaviour waits 5 seconds before
+ * checking the distance again), so each run takes several seconds whatever the simulation's speed.
+ */
+class BotOrchestratorTest {
+
+    /** Slow enough that the curious behaviour's 25 ms distance polls see about 1 cm of travel. */
+    private static final double TIME_SCALE = 5;
+
+    private static final double BOT_RADIUS_CM = 8;
+
+    /** Near face of the object the bot starts in front of. */
+    private static final double OBJECT_X_CM = 200;
+
+    @TempDir
+    Path pictures;
+
+    @Test
+    void curiousBehaviourStopsAbout30cmFromTheObjectAndTakesItsPicture() {
+        SimulatedArena arena = new SimulatedArena(300, 300);
+        arena.addObject(OBJECT_X_CM, 140, 20, 20, 30);
+        SimulatedBotController bot = new SimulatedBotController(arena, TIME_SCALE,
+                SimulatedBotController.DEFAULT_NOISE_CM, 0, 1);
+        bot.setPose(100, 150, 0);
+        AsyncImageWriter imageWriter = new AsyncImageWriter(pictures.toFile(), 4, AsyncImageWriter.DropPolicy.BLOCK,
+                AsyncImageWriter.Format.JPEG, AsyncImageWriter.DEFAULT_QUALITY);
+        BotOrchestrator orchestrator = new BotOrchestrator(bot, null, null, imageWriter);
+
+        orchestrator.curiousBehaviour();
+        // Flushes the picture to disk
+        orchestrator.terminate();
+
+        // The behaviour only settles once its re-check reads between 26 and 34 cm
+        double distance = OBJECT_X_CM - bot.getX() - BOT_RADIUS_CM;
+        assertTrue(distance >= 26 && distance <= 34, "stopped " + distance + " cm from the object");
+        assertEquals(150, bot.getY(), 1);
+        assertEquals(0, bot.getCollisionCount());
+        // It ends by turning right twice, away from the object
+        assertTrue(bot.getObstacleInView() == null
+                        || bot.getObstacleInView().getType() != SimulatedArena.ObstacleType.OBJECT,
+                "still facing the object");
+        assertEquals(0, bot.getUnderlights()[1], "the green curiosity lights are still on");
+
+        File[] written = pictures.toFile().listFiles();
+        assertTrue(written != null && written.length >= 1, "no picture was written");
+    }
+}
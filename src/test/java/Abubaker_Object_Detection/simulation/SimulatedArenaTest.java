@@ -0,0 +1,67 @@
+package Abubaker_Object_Detection.simulation;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the {@link SimulatedArena}'s ray casts and overlap tests on a 300 x 300 cm floor with a
+ * single object.
+ */
+class SimulatedArenaTest {
+
+    private static final double TOLERANCE_CM = 1e-9;
+
+    private static SimulatedArena arenaWithObject() {
+        SimulatedArena arena = new SimulatedArena(300, 300);
+        arena.addObject(200, 140, 20, 20, 30);
+        return arena;
+    }
+
+    @Test
+    void rayStopsAtTheNearestObstacle() {
+        SimulatedArena.Hit hit = arenaWithObject().castRay(100, 150, 0, 400);
+
+        assertNotNull(hit);
+        assertEquals(SimulatedArena.ObstacleType.OBJECT, hit.getObstacle().getType());
+        assertEquals(100, hit.getDistance(), TOLERANCE_CM);
+    }
+
+    @Test
+    void rayPastTheObjectHitsTheBoundaryWall() {
+        // Straight up the y axis, beside the object
+        SimulatedArena.Hit hit = arenaWithObject().castRay(100, 150, Math.PI / 2, 400);
+
+        assertNotNull(hit);
+        assertEquals(SimulatedArena.ObstacleType.WALL, hit.getObstacle().getType());
+        assertEquals(150, hit.getDistance(), TOLERANCE_CM);
+    }
+
+    @Test
+    void rayFindsNothingBeyondItsRange() {
+        assertNull(arenaWithObject().castRay(100, 150, 0, 99));
+    }
+
+    @Test
+    void diagonalRayMeasuresAlongTheRay() {
+        // 45 degrees from (0, 0) reaches the far corner region of the square floor
+        SimulatedArena.Hit hit = new SimulatedArena(300, 300).castRay(100, 100, Math.PI / 4, 400);
+
+        assertNotNull(hit);
+        assertEquals(200 * Math.sqrt(2), hit.getDistance(), 1e-6);
+    }
+
+    @Test
+    void circlesOverlappingAnObstacleCollide() {
+        SimulatedArena arena = arenaWithObject();
+
+        assertTrue(arena.collides(195, 150, 8), "a circle reaching into the object");
+        assertTrue(arena.collides(295, 150, 8), "a circle reaching into the boundary wall");
+        assertFalse(arena.collides(180, 150, 8), "a circle 12 cm clear of the object");
+        assertFalse(arena.collides(150, 150, 8), "a circle in the open");
+    }
+}
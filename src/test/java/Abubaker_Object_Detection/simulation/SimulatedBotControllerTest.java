@@ -0,0 +1,167 @@
+package Abubaker_Object_Detection.simulation;
+
+import Abubaker_Object_Detection.orchestrator.BotOrchestrator;
+import Abubaker_Object_Detection.selection.OpenCVQRCodeScanner;
+import org.junit.jupiter.api.Test;
+import swiftbot.ImageSize;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the {@link SimulatedBotController}'s sensing, motion and camera against the arena it drives in.
+ * The bots are created without sensor noise, so readings can be compared with the geometry.
+ */
+class SimulatedBotControllerTest {
+
+    /** Radius of the simulated bot: the ultrasound sensor sits this far in front of its centre. */
+    private static final double BOT_RADIUS_CM = 8;
+
+    /** Allowed error of the timed primitives, which are integrated in steps of simulated time. */
+    private static final double MOTION_TOLERANCE_CM = 1;
+    private static final double TURN_TOLERANCE_DEGREES = 1;
+
+    private static final String QR_CODE_TEXT = "Curious SwiftBot";
+
+    /**
+     * @return a noise-free bot at (100, 150) facing along the x axis, towards an object whose near
+     *         face is at x = 200
+     */
+    private static SimulatedBotController botFacingObject() {
+        SimulatedArena arena = new SimulatedArena(300, 300);
+        arena.addObject(200, 140, 20, 20, 30);
+        SimulatedBotController bot = new SimulatedBotController(arena, SimulatedBotController.DEFAULT_TIME_SCALE,
+                0, 0, 1);
+        bot.setPose(100, 150, 0);
+        return bot;
+    }
+
+    @Test
+    void ultrasoundMeasuresFromTheFrontOfTheBot() {
+        SimulatedBotController bot = botFacingObject();
+
+        assertEquals(200 - 100 - BOT_RADIUS_CM, bot.measureDistance(), 1e-9);
+        assertEquals(SimulatedArena.ObstacleType.OBJECT, bot.getObstacleInView().getType());
+    }
+
+    @Test
+    void ultrasoundFollowsTheHeading() {
+        SimulatedBotController bot = botFacingObject();
+        bot.setPose(100, 150, 90);
+
+        // The boundary wall at y = 300
+        assertEquals(300 - 150 - BOT_RADIUS_CM, bot.measureDistance(), 1e-9);
+        assertEquals(SimulatedArena.ObstacleType.WALL, bot.getObstacleInView().getType());
+    }
+
+    @Test
+    void moveForward30cmCovers30cm() {
+        SimulatedBotController bot = botFacingObject();
+
+        bot.moveForward30cm(50);
+
+        assertEquals(130, bot.getX(), MOTION_TOLERANCE_CM);
+        assertEquals(150, bot.getY(), MOTION_TOLERANCE_CM);
+        assertEquals(0, bot.getCollisionCount());
+    }
+
+    @Test
+    void moveBackward30cmCovers30cm() {
+        SimulatedBotController bot = botFacingObject();
+
+        bot.moveBackward30cm(50);
+
+        assertEquals(70, bot.getX(), MOTION_TOLERANCE_CM);
+        assertEquals(150, bot.getY(), MOTION_TOLERANCE_CM);
+    }
+
+    @Test
+    void turnRight60TurnsClockwiseBy60Degrees() {
+        SimulatedBotController bot = botFacingObject();
+
+        bot.turnRight60();
+
+        assertEquals(300, bot.getHeadingDegrees(), TURN_TOLERANCE_DEGREES);
+        assertEquals(100, bot.getX(), MOTION_TOLERANCE_CM);
+        assertEquals(150, bot.getY(), MOTION_TOLERANCE_CM);
+    }
+
+    @Test
+    void botStopsAgainstAnObstacleAndCountsTheCollision() {
+        SimulatedBotController bot = botFacingObject();
+        bot.setPose(180, 150, 0);
+
+        // 30 cm would take the bot 18 cm into the object
+        bot.moveForward30cm(50);
+
+        assertEquals(1, bot.getCollisionCount());
+        assertTrue(bot.getX() + BOT_RADIUS_CM <= 200, "the bot entered the object");
+        assertTrue(bot.getX() + BOT_RADIUS_CM > 198, "the bot stopped short of the object");
+    }
+
+    @Test
+    void botCannotBePlacedOnAnObstacle() {
+        SimulatedBotController bot = botFacingObject();
+
+        assertThrows(IllegalArgumentException.class, () -> bot.setPose(205, 150, 0));
+    }
+
+    @Test
+    void heldUpQRCodeIsDecodedFromTheHighQualityPicture() {
+        SimulatedBotController bot = botFacingObject();
+        bot.holdUpQRCode(QR_CODE_TEXT);
+
+        try (OpenCVQRCodeScanner scanner = new OpenCVQRCodeScanner()) {
+            assertEquals(QR_CODE_TEXT, scanner.scanQRCode(bot.takeHighQualityPicture()));
+        }
+    }
+
+    @Test
+    void heldUpQRCodeIsDecodedFromTheOrchestratorsPreview() {
+        SimulatedBotController bot = botFacingObject();
+        bot.holdUpQRCode(QR_CODE_TEXT);
+
+        try (OpenCVQRCodeScanner scanner = new OpenCVQRCodeScanner()) {
+            BotOrchestrator orchestrator = new BotOrchestrator(bot, scanner, null);
+            assertEquals(QR_CODE_TEXT, orchestrator.scanQRCodeProgressively(scanner));
+
+            bot.lowerQRCode();
+            assertEquals("", orchestrator.scanQRCodeProgressively(scanner));
+        }
+    }
+
+    @Test
+    void customPictureIsDrawnIntoAMatchingBuffer() {
+        SimulatedBotController bot = new SimulatedBotController(SimulatedArena.createDefault());
+        BufferedImage buffer = bot.takeCustomPicture(ImageSize.SQUARE_480x480);
+
+        BufferedImage reused = bot.takeCustomPicture(ImageSize.SQUARE_480x480, buffer);
+        BufferedImage fresh = bot.takeCustomPicture(ImageSize.SQUARE_480x480);
+
+        assertSame(buffer, reused);
+        assertTrue(Arrays.equals(pixels(reused), pixels(fresh)), "the reused buffer differs from a new frame");
+    }
+
+    @Test
+    void customPictureIgnoresABufferOfTheWrongSize() {
+        SimulatedBotController bot = new SimulatedBotController(SimulatedArena.createDefault());
+        BufferedImage small = new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR);
+
+        BufferedImage picture = bot.takeCustomPicture(ImageSize.SQUARE_480x480, small);
+
+        assertNotSame(small, picture);
+        assertEquals(480, picture.getWidth());
+        assertEquals(480, picture.getHeight());
+    }
+
+    private static byte[] pixels(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
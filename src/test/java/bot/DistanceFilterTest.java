@@ -0,0 +1,105 @@
+package bot;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the {@link DistanceFilter} modes against readings with a known answer: a steady distance,
+ * a steady approach and single or repeated echoes.
+ */
+class DistanceFilterTest {
+
+    /** Time between readings, as sampled by the ultrasound sampler. */
+    private static final long INTERVAL_NANOS = 50_000_000L;
+
+    private static final double DISTANCE_CM = 100;
+    private static final double ECHO_CM = 300;
+
+    @Test
+    void valueIsMaxValueBeforeTheFirstReading() {
+        for (DistanceFilter.Mode mode : DistanceFilter.Mode.values()) {
+            DistanceFilter filter = new DistanceFilter(mode);
+            assertEquals(Double.MAX_VALUE, filter.getValue(), 0, mode + " value before the first reading");
+            assertEquals(0, filter.getRateOfChange(), 0, mode + " rate before the first reading");
+        }
+    }
+
+    @Test
+    void valueIsMaxValueAgainAfterReset() {
+        DistanceFilter filter = new DistanceFilter(DistanceFilter.Mode.KALMAN);
+        filter.update(DISTANCE_CM, 0);
+        filter.reset();
+        assertEquals(Double.MAX_VALUE, filter.getValue(), 0);
+    }
+
+    @Test
+    void medianIgnoresASingleEcho() {
+        DistanceFilter filter = new DistanceFilter(DistanceFilter.Mode.MEDIAN);
+        long nanos = feed(filter, DISTANCE_CM, 0, DistanceFilter.DEFAULT_WINDOW);
+
+        filter.update(ECHO_CM, nanos);
+        assertEquals(DISTANCE_CM, filter.getValue(), 0, "the echo moved the median");
+
+        filter.update(DISTANCE_CM, nanos + INTERVAL_NANOS);
+        assertEquals(DISTANCE_CM, filter.getValue(), 0, "the median moved after the echo");
+    }
+
+    @Test
+    void kalmanRejectsAnEcho() {
+        DistanceFilter filter = new DistanceFilter(DistanceFilter.Mode.KALMAN);
+        long nanos = feed(filter, DISTANCE_CM, 0, 20);
+
+        filter.update(ECHO_CM, nanos);
+        assertEquals(1, filter.getRejectedCount());
+        assertEquals(DISTANCE_CM, filter.getValue(), 1, "the echo moved the estimate");
+
+        filter.update(DISTANCE_CM, nanos + INTERVAL_NANOS);
+        assertEquals(1, filter.getRejectedCount(), "a reading after the echo was rejected");
+        assertEquals(DISTANCE_CM, filter.getValue(), 1);
+    }
+
+    @Test
+    void kalmanRestartsAfterConsecutiveOutliers() {
+        DistanceFilter filter = new DistanceFilter(DistanceFilter.Mode.KALMAN);
+        long nanos = feed(filter, DISTANCE_CM, 0, 20);
+
+        nanos = feed(filter, ECHO_CM, nanos, DistanceFilter.MAX_CONSECUTIVE_OUTLIERS - 1);
+        assertEquals(DISTANCE_CM, filter.getValue(), 1, "restarted before enough outliers");
+
+        nanos = feed(filter, ECHO_CM, nanos, 1);
+        assertEquals(ECHO_CM, filter.getValue(), 0, "did not restart from the new distance");
+        assertEquals(DistanceFilter.MAX_CONSECUTIVE_OUTLIERS, filter.getRejectedCount());
+
+        // After the restart the new distance is the scene, not an echo
+        feed(filter, ECHO_CM, nanos, 1);
+        assertEquals(DistanceFilter.MAX_CONSECUTIVE_OUTLIERS, filter.getRejectedCount());
+    }
+
+    @Test
+    void rateIsNegativeWhileApproaching() {
+        double speedCmPerSecond = 40;
+        for (DistanceFilter.Mode mode : DistanceFilter.Mode.values()) {
+            DistanceFilter filter = new DistanceFilter(mode);
+            for (int i = 0; i < 20; i++) {
+                filter.update(DISTANCE_CM - speedCmPerSecond * i * INTERVAL_NANOS / 1e9, i * INTERVAL_NANOS);
+            }
+            assertTrue(filter.getRateOfChange() < 0, mode + " rate is not negative while approaching");
+            assertEquals(-speedCmPerSecond, filter.getRateOfChange(), 1, mode + " rate");
+        }
+    }
+
+    /**
+     * Adds {@code readings} readings of {@code distance}, one every {@link #INTERVAL_NANOS}.
+     *
+     * @return the sample time for the next reading
+     */
+    private static long feed(DistanceFilter filter, double distance, long nanos, int readings) {
+        for (int i = 0; i < readings; i++) {
+            filter.update(distance, nanos);
+            nanos += INTERVAL_NANOS;
+        }
+        return nanos;
+    }
+}